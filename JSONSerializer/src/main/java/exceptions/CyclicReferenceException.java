@@ -0,0 +1,11 @@
+package exceptions;
+
+/**
+ * An exception thrown when an object is met again inside itself while it is written,
+ * and the serializer is set to fail on cycles.
+ */
+public class CyclicReferenceException extends RuntimeException {
+    public CyclicReferenceException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package exceptions;
+
+/**
+ * An exception thrown when JSON is malformed or does not match a type it is read to.
+ */
+public class JsonParseException extends RuntimeException {
+    public JsonParseException(String message) {
+        super(message);
+    }
+
+    public JsonParseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,10 @@
+package exceptions;
+
+/**
+ * An exception thrown when a document is nested deeper or grows larger than a serializer allows.
+ */
+public class LimitExceededException extends RuntimeException {
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
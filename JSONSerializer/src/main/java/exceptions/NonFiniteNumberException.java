@@ -0,0 +1,11 @@
+package exceptions;
+
+/**
+ * An exception thrown when there is an attempt to serialize NaN or an infinite number
+ * and the class does not allow it.
+ */
+public class NonFiniteNumberException extends RuntimeException {
+    public NonFiniteNumberException(String message) {
+        super(message);
+    }
+}
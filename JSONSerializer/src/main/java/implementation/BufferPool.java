@@ -0,0 +1,77 @@
+package implementation;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Pool of buffers that are reused between serializations, buffers that grew too big are not taken back.
+ *
+ * @param <T> type of buffers
+ */
+final class BufferPool<T> {
+    /**
+     * Pool of byte buffers JSON is encoded to.
+     */
+    static final BufferPool<byte[]> BYTES = new BufferPool<>(() -> new byte[JsonOutput.BUFFER_SIZE],
+            buffer -> buffer.length, Runtime.getRuntime().availableProcessors() * 4, 1 << 20);
+
+    /**
+     * Pool of char buffers long strings are copied to for escaping.
+     */
+    static final BufferPool<char[]> CHARS = new BufferPool<>(() -> new char[JsonOutput.CHUNK_SIZE],
+            buffer -> buffer.length, Runtime.getRuntime().availableProcessors() * 4, JsonOutput.CHUNK_SIZE);
+
+    /**
+     * Pool of direct buffers JSON is staged in before it is written to a channel.
+     */
+    static final BufferPool<ByteBuffer> DIRECT = new BufferPool<>(
+            () -> ByteBuffer.allocateDirect(ChannelSink.SEGMENT_SIZE), ByteBuffer::capacity,
+            Runtime.getRuntime().availableProcessors() * 4 * ChannelSink.SEGMENTS, ChannelSink.SEGMENT_SIZE);
+
+    /**
+     * Function to get a size of a buffer.
+     */
+    private final ToIntFunction<T> sizer;
+
+    /**
+     * Largest buffer that is taken back to the pool, bigger buffers are left to GC.
+     */
+    private final int maxPooledSize;
+
+    private final ObjectPool<T> buffers;
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory       factory of new buffers
+     * @param sizer         function to get a size of a buffer
+     * @param capacity      number of pooled buffers, rounded up to a power of two
+     * @param maxPooledSize largest buffer that is taken back to the pool
+     */
+    BufferPool(Supplier<T> factory, ToIntFunction<T> sizer, int capacity, int maxPooledSize) {
+        this.sizer = sizer;
+        this.maxPooledSize = maxPooledSize;
+        this.buffers = new ObjectPool<>(factory, capacity);
+    }
+
+    /**
+     * Takes a buffer from the pool, or creates a new one if the pool is empty.
+     *
+     * @return buffer at least as big as a new one
+     */
+    T acquire() {
+        return buffers.acquire();
+    }
+
+    /**
+     * Gives a buffer back to the pool, the buffer is dropped if the pool is full or the buffer is too big.
+     *
+     * @param buffer buffer taken from the pool
+     */
+    void release(T buffer) {
+        if (sizer.applyAsInt(buffer) <= maxPooledSize) {
+            buffers.release(buffer);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package implementation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stream that stages encoded JSON in pooled direct buffers.
+ * With a channel the buffers are written to it with one gathering write once all of them are full,
+ * so a channel gets few large writes and does not copy heap buffers to temporary direct ones.
+ * Without a channel the buffers grow to hold a whole document, e.g. to write it asynchronously.
+ * Buffers must be given back with {@link #close()}, the channel is not closed.
+ */
+final class ChannelSink extends OutputStream {
+    /**
+     * Size of a direct buffer in bytes.
+     */
+    static final int SEGMENT_SIZE = 2 * JsonOutput.BUFFER_SIZE;
+
+    /**
+     * Number of direct buffers written to a channel at once.
+     */
+    static final int SEGMENTS = 4;
+
+    /**
+     * Channel the buffers are written to, or null if they grow.
+     */
+    private final WritableByteChannel channel;
+
+    private ByteBuffer[] segments = new ByteBuffer[SEGMENTS];
+
+    /**
+     * Index of the buffer that is being filled.
+     */
+    private int current;
+
+    /**
+     * Creates a sink that keeps a whole document in direct buffers.
+     */
+    ChannelSink() {
+        this(null);
+    }
+
+    /**
+     * Creates a sink that writes to a channel.
+     *
+     * @param channel a channel where JSON is written
+     */
+    ChannelSink(WritableByteChannel channel) {
+        this.channel = channel;
+        segments[0] = BufferPool.DIRECT.acquire();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        next().put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            var segment = next();
+            var count = Math.min(length, segment.remaining());
+            segment.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Writes the filled buffers to the channel.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (channel == null) {
+            return;
+        }
+
+        var count = current + 1;
+        for (int i = 0; i < count; i++) {
+            segments[i].flip();
+        }
+
+        if (channel instanceof GatheringByteChannel gathering) {
+            while (segments[current].hasRemaining()) {
+                gathering.write(segments, 0, count);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                while (segments[i].hasRemaining()) {
+                    channel.write(segments[i]);
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            segments[i].clear();
+        }
+        current = 0;
+    }
+
+    /**
+     * Writes a document kept in direct buffers to a file asynchronously, buffer after buffer.
+     * The buffers are given back when the document is written or a write fails.
+     *
+     * @param file     a file where JSON is written
+     * @param position position in a file to write at
+     * @return future of a number of written bytes
+     */
+    CompletableFuture<Long> writeTo(AsynchronousFileChannel file, long position) {
+        var count = current + 1;
+        for (int i = 0; i < count; i++) {
+            segments[i].flip();
+        }
+
+        var future = new CompletableFuture<Long>();
+        var written = new long[1];
+        var index = new int[1];
+        var handler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                written[0] += result;
+                if (!segments[index[0]].hasRemaining() && ++index[0] == count) {
+                    close();
+                    future.complete(written[0]);
+                    return;
+                }
+
+                try {
+                    file.write(segments[index[0]], position + written[0], null, this);
+                } catch (RuntimeException e) {
+                    failed(e, null);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                close();
+                future.completeExceptionally(e);
+            }
+        };
+
+        try {
+            file.write(segments[0], position, null, handler);
+        } catch (RuntimeException e) {
+            handler.failed(e, null);
+        }
+        return future;
+    }
+
+    /**
+     * Gives the buffers back to the pool, the sink cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        for (int i = 0; i < segments.length && segments[i] != null; i++) {
+            BufferPool.DIRECT.release(segments[i].clear());
+            segments[i] = null;
+        }
+    }
+
+    /**
+     * Gets a buffer with free space, writes the buffers to the channel or adds a buffer if all of them are full.
+     */
+    private ByteBuffer next() throws IOException {
+        var segment = segments[current];
+        if (segment.hasRemaining()) {
+            return segment;
+        }
+
+        if (current + 1 == segments.length) {
+            if (channel != null) {
+                flush();
+                return segments[0];
+            }
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+
+        current++;
+        if (segments[current] == null) {
+            segments[current] = BufferPool.DIRECT.acquire();
+        }
+        return segments[current];
+    }
+}
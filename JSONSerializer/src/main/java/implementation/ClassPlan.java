@@ -0,0 +1,172 @@
+package implementation;
+
+import interfaces.Exported;
+import interfaces.Ignored;
+import interfaces.Immutable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable serialization plan of a class.
+ * It is built once per class and shared between all writers and threads.
+ */
+final class ClassPlan {
+    private static final ClassValue<ClassPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected ClassPlan computeValue(Class<?> type) {
+            var writer = GeneratedWriters.writerOf(type);
+            return writer != null ? new ClassPlan(writer) : new ClassPlan(type);
+        }
+    };
+
+    /**
+     * Planned class.
+     */
+    final Class<?> type;
+
+    /**
+     * Simple name of a class, used to label objects inside collections.
+     */
+    final String simpleName;
+
+    /**
+     * Label of objects inside collections encoded once to UTF-8 in the form {@code "SimpleName":}.
+     */
+    final byte[] encodedLabel;
+
+    /**
+     * True if a class is marked as @Exported.
+     */
+    final boolean exported;
+
+    /**
+     * True if a class uses null values for serialization.
+     */
+    final boolean nullHandling;
+
+    /**
+     * Handling of NaN and infinite numbers of a class.
+     */
+    final NonFiniteHandling nonFiniteHandling;
+
+    /**
+     * True if a class has a public constructor with no parameters or if it is a record.
+     */
+    final boolean constructible;
+
+    /**
+     * True if a class is a record or is marked as @Immutable, so its JSON can be cached.
+     */
+    final boolean immutable;
+
+    /**
+     * Serializable properties in declaration order, without static, synthetic and @Ignored fields.
+     * Empty if a class is not @Exported.
+     */
+    final PropertyPlan[] properties;
+
+    /**
+     * Writer generated at compile time, null if there is none.
+     * Properties of a plan built from a generated writer have no field accessors.
+     */
+    final GeneratedWriter writer;
+
+    private ClassPlan(Class<?> type) {
+        this.type = type;
+        this.simpleName = type.getSimpleName();
+        this.encodedLabel = JsonOutput.encodeName(simpleName);
+        this.writer = null;
+
+        var exportedAnnotation = type.getAnnotation(Exported.class);
+        this.exported = exportedAnnotation != null;
+        this.nullHandling = exported && exportedAnnotation.nullHandling().isIncluded();
+        this.nonFiniteHandling = exported ? exportedAnnotation.nonFiniteHandling() : NonFiniteHandling.LITERAL;
+        this.constructible = hasPublicConstructor(type) || type.isRecord();
+        this.immutable = isImmutable(type);
+
+        List<PropertyPlan> list = new ArrayList<>();
+        if (exported) {
+            for (var field : type.getDeclaredFields()) {
+                if (isSkipped(field)) {
+                    continue;
+                }
+
+                list.add(new PropertyPlan(field));
+            }
+        }
+        this.properties = list.toArray(new PropertyPlan[0]);
+    }
+
+    /**
+     * Builds a plan from a description written by the annotation processor, without reflection.
+     * The processor rejects classes without a public constructor with no parameters.
+     *
+     * @param writer generated writer of a class
+     */
+    private ClassPlan(GeneratedWriter writer) {
+        this.type = writer.type();
+        this.simpleName = type.getSimpleName();
+        this.encodedLabel = JsonOutput.encodeName(simpleName);
+        this.writer = writer;
+        this.exported = true;
+        this.nullHandling = writer.nullHandling();
+        this.nonFiniteHandling = writer.nonFiniteHandling();
+        this.constructible = true;
+        this.immutable = isImmutable(type);
+
+        var generated = writer.properties();
+        this.properties = new PropertyPlan[generated.length];
+        for (var i = 0; i < generated.length; i++) {
+            properties[i] = new PropertyPlan(generated[i]);
+        }
+    }
+
+    /**
+     * Gets a plan of a class, building it on first use.
+     *
+     * @param type some class
+     * @return shared plan of a class
+     */
+    static ClassPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Checks if a field is synthetic or static, or if it is marked as @Ignored.
+     *
+     * @param field some field
+     * @return true if a field must not be serialized, otherwise, false
+     */
+    static boolean isSkipped(Field field) {
+        return field.isSynthetic() || Modifier.isStatic(field.getModifiers()) ||
+                field.isAnnotationPresent(Ignored.class);
+    }
+
+    /**
+     * Checks if objects of a class never change after they are created.
+     *
+     * @param type some class
+     * @return true if a class is a record or is marked as @Immutable, otherwise, false
+     */
+    private static boolean isImmutable(Class<?> type) {
+        return type.isRecord() || type.isAnnotationPresent(Immutable.class);
+    }
+
+    /**
+     * Checks if class has a public constructor with no parameters.
+     *
+     * @param type some class
+     * @return true if there is such a constructor, otherwise, false
+     */
+    private static boolean hasPublicConstructor(Class<?> type) {
+        for (var constructor : type.getConstructors()) {
+            if (constructor.getParameterCount() == 0 && Modifier.isPublic(constructor.getModifiers())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
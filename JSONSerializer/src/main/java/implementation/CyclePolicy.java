@@ -0,0 +1,22 @@
+package implementation;
+
+/**
+ * Sets handling of an object that is met again inside itself, e.g. a child that refers to its parent.
+ */
+public enum CyclePolicy {
+    /**
+     * Throws CyclicReferenceException.
+     */
+    FAIL,
+
+    /**
+     * Writes null instead of the object.
+     */
+    NULL,
+
+    /**
+     * Writes {@code {"$ref":"/pointer"}} instead of the object, where the JSON pointer from the root of a document
+     * leads to the place the object is written at, so JsonIndex.at finds it.
+     */
+    REFERENCE
+}
@@ -0,0 +1,363 @@
+package implementation;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pattern of @DateFormat compiled once per field.
+ * Numeric patterns, e.g. {@code dd/MM/yyyy}, {@code HH:mm:ss} or {@code yyyy-MM-dd'T'HH:mm:ss.SSS},
+ * are written digit by digit straight into an output buffer.
+ * Other patterns, and years outside of 1..9999, are formatted by a cached DateTimeFormatter.
+ */
+final class DateFormatWriter {
+    /**
+     * Writer of dates without @DateFormat, in the ISO format of their toString methods.
+     */
+    static final DateFormatWriter ISO = new DateFormatWriter();
+
+    private static final int DAY = 0;
+    private static final int MONTH = 1;
+    private static final int YEAR = 2;
+    private static final int HOUR_OF_DAY = 3;
+    private static final int CLOCK_HOUR_OF_AM_PM = 4;
+    private static final int MINUTE = 5;
+    private static final int SECOND = 6;
+    private static final int FRACTION = 7;
+    private static final int LITERAL = 8;
+
+    private static final int[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000,
+            100_000_000, 1_000_000_000};
+
+    /**
+     * Formatter of a pattern, null for ISO.
+     */
+    private final DateTimeFormatter formatter;
+
+    /**
+     * Kinds of segments of a pattern, null if a pattern has no fast writer.
+     */
+    private final int[] kinds;
+
+    /**
+     * Widths of fields, or chars of literals.
+     */
+    private final int[] values;
+
+    /**
+     * True if a pattern has fields of a date.
+     */
+    private final boolean dateFields;
+
+    /**
+     * True if a pattern has fields of a time.
+     */
+    private final boolean timeFields;
+
+    /**
+     * Most bytes the fast writer writes.
+     */
+    final int maxLength;
+
+    private DateFormatWriter() {
+        this.formatter = null;
+        this.kinds = null;
+        this.values = null;
+        this.dateFields = false;
+        this.timeFields = false;
+        this.maxLength = "9999-12-31T23:59:59.999999999".length();
+    }
+
+    private DateFormatWriter(DateTimeFormatter formatter, int[] kinds, int[] values) {
+        this.formatter = formatter;
+        this.kinds = kinds;
+        this.values = values;
+
+        var date = false;
+        var time = false;
+        var length = 0;
+        if (kinds != null) {
+            for (int i = 0; i < kinds.length; i++) {
+                date |= kinds[i] <= YEAR;
+                time |= kinds[i] >= HOUR_OF_DAY && kinds[i] <= FRACTION;
+                length += switch (kinds[i]) {
+                    case LITERAL -> 1;
+                    case YEAR -> 4;
+                    case FRACTION -> values[i];
+                    default -> 2;
+                };
+            }
+        }
+        this.dateFields = date;
+        this.timeFields = time;
+        this.maxLength = length;
+    }
+
+    /**
+     * Compiles a pattern of @DateFormat.
+     *
+     * @param pattern pattern of DateTimeFormatter
+     * @return compiled writer
+     * @throws IllegalArgumentException if a pattern is invalid
+     */
+    static DateFormatWriter of(String pattern) {
+        var formatter = DateTimeFormatter.ofPattern(pattern);
+
+        List<int[]> segments = parse(pattern);
+        if (segments == null) {
+            return new DateFormatWriter(formatter, null, null);
+        }
+
+        var kinds = new int[segments.size()];
+        var values = new int[segments.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = segments.get(i)[0];
+            values[i] = segments.get(i)[1];
+        }
+        return new DateFormatWriter(formatter, kinds, values);
+    }
+
+    /**
+     * Splits a pattern into numeric fields and literals.
+     *
+     * @param pattern pattern of DateTimeFormatter
+     * @return pairs of a kind and a width or a char, or null if a pattern has something else
+     */
+    private static List<int[]> parse(String pattern) {
+        List<int[]> segments = new ArrayList<>();
+
+        var i = 0;
+        while (i < pattern.length()) {
+            var c = pattern.charAt(i);
+
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+                var end = i;
+                while (end < pattern.length() && pattern.charAt(end) == c) {
+                    end++;
+                }
+                var width = end - i;
+
+                var kind = switch (c) {
+                    case 'd' -> width <= 2 ? DAY : -1;
+                    case 'M' -> width <= 2 ? MONTH : -1;
+                    case 'y', 'u' -> width == 4 ? YEAR : -1;
+                    case 'H' -> width <= 2 ? HOUR_OF_DAY : -1;
+                    case 'h' -> width <= 2 ? CLOCK_HOUR_OF_AM_PM : -1;
+                    case 'm' -> width <= 2 ? MINUTE : -1;
+                    case 's' -> width <= 2 ? SECOND : -1;
+                    case 'S' -> width <= 9 ? FRACTION : -1;
+                    default -> -1;
+                };
+                if (kind < 0) {
+                    return null;
+                }
+
+                segments.add(new int[]{kind, width});
+                i = end;
+            } else if (c == '\'') {
+                var end = pattern.indexOf('\'', i + 1);
+                if (end <= i + 1) {
+                    return null;
+                }
+                for (int j = i + 1; j < end; j++) {
+                    if (!isPlainLiteral(pattern.charAt(j))) {
+                        return null;
+                    }
+                    segments.add(new int[]{LITERAL, pattern.charAt(j)});
+                }
+                i = end + 1;
+            } else if (isPlainLiteral(c) && "[]{}#".indexOf(c) < 0) {
+                segments.add(new int[]{LITERAL, c});
+                i++;
+            } else {
+                return null;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Checks if a char of a pattern is written to JSON as it is.
+     *
+     * @param c char of a pattern
+     * @return true if a char is printable ASCII and needs no escaping
+     */
+    private static boolean isPlainLiteral(char c) {
+        return c >= 0x20 && c < 0x7F && c != '"' && c != '\\';
+    }
+
+    /**
+     * Checks if a value can be written by the fast writer.
+     *
+     * @param value value of a field
+     * @return true if a pattern is numeric, a value has all fields of a pattern, and its year is in 1..9999
+     */
+    boolean canWrite(Object value) {
+        if (kinds == null && formatter != null) {
+            return false;
+        }
+
+        var writesYear = dateFields || kinds == null;
+        if (value instanceof LocalDateTime dateTime) {
+            return !writesYear || isFastYear(dateTime.getYear());
+        } else if (value instanceof LocalDate date) {
+            return !timeFields && (!writesYear || isFastYear(date.getYear()));
+        } else if (value instanceof LocalTime) {
+            return !dateFields;
+        }
+        return false;
+    }
+
+    /**
+     * Writes a value that the fast writer can write.
+     *
+     * @param buffer   buffer with room for at least {@link #maxLength} bytes at a position
+     * @param position index to write at
+     * @param value    LocalDate, LocalTime or LocalDateTime
+     * @return index after the written value
+     */
+    int write(byte[] buffer, int position, Object value) {
+        int year = 0, month = 0, day = 0, hour = 0, minute = 0, second = 0, nano = 0;
+        var date = false;
+        var time = false;
+
+        if (value instanceof LocalDateTime dateTime) {
+            year = dateTime.getYear();
+            month = dateTime.getMonthValue();
+            day = dateTime.getDayOfMonth();
+            hour = dateTime.getHour();
+            minute = dateTime.getMinute();
+            second = dateTime.getSecond();
+            nano = dateTime.getNano();
+            date = true;
+            time = true;
+        } else if (value instanceof LocalDate localDate) {
+            year = localDate.getYear();
+            month = localDate.getMonthValue();
+            day = localDate.getDayOfMonth();
+            date = true;
+        } else if (value instanceof LocalTime localTime) {
+            hour = localTime.getHour();
+            minute = localTime.getMinute();
+            second = localTime.getSecond();
+            nano = localTime.getNano();
+            time = true;
+        }
+
+        if (kinds == null) {
+            return writeIso(buffer, position, year, month, day, hour, minute, second, nano, date, time);
+        }
+
+        for (int i = 0; i < kinds.length; i++) {
+            var width = values[i];
+            position = switch (kinds[i]) {
+                case DAY -> writeNumber(buffer, position, day, width);
+                case MONTH -> writeNumber(buffer, position, month, width);
+                case YEAR -> writeNumber(buffer, position, year, width);
+                case HOUR_OF_DAY -> writeNumber(buffer, position, hour, width);
+                case CLOCK_HOUR_OF_AM_PM -> writeNumber(buffer, position, hour % 12 == 0 ? 12 : hour % 12, width);
+                case MINUTE -> writeNumber(buffer, position, minute, width);
+                case SECOND -> writeNumber(buffer, position, second, width);
+                case FRACTION -> writeNumber(buffer, position, nano / POWERS_OF_TEN[9 - width], width);
+                default -> {
+                    buffer[position] = (byte) width;
+                    yield position + 1;
+                }
+            };
+        }
+        return position;
+    }
+
+    /**
+     * Formats a value that the fast writer cannot write.
+     *
+     * @param value value of a field
+     * @return formatted value, or a space if a value is not LocalDate, LocalTime or LocalDateTime
+     */
+    String format(Object value) {
+        if (!(value instanceof LocalDate || value instanceof LocalTime || value instanceof LocalDateTime)) {
+            return " ";
+        }
+
+        return formatter != null ? formatter.format((TemporalAccessor) value) : value.toString();
+    }
+
+    /**
+     * Parses a value written with this pattern.
+     *
+     * @param text formatted value
+     * @param type LocalDate, LocalTime or LocalDateTime
+     * @return parsed value
+     * @throws java.time.format.DateTimeParseException if a text does not match a pattern
+     */
+    Object parse(String text, Class<?> type) {
+        if (type == LocalDate.class) {
+            return formatter != null ? LocalDate.parse(text, formatter) : LocalDate.parse(text);
+        } else if (type == LocalTime.class) {
+            return formatter != null ? LocalTime.parse(text, formatter) : LocalTime.parse(text);
+        }
+        return formatter != null ? LocalDateTime.parse(text, formatter) : LocalDateTime.parse(text);
+    }
+
+    /**
+     * Writes a value the way toString of LocalDate, LocalTime and LocalDateTime does it.
+     */
+    private static int writeIso(byte[] buffer, int position, int year, int month, int day, int hour,
+                                int minute, int second, int nano, boolean date, boolean time) {
+        if (date) {
+            position = writeNumber(buffer, position, year, 4);
+            buffer[position++] = '-';
+            position = writeNumber(buffer, position, month, 2);
+            buffer[position++] = '-';
+            position = writeNumber(buffer, position, day, 2);
+        }
+        if (date && time) {
+            buffer[position++] = 'T';
+        }
+        if (time) {
+            position = writeNumber(buffer, position, hour, 2);
+            buffer[position++] = ':';
+            position = writeNumber(buffer, position, minute, 2);
+            if (second > 0 || nano > 0) {
+                buffer[position++] = ':';
+                position = writeNumber(buffer, position, second, 2);
+                if (nano > 0) {
+                    buffer[position++] = '.';
+                    if (nano % 1_000_000 == 0) {
+                        position = writeNumber(buffer, position, nano / 1_000_000, 3);
+                    } else if (nano % 1_000 == 0) {
+                        position = writeNumber(buffer, position, nano / 1_000, 6);
+                    } else {
+                        position = writeNumber(buffer, position, nano, 9);
+                    }
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Writes a non-negative number padded with zeros to a width, or as it is if it has more digits.
+     */
+    private static int writeNumber(byte[] buffer, int position, int value, int width) {
+        var length = width;
+        while (length < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[length]) {
+            length++;
+        }
+
+        var end = position + length;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    private boolean isFastYear(int year) {
+        return year >= 1 && year <= 9999;
+    }
+}
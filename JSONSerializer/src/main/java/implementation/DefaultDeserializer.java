@@ -0,0 +1,412 @@
+package implementation;
+
+import exceptions.ExportedException;
+import exceptions.JsonParseException;
+import exceptions.PublicConstructorException;
+import interfaces.Deserializer;
+import interfaces.Exported;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of Deserializer, reads what DefaultSerializer writes.
+ * Objects are created with a public constructor with no parameters and their fields are set,
+ * records are created with their canonical constructor. Properties that a class does not have are skipped,
+ * properties that JSON does not have keep values set by a constructor.
+ * Objects are read recursively, so documents nested deeper than a maximum depth are rejected.
+ * A deserializer is stateless and can be shared between threads.
+ */
+public class DefaultDeserializer implements Deserializer {
+    /**
+     * Most levels of nesting of a document read by {@code new DefaultDeserializer()}.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 1000;
+
+    /**
+     * Most levels of objects and arrays a document can be nested to.
+     */
+    private final int maxDepth;
+
+    /**
+     * Creates a deserializer that reads documents nested up to {@link #DEFAULT_MAX_DEPTH} levels.
+     */
+    public DefaultDeserializer() {
+        this(DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates a deserializer with a maximum depth of documents.
+     * Every level takes a few frames of the stack of a reading thread.
+     *
+     * @param maxDepth most levels of objects and arrays, the root object is level 1
+     * @throws IllegalArgumentException if a depth is not positive
+     */
+    public DefaultDeserializer(int maxDepth) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException(String.format("The maximum depth %d must be positive", maxDepth));
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public <T> T read(String json, Class<T> type) {
+        return read(json.getBytes(StandardCharsets.UTF_8), type);
+    }
+
+    @Override
+    public <T> T read(byte[] json, Class<T> type) {
+        try (var parser = new JsonParser(json)) {
+            return readDocument(parser, type);
+        }
+    }
+
+    @Override
+    public <T> T read(InputStream stream, Class<T> type) throws IOException {
+        try (var parser = new JsonParser(stream)) {
+            return readDocument(parser, type);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public <T> T read(ByteBuffer json, Class<T> type) {
+        try (var parser = new JsonParser(json)) {
+            return readDocument(parser, type);
+        }
+    }
+
+    /**
+     * Reads a document that holds one object.
+     *
+     * @param parser parser of a document
+     * @param type   class of an object
+     * @param <T>    type of an object
+     * @return read object
+     */
+    private <T> T readDocument(JsonParser parser, Class<T> type) {
+        handleClassRestrictions(ClassPlan.of(type));
+        parser.setMaxDepth(maxDepth);
+
+        var value = readValue(parser, parser.next(), type, Object.class, null);
+        parser.next();
+
+        return type.cast(value);
+    }
+
+    /**
+     * Reads a value of a type starting at the current token.
+     *
+     * @param parser      parser at the first token of a value
+     * @param token       current token
+     * @param type        class of a value
+     * @param elementType class of elements if a value is a collection
+     * @param property    planned property a value is read to, null for elements of collections
+     * @return read value, boxed for primitive types, or null
+     */
+    private Object readValue(JsonParser parser, JsonParser.Token token, Class<?> type, Class<?> elementType,
+                             PropertyPlan property) {
+        if (token == JsonParser.Token.NULL) {
+            return null;
+        }
+
+        if (property != null && property.kind == PropertyPlan.ValueKind.PRIMITIVE_COLLECTION) {
+            return readPrimitives(parser, token, property.primitiveWriter);
+        } else if (PropertyPlan.isPrimitiveArray(type)) {
+            return readArray(parser, token, type);
+        } else if (type == String.class) {
+            return readText(parser, token, type);
+        } else if (type == int.class || type == Integer.class) {
+            checkToken(parser, token, JsonParser.Token.NUMBER, type);
+            return parser.getInt();
+        } else if (type == long.class || type == Long.class) {
+            checkToken(parser, token, JsonParser.Token.NUMBER, type);
+            return parser.getLong();
+        } else if (type == double.class || type == Double.class) {
+            return parser.getDouble();
+        } else if (type == float.class || type == Float.class) {
+            return (float) parser.getDouble();
+        } else if (type == boolean.class || type == Boolean.class) {
+            if (token != JsonParser.Token.TRUE && token != JsonParser.Token.FALSE) {
+                throw parser.error("Expected a boolean but was " + token);
+            }
+            return token == JsonParser.Token.TRUE;
+        } else if (type == short.class || type == Short.class) {
+            checkToken(parser, token, JsonParser.Token.NUMBER, type);
+            var value = parser.getInt();
+            if (value != (short) value) {
+                throw parser.error("The number is out of range of short");
+            }
+            return (short) value;
+        } else if (type == byte.class || type == Byte.class) {
+            checkToken(parser, token, JsonParser.Token.NUMBER, type);
+            var value = parser.getInt();
+            if (value != (byte) value) {
+                throw parser.error("The number is out of range of byte");
+            }
+            return (byte) value;
+        } else if (type == char.class || type == Character.class) {
+            var text = readText(parser, token, type);
+            if (text.length() != 1) {
+                throw parser.error("Expected a single character but was " + text);
+            }
+            return text.charAt(0);
+        } else if (type.isEnum()) {
+            return readEnum(parser, token, type);
+        } else if (type == LocalDate.class || type == LocalTime.class || type == LocalDateTime.class) {
+            var writer = property != null && property.dateWriter != null ? property.dateWriter : DateFormatWriter.ISO;
+            var text = readText(parser, token, type);
+            try {
+                return writer.parse(text, type);
+            } catch (DateTimeParseException e) {
+                throw new JsonParseException(parser.error("Malformed date " + text).getMessage(), e);
+            }
+        } else if (type == BigDecimal.class || type == BigInteger.class) {
+            var text = readText(parser, token, type);
+            try {
+                return type == BigDecimal.class ? new BigDecimal(text) : new BigInteger(text);
+            } catch (NumberFormatException e) {
+                throw parser.error("Malformed number " + text);
+            }
+        } else if ((Collection.class.isAssignableFrom(type) || type == Iterable.class)
+                && !type.isAnnotationPresent(Exported.class)) {
+            checkToken(parser, token, JsonParser.Token.BEGIN_ARRAY, type);
+            return readCollection(parser, type, elementType);
+        } else if (type == Object.class) {
+            return readAny(parser, token);
+        }
+
+        checkToken(parser, token, JsonParser.Token.BEGIN_OBJECT, type);
+        return readObject(parser, type);
+    }
+
+    /**
+     * Reads properties of an object after its opening brace.
+     *
+     * @param parser parser at the beginning of an object
+     * @param type   class of an object
+     * @return read object
+     */
+    private Object readObject(JsonParser parser, Class<?> type) {
+        var plan = ReaderPlan.of(type);
+        handleClassRestrictions(plan.classPlan);
+
+        var record = plan.isRecord();
+        var target = record ? null : plan.newInstance();
+        var arguments = record ? plan.newArguments() : null;
+
+        var expected = 0;
+        while (parser.next() == JsonParser.Token.NAME) {
+            var index = plan.indexOf(parser, expected);
+            if (index < 0) {
+                parser.skipValue();
+                continue;
+            }
+            expected = index + 1;
+
+            var property = plan.properties[index];
+            var value = readValue(parser, parser.next(), property.type, property.elementType, property);
+            if (value == null && property.type.isPrimitive()) {
+                continue;
+            }
+
+            if (record) {
+                plan.setArgument(arguments, index, value);
+            } else {
+                plan.set(target, index, value);
+            }
+        }
+
+        return record ? plan.newRecord(arguments) : target;
+    }
+
+    /**
+     * Reads elements of a collection after its opening bracket.
+     *
+     * @param parser      parser at the beginning of an array
+     * @param type        declared type of a collection
+     * @param elementType class of elements
+     * @return ArrayList for lists, LinkedHashSet for sets
+     */
+    private Collection<Object> readCollection(JsonParser parser, Class<?> type, Class<?> elementType) {
+        Collection<Object> collection;
+        if (type.isAssignableFrom(ArrayList.class)) {
+            collection = new ArrayList<>();
+        } else if (type.isAssignableFrom(LinkedHashSet.class)) {
+            collection = new LinkedHashSet<>();
+        } else {
+            throw parser.error(String.format("The collection type %s cannot be created", type.getSimpleName()));
+        }
+
+        JsonParser.Token token;
+        while ((token = parser.next()) != JsonParser.Token.END_ARRAY) {
+            collection.add(readValue(parser, token, elementType, Object.class, null));
+        }
+        return collection;
+    }
+
+    /**
+     * Reads a primitive array, an array of bytes is read from an array of numbers or from a base64 string.
+     *
+     * @param parser parser at the first token of a value
+     * @param token  current token
+     * @param type   class of a primitive array
+     * @return read array
+     */
+    private Object readArray(JsonParser parser, JsonParser.Token token, Class<?> type) {
+        if (type == byte[].class && token == JsonParser.Token.STRING) {
+            try {
+                return Base64.getDecoder().decode(parser.getString());
+            } catch (IllegalArgumentException e) {
+                throw parser.error("Malformed base64 bytes");
+            }
+        }
+        checkToken(parser, token, JsonParser.Token.BEGIN_ARRAY, type);
+
+        var component = type.getComponentType();
+        var array = Array.newInstance(component, 16);
+        var length = 0;
+        JsonParser.Token element;
+        while ((element = parser.next()) != JsonParser.Token.END_ARRAY) {
+            if (element == JsonParser.Token.NULL) {
+                throw parser.error(String.format("Expected %s but was %s", component.getSimpleName(), element));
+            }
+            if (length == Array.getLength(array)) {
+                var grown = Array.newInstance(component, length * 2);
+                System.arraycopy(array, 0, grown, 0, length);
+                array = grown;
+            }
+            Array.set(array, length++, readValue(parser, element, component, Object.class, null));
+        }
+
+        var result = Array.newInstance(component, length);
+        System.arraycopy(array, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Reads a collection of primitive values to an array and creates it with its writer.
+     *
+     * @param parser parser at the first token of a value
+     * @param token  current token
+     * @param writer writer of a collection type
+     * @return read collection
+     */
+    private Object readPrimitives(JsonParser parser, JsonParser.Token token, PrimitiveCollectionWriter<Object> writer) {
+        var arrayType = writer.arrayType();
+        if (arrayType == null) {
+            throw parser.error(String.format("The collection type %s of primitive values cannot be read",
+                    writer.type().getSimpleName()));
+        }
+        return writer.fromArray(readArray(parser, token, arrayType));
+    }
+
+    /**
+     * Reads a value of an unknown type to maps, lists, strings, longs, doubles and booleans.
+     *
+     * @param parser parser at the first token of a value
+     * @param token  current token
+     * @return read value
+     */
+    private Object readAny(JsonParser parser, JsonParser.Token token) {
+        switch (token) {
+            case BEGIN_OBJECT -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.next() == JsonParser.Token.NAME) {
+                    var name = parser.getString();
+                    map.put(name, readAny(parser, parser.next()));
+                }
+                return map;
+            }
+            case BEGIN_ARRAY -> {
+                List<Object> list = new ArrayList<>();
+                JsonParser.Token element;
+                while ((element = parser.next()) != JsonParser.Token.END_ARRAY) {
+                    list.add(readAny(parser, element));
+                }
+                return list;
+            }
+            case STRING -> {
+                return parser.getString();
+            }
+            case NUMBER -> {
+                var text = parser.getString();
+                if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0
+                        && !text.endsWith("Infinity") && !text.equals("NaN")) {
+                    return parser.getLong();
+                }
+                return parser.getDouble();
+            }
+            case TRUE -> {
+                return true;
+            }
+            case FALSE -> {
+                return false;
+            }
+            case NULL -> {
+                return null;
+            }
+            default -> throw parser.error("Unexpected " + token);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readEnum(JsonParser parser, JsonParser.Token token, Class<?> type) {
+        var name = readText(parser, token, type);
+        try {
+            return Enum.valueOf((Class<? extends Enum>) type, name);
+        } catch (IllegalArgumentException e) {
+            throw parser.error(String.format("There is no constant %s of %s", name, type.getSimpleName()));
+        }
+    }
+
+    private String readText(JsonParser parser, JsonParser.Token token, Class<?> type) {
+        if (token != JsonParser.Token.STRING && token != JsonParser.Token.NUMBER) {
+            throw parser.error(String.format("Expected %s but was %s", type.getSimpleName(), token));
+        }
+        return parser.getString();
+    }
+
+    private void checkToken(JsonParser parser, JsonParser.Token token, JsonParser.Token expected, Class<?> type) {
+        if (token != expected) {
+            throw parser.error(String.format("Expected %s but was %s", type.getSimpleName(), token));
+        }
+    }
+
+    /**
+     * Checks a class for the same restrictions DefaultSerializer has.
+     *
+     * @param plan serialization plan of a class
+     */
+    private void handleClassRestrictions(ClassPlan plan) {
+        if (!plan.exported) {
+            throw new ExportedException(
+                    String.format("The object %s you want to read is not @Exported",
+                            plan.simpleName));
+        }
+
+        if (!plan.constructible) {
+            throw new PublicConstructorException(
+                    String.format("There is no public constructor with no parameters for class %s",
+                            plan.simpleName));
+        }
+    }
+}
@@ -2,53 +2,227 @@ package implementation;
 
 import exceptions.ExportedException;
 import exceptions.PublicConstructorException;
-import interfaces.Exported;
 import interfaces.Serializer;
 import interfaces.Restriction;
 
 import java.io.*;
 import java.lang.reflect.Modifier;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implementation of Serializer.
+ * A serializer is immutable and can be shared between threads, every call borrows a context
+ * with scratch state from a pool and gives it back when it returns.
  */
 public class DefaultSerializer implements Serializer, Restriction {
+    /**
+     * Settings of the serializer.
+     */
+    private final SerializerConfig config;
+
+    /**
+     * Contexts of calls that are reused by later calls.
+     */
+    private final ObjectPool<JsonWriter> contexts;
+
+    public DefaultSerializer() {
+        this(SerializerConfig.DEFAULT);
+    }
+
+    /**
+     * Creates a serializer.
+     *
+     * @param compiled flag to generate a dedicated writer for every @Exported class on first use,
+     *                 classes without a generated writer are written reflectively
+     */
+    public DefaultSerializer(boolean compiled) {
+        this(SerializerConfig.builder().compiled(compiled).build());
+    }
+
+    /**
+     * Creates a serializer from settings.
+     *
+     * @param config settings of the serializer
+     */
+    public DefaultSerializer(SerializerConfig config) {
+        this.config = Objects.requireNonNull(config, "config");
+        this.contexts = new ObjectPool<>(() -> new JsonWriter(config), config.pooledContexts());
+    }
+
+    /**
+     * Gets settings of the serializer.
+     *
+     * @return immutable config
+     */
+    public SerializerConfig getConfig() {
+        return config;
+    }
+
     @Override
     public String writeToString(Object object) throws IllegalAccessException {
-        var jsonWriter = new JsonWriter(object);
+        var plan = handleClassRestrictions(object);
 
-        handleClassRestrictions(object);
-
-        return jsonWriter
-                .formatObject(object.getClass().getAnnotation(Exported.class)
-                        .nullHandling().isIncluded());
+        var context = contexts.acquire();
+        try {
+            return context.formatObject(object, plan.nullHandling);
+        } finally {
+            contexts.release(context);
+        }
     }
 
     @Override
     public void write(Object object, OutputStream outputStream) throws IOException, IllegalAccessException {
-        JsonWriter jsonWriter = new JsonWriter(object);
+        try (outputStream) {
+            write(object, handleClassRestrictions(object), outputStream);
+        }
+    }
+
+    @Override
+    public void write(Object object, File file) throws IllegalAccessException, IOException {
+        write(object, file.toPath());
+    }
+
+    @Override
+    public void write(Object object, WritableByteChannel channel) throws IOException {
+        write(object, handleClassRestrictions(object), channel);
+    }
+
+    @Override
+    public void write(Object object, Path path) throws IOException {
+        var plan = handleClassRestrictions(object);
 
-        handleClassRestrictions(object);
+        if (config.mappedWindowSize() > 0) {
+            writeMapped(object, plan, path);
+            return;
+        }
 
-        var bytes = jsonWriter
-                .formatObject(object.getClass().getAnnotation(Exported.class)
-                        .nullHandling().isIncluded()).getBytes();
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(object, plan, channel);
+        }
+    }
 
-        outputStream.write(bytes);
+    /**
+     * Serializes an object to a file mapped to memory in windows, the file is truncated to the length of JSON.
+     * If writing fails, the file is truncated to the written part and a failure of truncation is suppressed.
+     *
+     * @param object an object to save
+     * @param plan   serialization plan of object's class
+     * @param path   a path of a file where an object is going to be saved
+     * @throws IOException if there are problems with IO channels.
+     */
+    private void writeMapped(Object object, ClassPlan plan, Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var sink = new MappedSink(channel, config.mappedWindowSize());
+            try {
+                write(object, plan, sink);
+            } catch (Throwable e) {
+                try {
+                    sink.close();
+                    channel.truncate(sink.length());
+                } catch (IOException | RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
 
-        outputStream.close();
+            sink.close();
+            channel.truncate(sink.length());
+        }
     }
 
     @Override
-    public void write(Object object, File file) throws IllegalAccessException, IOException {
-        try (FileWriter fileWriter = new FileWriter(file)) {
-            JsonWriter jsonWriter = new JsonWriter(object);
+    public CompletableFuture<Long> writeAsync(Object object, AsynchronousFileChannel channel, long position) {
+        var sink = new ChannelSink();
+        try {
+            write(object, handleClassRestrictions(object), sink);
+        } catch (IOException | RuntimeException e) {
+            sink.close();
+            return CompletableFuture.failedFuture(e);
+        }
+        return sink.writeTo(channel, position);
+    }
 
-            handleClassRestrictions(object);
+    /**
+     * Serializes an object incrementally to a channel through direct buffers, the channel is not closed.
+     *
+     * @param object  an object to save
+     * @param plan    serialization plan of object's class
+     * @param channel a channel where an object is going to be saved
+     * @throws IOException if there are problems with IO channels.
+     */
+    private void write(Object object, ClassPlan plan, WritableByteChannel channel) throws IOException {
+        try (var sink = new ChannelSink(channel)) {
+            write(object, plan, sink);
+        }
+    }
 
-            fileWriter.write(jsonWriter.formatObject(object.getClass().getAnnotation(Exported.class)
-                    .nullHandling().isIncluded()));
+    @Override
+    public void writeAll(Iterator<?> objects, OutputStream outputStream, SequenceFormat format) throws IOException {
+        Objects.requireNonNull(format, "format");
+
+        var context = contexts.acquire();
+        try {
+            context.formatSequence(objects, format, outputStream);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Serializes an element of a sequence to a buffer kept in memory, e.g. to write it later in order with others.
+     * JSON pointers of references and the maximum size are counted from the start of the sequence.
+     *
+     * @param object an object to save, null is written as null
+     * @param index  index of an element of a JSON array, or -1 for a line of newline-delimited JSON
+     * @param offset number of bytes of a sequence written before the element
+     * @return output with JSON of an object that must be released
+     */
+    JsonOutput encode(Object object, int index, long offset) {
+        var output = new JsonOutput();
+        if (object == null) {
+            output.write("null");
+            return output;
+        }
 
+        var context = contexts.acquire();
+        try {
+            context.formatElement(object, handleClassRestrictions(object).nullHandling, output, index, offset);
+            return output;
+        } catch (RuntimeException | Error e) {
+            output.release();
+            throw e;
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Serializes an object incrementally to a stream in UTF-8, the stream is flushed but not closed.
+     *
+     * @param object an object to save
+     * @param plan   serialization plan of object's class
+     * @param stream a stream where an object is going to be saved
+     * @throws IOException if there are problems with IO streams.
+     */
+    private void write(Object object, ClassPlan plan, OutputStream stream) throws IOException {
+        var context = contexts.acquire();
+        try {
+            context.formatObject(object, plan.nullHandling, stream);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            contexts.release(context);
         }
     }
 
@@ -56,19 +230,24 @@ public class DefaultSerializer implements Serializer, Restriction {
      * Checks object's class for every needed restriction.
      *
      * @param object an object to check
+     * @return serialization plan of object's class
      */
-    private void handleClassRestrictions(Object object) {
-        if (!object.getClass().isAnnotationPresent(Exported.class)) {
+    private ClassPlan handleClassRestrictions(Object object) {
+        var plan = ClassPlan.of(object.getClass());
+
+        if (!plan.exported) {
             throw new ExportedException(
                     String.format("The object %s you want to write is not @Exported",
-                            object.getClass().getSimpleName()));
+                            plan.simpleName));
         }
 
-        if (!hasConstructor(object) && !object.getClass().isRecord()) {
+        if (!plan.constructible) {
             throw new PublicConstructorException(
                     String.format("There is no public constructor with no parameters for class %s",
-                            object.getClass().getSimpleName()));
+                            plan.simpleName));
         }
+
+        return plan;
     }
 
     @Override
@@ -0,0 +1,32 @@
+package implementation;
+
+/**
+ * Constants of enums encoded once to UTF-8 as quoted and escaped JSON strings, kept per enum class.
+ * Constants are written by their names, so they are read back with Enum.valueOf.
+ */
+final class EnumNames {
+    private static final ClassValue<byte[][]> NAMES = new ClassValue<>() {
+        @Override
+        protected byte[][] computeValue(Class<?> type) {
+            var constants = type.getEnumConstants();
+            var names = new byte[constants.length][];
+            for (int i = 0; i < constants.length; i++) {
+                names[i] = JsonOutput.encodeString(((Enum<?>) constants[i]).name());
+            }
+            return names;
+        }
+    };
+
+    private EnumNames() {
+    }
+
+    /**
+     * Gets an encoded name of an enum constant.
+     *
+     * @param constant some constant
+     * @return quoted name in UTF-8
+     */
+    static byte[] nameOf(Enum<?> constant) {
+        return NAMES.get(constant.getDeclaringClass())[constant.ordinal()];
+    }
+}
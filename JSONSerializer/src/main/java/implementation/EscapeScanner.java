@@ -0,0 +1,44 @@
+package implementation;
+
+/**
+ * Finds chars of a string that cannot be copied to JSON as they are.
+ * Such chars are quotes, backslashes, control characters, and chars that are not ASCII
+ * and take more than one byte in UTF-8.
+ */
+interface EscapeScanner {
+    /**
+     * Name of a system property that turns the Vector API scanner off if set to false.
+     */
+    String VECTOR_PROPERTY = "json.serializer.vector";
+
+    /**
+     * Finds the first char that cannot be copied as it is.
+     *
+     * @param chars chars of a string
+     * @param from  index of the first char to check
+     * @param to    index after the last char to check
+     * @return index of the first such char, or {@code to} if all chars can be copied
+     */
+    int scan(char[] chars, int from, int to);
+
+    /**
+     * Gets the fastest scanner available at runtime.
+     * The Vector API scanner is used if the jdk.incubator.vector module is added to the JVM,
+     * e.g. with {@code --add-modules jdk.incubator.vector}, otherwise, the scalar one.
+     *
+     * @return scanner
+     */
+    static EscapeScanner best() {
+        if (Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (EscapeScanner) Class.forName("implementation.VectorEscapeScanner")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // The module cannot be used, fall through to the scalar scanner.
+            }
+        }
+        return new ScalarEscapeScanner();
+    }
+}
@@ -0,0 +1,128 @@
+package implementation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * Reads a single field through method handles bound once per field.
+ * Primitive fields are read through type-specific getters, so their values are never boxed.
+ */
+final class FieldAccessor {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * Getter of type (Object)Object, boxes primitive values.
+     */
+    private final MethodHandle getter;
+
+    /**
+     * Getter of type (Object)primitive for primitive fields, otherwise, null.
+     */
+    private final MethodHandle primitiveGetter;
+
+    /**
+     * Binds an accessible field.
+     *
+     * @param field a field with accessible flag set
+     * @throws IllegalAccessException if a field is not accessible
+     */
+    FieldAccessor(Field field) throws IllegalAccessException {
+        var handle = LOOKUP.unreflectGetter(field);
+
+        getter = handle.asType(MethodType.methodType(Object.class, Object.class));
+        primitiveGetter = field.getType().isPrimitive()
+                ? handle.asType(MethodType.methodType(field.getType(), Object.class))
+                : null;
+    }
+
+    Object get(Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    int getInt(Object target) {
+        try {
+            return (int) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    long getLong(Object target) {
+        try {
+            return (long) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    double getDouble(Object target) {
+        try {
+            return (double) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    float getFloat(Object target) {
+        try {
+            return (float) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    boolean getBoolean(Object target) {
+        try {
+            return (boolean) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    char getChar(Object target) {
+        try {
+            return (char) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    short getShort(Object target) {
+        try {
+            return (short) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    byte getByte(Object target) {
+        try {
+            return (byte) primitiveGetter.invokeExact(target);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Rethrows an exception of a getter. Field getters only throw unchecked exceptions,
+     * e.g. ClassCastException for a wrong target.
+     *
+     * @param e thrown exception
+     * @return never returns normally
+     */
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,212 @@
+package implementation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of JSON of immutable objects, records and classes marked as @Immutable,
+ * shared by all calls of a serializer. An object written again is copied to the output as encoded bytes.
+ * <p>
+ * Objects are keyed by identity, for reference data shared between parents, or by equals,
+ * for equal objects created separately. The cache is split into stripes by hash,
+ * and every stripe evicts its least recently used fragment, so threads rarely wait for each other.
+ * A cache must only be used by serializers with the same settings, and objects of records
+ * with mutable components must not change while they are cached.
+ */
+public final class FragmentCache {
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * Entries per stripe, a stripe is used for every 64 entries up to MAX_STRIPES.
+     */
+    private static final int STRIPE_SIZE = 64;
+
+    private final boolean byIdentity;
+
+    private final int maximumSize;
+
+    private final Stripe[] stripes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private FragmentCache(int maximumSize, boolean byIdentity) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("The maximum size %d of a fragment cache must be positive", maximumSize));
+        }
+        this.byIdentity = byIdentity;
+        this.maximumSize = maximumSize;
+
+        var count = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maximumSize / STRIPE_SIZE)));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * Creates a cache that finds an object only by the same reference, without calling equals or hashCode.
+     *
+     * @param maximumSize number of fragments a cache holds at most
+     * @return new cache
+     * @throws IllegalArgumentException if a size is not positive
+     */
+    public static FragmentCache byIdentity(int maximumSize) {
+        return new FragmentCache(maximumSize, true);
+    }
+
+    /**
+     * Creates a cache that finds an object by equals and hashCode, so equal records share a fragment.
+     *
+     * @param maximumSize number of fragments a cache holds at most
+     * @return new cache
+     * @throws IllegalArgumentException if a size is not positive
+     */
+    public static FragmentCache byEquality(int maximumSize) {
+        return new FragmentCache(maximumSize, false);
+    }
+
+    /**
+     * Gets a number of writes of objects that were copied from the cache.
+     *
+     * @return number of hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets a number of writes of objects that were not in the cache and were formatted.
+     *
+     * @return number of misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets a number of cached fragments.
+     *
+     * @return current size
+     */
+    public int size() {
+        var size = 0;
+        for (var stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets a number of fragments a cache holds at most.
+     *
+     * @return maximum size
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Removes all fragments, counters are kept.
+     */
+    public void clear() {
+        for (var stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Gets a fragment of an object and counts a hit or a miss.
+     *
+     * @param object  written object
+     * @param variant flags an object was written with, fragments of different variants differ
+     * @return encoded JSON of an object, or null if it is not cached
+     */
+    byte[] get(Object object, int variant) {
+        var key = new Key(object, variant, byIdentity);
+        var stripe = stripeOf(key);
+
+        byte[] fragment;
+        synchronized (stripe) {
+            fragment = stripe.get(key);
+        }
+
+        (fragment != null ? hits : misses).increment();
+        return fragment;
+    }
+
+    /**
+     * Caches a fragment of an object, evicting the least recently used fragment of a stripe if it is full.
+     *
+     * @param object   written object
+     * @param variant  flags an object was written with
+     * @param fragment encoded JSON of an object
+     */
+    void put(Object object, int variant, byte[] fragment) {
+        var key = new Key(object, variant, byIdentity);
+        var stripe = stripeOf(key);
+        synchronized (stripe) {
+            stripe.put(key, fragment);
+        }
+    }
+
+    private Stripe stripeOf(Key key) {
+        var hash = key.hash;
+        return stripes[(hash ^ hash >>> 16) & stripes.length - 1];
+    }
+
+    /**
+     * Part of a cache that keeps its entries in access order.
+     */
+    private static final class Stripe extends LinkedHashMap<Key, byte[]> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Object of a fragment with the flags it was written with, compared by identity or by equals.
+     */
+    private static final class Key {
+        private final Object object;
+
+        private final int variant;
+
+        private final boolean byIdentity;
+
+        private final int hash;
+
+        Key(Object object, int variant, boolean byIdentity) {
+            this.object = object;
+            this.variant = variant;
+            this.byIdentity = byIdentity;
+            this.hash = (byIdentity ? System.identityHashCode(object) : object.hashCode()) * 31 + variant;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && variant == key.variant &&
+                    (byIdentity ? object == key.object : object.equals(key.object));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
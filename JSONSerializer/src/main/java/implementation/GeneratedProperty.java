@@ -0,0 +1,15 @@
+package implementation;
+
+/**
+ * Description of a property of an @Exported class, written by the annotation processor
+ * so that the serializer does not have to find it with reflection.
+ *
+ * @param name         name of a property, taking @PropertyName into account
+ * @param type         declared type of a field
+ * @param elementType  generic type of collection elements or map values, null if a field is neither
+ * @param typeExported true if a declared type of a field is marked as @Exported
+ * @param datePattern  pattern of @DateFormat, null if a field is not marked as @DateFormat
+ */
+public record GeneratedProperty(String name, Class<?> type, Class<?> elementType, boolean typeExported,
+                                String datePattern) {
+}
@@ -0,0 +1,38 @@
+package implementation;
+
+/**
+ * Writer of an @Exported class generated at compile time by the annotation processor.
+ * It describes properties of a class and reads them without reflection.
+ */
+public interface GeneratedWriter extends TypeWriter {
+    /**
+     * Gets a class this writer writes.
+     *
+     * @return written class
+     */
+    Class<?> type();
+
+    /**
+     * Checks if a class uses null values for serialization.
+     *
+     * @return true if null values are included, otherwise, false
+     */
+    boolean nullHandling();
+
+    /**
+     * Gets handling of NaN and infinite numbers of a class.
+     *
+     * @return handling of NaN and infinite numbers
+     */
+    default NonFiniteHandling nonFiniteHandling() {
+        return NonFiniteHandling.LITERAL;
+    }
+
+    /**
+     * Gets properties in the order they are passed to a sink,
+     * property indexes of {@link PropertySink#writeValue} refer to this array.
+     *
+     * @return serializable properties of a class
+     */
+    GeneratedProperty[] properties();
+}
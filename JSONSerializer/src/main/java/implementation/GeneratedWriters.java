@@ -0,0 +1,44 @@
+package implementation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Writers generated at compile time by the annotation processor, loaded once with ServiceLoader.
+ * The processor registers them in META-INF/services/implementation.GeneratedWriter.
+ */
+final class GeneratedWriters {
+    private static final Map<Class<?>, GeneratedWriter> WRITERS = load();
+
+    private GeneratedWriters() {
+    }
+
+    /**
+     * Gets a generated writer of a class.
+     *
+     * @param type some class
+     * @return generated writer, or null if there is no writer for a class
+     */
+    static GeneratedWriter writerOf(Class<?> type) {
+        return WRITERS.get(type);
+    }
+
+    private static Map<Class<?>, GeneratedWriter> load() {
+        Map<Class<?>, GeneratedWriter> writers = new HashMap<>();
+        var iterator = ServiceLoader.load(GeneratedWriter.class).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                var writer = iterator.next();
+                writers.put(writer.type(), writer);
+            } catch (ServiceConfigurationError e) {
+                // A stale or broken registration only skips its writer, the class is written reflectively.
+            }
+        }
+        return Map.copyOf(writers);
+    }
+}
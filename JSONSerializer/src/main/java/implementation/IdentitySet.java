@@ -0,0 +1,111 @@
+package implementation;
+
+import java.util.Arrays;
+
+/**
+ * Set of objects compared by identity, an open-addressing table with linear probing.
+ * It holds the objects a writer is inside of, so it grows to the depth of a document and is reused.
+ */
+final class IdentitySet {
+    private Object[] table = new Object[16];
+
+    private int size;
+
+    /**
+     * Adds an object.
+     *
+     * @param object some object, not null
+     * @return true if an object was added, false if it is already in the set
+     */
+    boolean add(Object object) {
+        if ((size + 1) * 2 > table.length) {
+            grow();
+        }
+
+        var mask = table.length - 1;
+        var i = indexOf(object, mask);
+        while (table[i] != null) {
+            if (table[i] == object) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = object;
+        size++;
+        return true;
+    }
+
+    /**
+     * Checks if an object is in the set.
+     *
+     * @param object some object
+     * @return true if the same object was added and not removed, otherwise, false
+     */
+    boolean contains(Object object) {
+        if (size == 0) {
+            return false;
+        }
+
+        var mask = table.length - 1;
+        for (var i = indexOf(object, mask); table[i] != null; i = (i + 1) & mask) {
+            if (table[i] == object) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes an object, entries after it are shifted back, so lookups never meet a gap.
+     *
+     * @param object some object
+     */
+    void remove(Object object) {
+        var mask = table.length - 1;
+        var i = indexOf(object, mask);
+        while (table[i] != object) {
+            if (table[i] == null) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        table[i] = null;
+        size--;
+        for (var j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+            var home = indexOf(table[j], mask);
+            var between = j > i ? home > i && home <= j : home > i || home <= j;
+            if (!between) {
+                table[i] = table[j];
+                table[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    /**
+     * Removes all objects, a set that is already empty is not scanned.
+     */
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(table, null);
+            size = 0;
+        }
+    }
+
+    private void grow() {
+        var old = table;
+        table = new Object[old.length * 2];
+        size = 0;
+        for (var object : old) {
+            if (object != null) {
+                add(object);
+            }
+        }
+    }
+
+    private static int indexOf(Object object, int mask) {
+        var hash = System.identityHashCode(object);
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,568 @@
+package implementation;
+
+import exceptions.NonFiniteNumberException;
+
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Writes JSON token by token.
+ * The generator tracks nesting of objects and arrays and writes every comma
+ * when the next name or value is written, so a document never needs to be fixed afterwards.
+ * It is used by JsonWriter, and by classes implementing JsonWritable to write themselves.
+ */
+public final class JsonGenerator implements AutoCloseable {
+    private static final int ROOT = 0;
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+
+    /**
+     * Output JSON is written to.
+     */
+    private JsonOutput output;
+
+    /**
+     * Kinds of open contexts, the root context is at index 0.
+     */
+    private int[] contexts = new int[16];
+
+    /**
+     * Flags of open contexts that already have a name or a value written.
+     */
+    private boolean[] hasEntries = new boolean[16];
+
+    /**
+     * Index of the current context.
+     */
+    private int depth;
+
+    /**
+     * True if a name is written in the current object and its value is expected.
+     */
+    private boolean nameWritten;
+
+    /**
+     * Handling of NaN and infinite numbers.
+     */
+    private NonFiniteHandling nonFiniteHandling = NonFiniteHandling.LITERAL;
+
+    /**
+     * Creates a generator that writes UTF-8 to a stream.
+     * The generator buffers JSON, call {@link #flush()} or {@link #close()} when a document is written.
+     *
+     * @param stream a stream where JSON is written
+     */
+    public JsonGenerator(OutputStream stream) {
+        this(new JsonOutput(stream));
+    }
+
+    JsonGenerator(JsonOutput output) {
+        this.output = output;
+    }
+
+    /**
+     * Switches a generator to another output, so its stack of contexts is reused by the next document.
+     *
+     * @param output output the next document is written to
+     * @return this generator
+     */
+    JsonGenerator reset(JsonOutput output) {
+        this.output = output;
+        depth = 0;
+        hasEntries[0] = false;
+        nameWritten = false;
+        nonFiniteHandling = NonFiniteHandling.LITERAL;
+        return this;
+    }
+
+    /**
+     * Gets an output this generator writes to.
+     *
+     * @return current output
+     */
+    JsonOutput output() {
+        return output;
+    }
+
+    public void beginObject() {
+        beforeValue();
+        push(OBJECT);
+        output.write('{');
+    }
+
+    public void endObject() {
+        pop(OBJECT);
+        output.write('}');
+    }
+
+    public void beginArray() {
+        beforeValue();
+        push(ARRAY);
+        output.write('[');
+    }
+
+    public void endArray() {
+        pop(ARRAY);
+        output.write(']');
+    }
+
+    /**
+     * Writes a name of the next property of the current object.
+     *
+     * @param name name of a property
+     */
+    public void writeName(String name) {
+        beforeName();
+        output.writeQuoted(name);
+        output.write(':');
+    }
+
+    /**
+     * Writes a string value, quotes, backslashes and control characters are escaped.
+     *
+     * @param value string to write, null is written as null
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.writeQuoted(value);
+    }
+
+    public void writeNumber(int value) {
+        beforeValue();
+        output.write(value);
+    }
+
+    public void writeNumber(long value) {
+        beforeValue();
+        output.write(value);
+    }
+
+    /**
+     * Writes a double number with the shortest digits that read back as the same number.
+     * NaN and infinite numbers are written according to {@link #getNonFiniteHandling()}.
+     *
+     * @param value number to write
+     */
+    public void writeNumber(double value) {
+        if (Double.isFinite(value)) {
+            beforeValue();
+            output.write(value);
+        } else {
+            writeNonFinite(value);
+        }
+    }
+
+    /**
+     * Writes a float number with the shortest digits that read back as the same number.
+     * NaN and infinite numbers are written according to {@link #getNonFiniteHandling()}.
+     *
+     * @param value number to write
+     */
+    public void writeNumber(float value) {
+        if (Float.isFinite(value)) {
+            beforeValue();
+            output.write(value);
+        } else {
+            writeNonFinite(value);
+        }
+    }
+
+    public void writeBoolean(boolean value) {
+        beforeValue();
+        output.write(value);
+    }
+
+    public void writeNull() {
+        beforeValue();
+        output.write("null");
+    }
+
+    /**
+     * Writes a value as is, a caller is responsible for it to be valid JSON.
+     *
+     * @param value text of a value
+     */
+    public void writeRawValue(String value) {
+        beforeValue();
+        output.write(value);
+    }
+
+    /**
+     * Writes an array of numbers without boxing them.
+     *
+     * @param values numbers to write, null is written as null
+     */
+    public void writeArray(int[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(values[i]);
+        }
+        output.write(']');
+    }
+
+    /**
+     * Writes an array of numbers without boxing them.
+     *
+     * @param values numbers to write, null is written as null
+     */
+    public void writeArray(long[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(values[i]);
+        }
+        output.write(']');
+    }
+
+    /**
+     * Writes an array of numbers without boxing them,
+     * NaN and infinite numbers are written according to {@link #getNonFiniteHandling()}.
+     *
+     * @param values numbers to write, null is written as null
+     */
+    public void writeArray(double[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            if (Double.isFinite(values[i])) {
+                output.write(values[i]);
+            } else {
+                writeNonFiniteValue(values[i]);
+            }
+        }
+        output.write(']');
+    }
+
+    /**
+     * Writes an array of numbers without boxing them,
+     * NaN and infinite numbers are written according to {@link #getNonFiniteHandling()}.
+     *
+     * @param values numbers to write, null is written as null
+     */
+    public void writeArray(float[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            if (Float.isFinite(values[i])) {
+                output.write(values[i]);
+            } else {
+                writeNonFiniteValue(values[i]);
+            }
+        }
+        output.write(']');
+    }
+
+    /**
+     * Writes an array of numbers without boxing them.
+     *
+     * @param values numbers to write, null is written as null
+     */
+    public void writeArray(short[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(values[i]);
+        }
+        output.write(']');
+    }
+
+    /**
+     * Writes an array of bytes as an array of numbers, see {@link #writeBase64(byte[])} for a compact form.
+     *
+     * @param values numbers to write, null is written as null
+     */
+    public void writeArray(byte[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(values[i]);
+        }
+        output.write(']');
+    }
+
+    /**
+     * Writes an array of booleans without boxing them.
+     *
+     * @param values booleans to write, null is written as null
+     */
+    public void writeArray(boolean[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.write('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                output.write(',');
+            }
+            output.write(values[i]);
+        }
+        output.write(']');
+    }
+
+    /**
+     * Writes bytes as a string in standard base64 with padding.
+     *
+     * @param values bytes to write, null is written as null
+     */
+    public void writeBase64(byte[] values) {
+        if (values == null) {
+            writeNull();
+            return;
+        }
+
+        beforeValue();
+        output.writeBase64(values);
+    }
+
+    public NonFiniteHandling getNonFiniteHandling() {
+        return nonFiniteHandling;
+    }
+
+    public void setNonFiniteHandling(NonFiniteHandling nonFiniteHandling) {
+        this.nonFiniteHandling = nonFiniteHandling;
+    }
+
+    /**
+     * Writes all buffered JSON to the target stream and flushes it.
+     *
+     * @throws UncheckedIOException if the stream fails
+     */
+    public void flush() {
+        output.flush();
+    }
+
+    /**
+     * Flushes buffered JSON and gives the buffer of the generator back to a pool.
+     * The target stream is not closed.
+     *
+     * @throws UncheckedIOException if the stream fails
+     */
+    @Override
+    public void close() {
+        try {
+            output.flush();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Gets a number of bytes written to the output of the generator, including flushed ones.
+     *
+     * @return size of a document so far
+     */
+    long written() {
+        return output.written();
+    }
+
+    /**
+     * Writes a name that is already encoded to UTF-8, quoted and followed by a colon.
+     *
+     * @param name name in the form {@code "name":}
+     */
+    void writeEncodedName(byte[] name) {
+        beforeName();
+        output.write(name, 0, name.length);
+    }
+
+    /**
+     * Writes a value that is already encoded to UTF-8, e.g. a cached fragment of an object.
+     *
+     * @param value encoded JSON of a value
+     */
+    void writeEncodedValue(byte[] value) {
+        beforeValue();
+        output.write(value, 0, value.length);
+    }
+
+    /**
+     * Writes a date or a time as a string formatted with a compiled pattern.
+     *
+     * @param writer compiled pattern
+     * @param value  value of a field
+     */
+    void writeDate(DateFormatWriter writer, Object value) {
+        beforeValue();
+        output.writeQuoted(writer, value);
+    }
+
+    /**
+     * Writes elements of an array that were written to another output, separated by commas.
+     *
+     * @param fragment output with elements
+     * @param from     index of the first byte of the elements
+     */
+    void writeElements(JsonOutput fragment, int from) {
+        if (fragment.size() == from) {
+            return;
+        }
+
+        beforeValue();
+        fragment.copyTo(output, from);
+    }
+
+    /**
+     * Writes a label of the next element of the current array, as in {@code ["Label":{...}]}.
+     * Objects in collections of custom types are labeled with their class names.
+     *
+     * @param label label of an element encoded to UTF-8 in the form {@code "Label":}
+     */
+    void writeLabel(byte[] label) {
+        if (contexts[depth] != ARRAY || nameWritten) {
+            throw new IllegalStateException("A label can only be written before an element of an array");
+        }
+
+        separate();
+        output.write(label, 0, label.length);
+        nameWritten = true;
+    }
+
+    private void writeNonFinite(double value) {
+        if (nonFiniteHandling == NonFiniteHandling.FAIL) {
+            throw new NonFiniteNumberException(
+                    String.format("The number %s cannot be written to JSON", value));
+        }
+
+        beforeValue();
+        writeNonFiniteValue(value);
+    }
+
+    /**
+     * Writes NaN or an infinite number after a separator is written.
+     *
+     * @param value non-finite number
+     */
+    private void writeNonFiniteValue(double value) {
+        switch (nonFiniteHandling) {
+            case LITERAL -> output.write(value);
+            case STRING -> {
+                output.write('"');
+                output.write(value);
+                output.write('"');
+            }
+            case NULL -> output.write("null");
+            case FAIL -> throw new NonFiniteNumberException(
+                    String.format("The number %s cannot be written to JSON", value));
+        }
+    }
+
+    private void beforeName() {
+        if (contexts[depth] != OBJECT || nameWritten) {
+            throw new IllegalStateException("A name can only be written inside an object before a value");
+        }
+
+        separate();
+        nameWritten = true;
+    }
+
+    private void beforeValue() {
+        switch (contexts[depth]) {
+            case OBJECT -> {
+                if (!nameWritten) {
+                    throw new IllegalStateException("A value inside an object must follow a name");
+                }
+                nameWritten = false;
+            }
+            case ARRAY -> {
+                if (nameWritten) {
+                    nameWritten = false;
+                } else {
+                    separate();
+                }
+            }
+            default -> {
+                if (hasEntries[depth]) {
+                    throw new IllegalStateException("A document can only have one root value");
+                }
+                hasEntries[depth] = true;
+            }
+        }
+    }
+
+    /**
+     * Writes a comma if the current context already has entries.
+     */
+    private void separate() {
+        if (hasEntries[depth]) {
+            output.write(',');
+        } else {
+            hasEntries[depth] = true;
+        }
+    }
+
+    private void push(int context) {
+        if (++depth == contexts.length) {
+            contexts = Arrays.copyOf(contexts, depth * 2);
+            hasEntries = Arrays.copyOf(hasEntries, depth * 2);
+        }
+        contexts[depth] = context;
+        hasEntries[depth] = false;
+    }
+
+    private void pop(int context) {
+        if (contexts[depth] != context || nameWritten) {
+            throw new IllegalStateException(context == OBJECT
+                    ? "There is no object to end"
+                    : "There is no array to end");
+        }
+        depth--;
+    }
+}
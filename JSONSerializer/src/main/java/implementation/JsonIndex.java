@@ -0,0 +1,634 @@
+package implementation;
+
+import exceptions.JsonParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Index of a JSON document in UTF-8 for reading a few values of it without reading the whole document.
+ * The index is built with one structural pass that finds where names and values start and records them
+ * on a tape, an array of longs. Objects and arrays are linked to their ends, so a value is skipped in one step.
+ * Names are compared with encoded bytes, and values are decoded only when they are asked for.
+ * <p>
+ * Like JsonParser, the index reads what older versions of the serializer wrote: labels of array elements
+ * are skipped, and unquoted words are strings. The structure of a document is checked when the index is built,
+ * values are checked when they are decoded. An index is immutable and can be read from many threads.
+ * Documents of up to 2 GB with up to 2^28 names and values can be indexed.
+ */
+public final class JsonIndex {
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+    private static final int END = 3;
+    private static final int NAME = 4;
+    private static final int STRING = 5;
+    private static final int NUMBER = 6;
+    private static final int TRUE = 7;
+    private static final int FALSE = 8;
+    private static final int NULL = 9;
+
+    /**
+     * Payload of a name or a string with escapes.
+     */
+    private static final int ESCAPED = 1;
+
+    private static final int MAX_ENTRIES = 1 << 28;
+
+    /**
+     * States of the current object or array while the index is built.
+     */
+    private static final int EMPTY = 0;
+    private static final int AFTER_COMMA = 1;
+    private static final int AFTER_NAME = 2;
+    private static final int AFTER_VALUE = 3;
+
+    private static final DefaultDeserializer DESERIALIZER = new DefaultDeserializer();
+
+    /**
+     * Document starting at index 0.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * Entries of the tape, a kind in 4 high bits, a payload in the next 28 bits, and an offset in 32 low bits.
+     * The payload of an object or an array is the index of its end, the payload of an end is the index of its start.
+     */
+    private long[] tape;
+
+    private int size;
+
+    /**
+     * True if the last scanned string has escapes.
+     */
+    private boolean escaped;
+
+    private JsonIndex(ByteBuffer data) {
+        this.data = data;
+        this.tape = new long[Math.max(16, Math.min(data.limit() / 8, 1 << 20))];
+        build();
+    }
+
+    /**
+     * Builds an index of a document in an array.
+     *
+     * @param json JSON in UTF-8
+     * @return index of a document
+     * @throws JsonParseException if the structure of a document is malformed
+     */
+    public static JsonIndex of(byte[] json) {
+        return new JsonIndex(ByteBuffer.wrap(json));
+    }
+
+    /**
+     * Builds an index of remaining bytes of a buffer, the buffer must not be changed while the index is used.
+     *
+     * @param json buffer with JSON in UTF-8, a heap, direct or mapped one
+     * @return index of a document
+     * @throws JsonParseException if the structure of a document is malformed
+     */
+    public static JsonIndex of(ByteBuffer json) {
+        return new JsonIndex(json.slice());
+    }
+
+    /**
+     * Maps a file to memory and builds an index of it, pages of the file are read when they are touched.
+     *
+     * @param file a file with JSON in UTF-8
+     * @return index of a document
+     * @throws IOException              if a file cannot be mapped
+     * @throws IllegalArgumentException if a file is larger than 2 GB
+     * @throws JsonParseException       if the structure of a document is malformed
+     */
+    public static JsonIndex map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                        String.format("The file %s of %d bytes is too large to index", file, length));
+            }
+            return new JsonIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    /**
+     * Gets the root value of a document.
+     *
+     * @return root value
+     */
+    public Value root() {
+        return new Value(0);
+    }
+
+    /**
+     * Finds a value by a JSON pointer from the root, e.g. {@code /items/0/sku}.
+     *
+     * @param pointer JSON pointer, empty for the root
+     * @return found value, or null if there is no such value
+     * @throws IllegalArgumentException if a pointer does not start with '/'
+     */
+    public Value at(String pointer) {
+        return root().at(pointer);
+    }
+
+    /**
+     * Value of a document, a view of the index that decodes nothing until it is asked for.
+     */
+    public final class Value {
+        /**
+         * Index of a value on the tape.
+         */
+        private final int index;
+
+        private Value(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Gets a type of a value, BEGIN_OBJECT for objects and BEGIN_ARRAY for arrays.
+         *
+         * @return token a value starts with
+         */
+        public JsonParser.Token type() {
+            return switch (kind(index)) {
+                case OBJECT -> JsonParser.Token.BEGIN_OBJECT;
+                case ARRAY -> JsonParser.Token.BEGIN_ARRAY;
+                case STRING -> JsonParser.Token.STRING;
+                case NUMBER -> JsonParser.Token.NUMBER;
+                case TRUE -> JsonParser.Token.TRUE;
+                case FALSE -> JsonParser.Token.FALSE;
+                default -> JsonParser.Token.NULL;
+            };
+        }
+
+        /**
+         * Checks if a value is null.
+         *
+         * @return true for null
+         */
+        public boolean isNull() {
+            return kind(index) == NULL;
+        }
+
+        /**
+         * Finds a property of an object, names are compared in UTF-8 without decoding them.
+         *
+         * @param name name of a property
+         * @return value of a property, or null if a value is not an object or has no such property
+         */
+        public Value get(String name) {
+            if (kind(index) != OBJECT) {
+                return null;
+            }
+
+            var key = name.getBytes(StandardCharsets.UTF_8);
+            var i = index + 1;
+            while (kind(i) != END) {
+                if (nameEquals(i, key, name)) {
+                    return new Value(i + 1);
+                }
+                i = next(i + 1);
+            }
+            return null;
+        }
+
+        /**
+         * Finds an element of an array.
+         *
+         * @param position index of an element
+         * @return element, or null if a value is not an array or has no such element
+         */
+        public Value get(int position) {
+            if (kind(index) != ARRAY || position < 0) {
+                return null;
+            }
+
+            var i = index + 1;
+            for (int j = 0; j < position && kind(i) != END; j++) {
+                i = next(i);
+            }
+            return kind(i) == END ? null : new Value(i);
+        }
+
+        /**
+         * Counts properties of an object or elements of an array.
+         *
+         * @return number of properties or elements, 0 for other values
+         */
+        public int size() {
+            var kind = kind(index);
+            if (kind != OBJECT && kind != ARRAY) {
+                return 0;
+            }
+
+            var count = 0;
+            var i = index + 1;
+            while (kind(i) != END) {
+                i = next(kind == OBJECT ? i + 1 : i);
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Finds a value by a JSON pointer relative to this value.
+         * In a pointer, {@code ~1} stands for '/' and {@code ~0} stands for '~'.
+         *
+         * @param pointer JSON pointer, empty for this value
+         * @return found value, or null if there is no such value
+         * @throws IllegalArgumentException if a pointer does not start with '/'
+         */
+        public Value at(String pointer) {
+            if (pointer.isEmpty()) {
+                return this;
+            }
+            if (pointer.charAt(0) != '/') {
+                throw new IllegalArgumentException(
+                        String.format("The JSON pointer %s must start with '/'", pointer));
+            }
+
+            var value = this;
+            var start = 1;
+            while (value != null) {
+                var end = pointer.indexOf('/', start);
+                if (end < 0) {
+                    end = pointer.length();
+                }
+
+                var token = pointer.substring(start, end);
+                if (token.indexOf('~') >= 0) {
+                    token = token.replace("~1", "/").replace("~0", "~");
+                }
+                value = kind(value.index) == ARRAY ? value.get(arrayIndex(token)) : value.get(token);
+
+                if (end == pointer.length()) {
+                    return value;
+                }
+                start = end + 1;
+            }
+            return null;
+        }
+
+        /**
+         * Decodes a string, or gets text of a number.
+         *
+         * @return decoded text
+         * @throws JsonParseException if a value is not a string or a number, or is malformed
+         */
+        public String asString() {
+            var kind = kind(index);
+            if (kind != STRING && kind != NUMBER) {
+                throw error("Expected a string but was " + type(), offset(index));
+            }
+            try (var parser = parserAt(offset(index))) {
+                return parser.getString();
+            }
+        }
+
+        /**
+         * Decodes a number as an int.
+         *
+         * @return value of a number
+         * @throws JsonParseException if a value is not an int
+         */
+        public int asInt() {
+            try (var parser = parserAt(offset(index))) {
+                return parser.getInt();
+            }
+        }
+
+        /**
+         * Decodes a number as a long.
+         *
+         * @return value of a number
+         * @throws JsonParseException if a value is not a long
+         */
+        public long asLong() {
+            try (var parser = parserAt(offset(index))) {
+                return parser.getLong();
+            }
+        }
+
+        /**
+         * Decodes a number, or a string with NaN or an infinite number, as a double.
+         *
+         * @return value of a number
+         * @throws JsonParseException if a value is not a number
+         */
+        public double asDouble() {
+            try (var parser = parserAt(offset(index))) {
+                return parser.getDouble();
+            }
+        }
+
+        /**
+         * Gets a boolean.
+         *
+         * @return value of a boolean
+         * @throws JsonParseException if a value is not a boolean
+         */
+        public boolean asBoolean() {
+            var kind = kind(index);
+            if (kind != TRUE && kind != FALSE) {
+                throw error("Expected a boolean but was " + type(), offset(index));
+            }
+            return kind == TRUE;
+        }
+
+        /**
+         * Reads an object into an @Exported class or a record with DefaultDeserializer,
+         * only bytes of this object are parsed.
+         *
+         * @param type class of an object
+         * @param <T>  type of an object
+         * @return read object
+         * @throws JsonParseException if a value is not an object of a class
+         */
+        public <T> T read(Class<T> type) {
+            if (kind(index) != OBJECT) {
+                throw error("Expected an object but was " + type(), offset(index));
+            }
+            var start = offset(index);
+            return DESERIALIZER.read(data.slice(start, end(index) - start), type);
+        }
+
+        /**
+         * Gets JSON of a value as it is in a document.
+         *
+         * @return JSON text of a value
+         */
+        @Override
+        public String toString() {
+            var start = offset(index);
+            var bytes = new byte[end(index) - start];
+            data.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Builds the tape with one pass over a document.
+     */
+    private void build() {
+        var limit = data.limit();
+        var open = new int[16];
+        var depth = 0;
+        var state = EMPTY;
+
+        var i = skipWhitespace(0, limit);
+        while (i < limit) {
+            var c = data.get(i);
+            var context = depth == 0 ? 0 : kind(open[depth - 1]);
+
+            if (c == '}' || c == ']') {
+                if (context != (c == '}' ? OBJECT : ARRAY) || state != EMPTY && state != AFTER_VALUE) {
+                    throw error(String.format("Unexpected '%c'", (char) c), i);
+                }
+                var start = open[--depth];
+                tape[start] |= (long) size << 32;
+                append(END, start, i);
+                state = AFTER_VALUE;
+                i = skipWhitespace(i + 1, limit);
+                continue;
+            }
+
+            if (c == ',') {
+                if (depth == 0 || state != AFTER_VALUE) {
+                    throw error("Unexpected ','", i);
+                }
+                state = AFTER_COMMA;
+                i = skipWhitespace(i + 1, limit);
+                continue;
+            }
+
+            if (context == OBJECT && state != AFTER_NAME) {
+                if (state == AFTER_VALUE) {
+                    throw error("Expected ',' or '}'", i);
+                }
+                if (c != '"') {
+                    throw error("Expected a name", i);
+                }
+                var end = scanString(i + 1, limit);
+                append(NAME, escaped ? ESCAPED : 0, i);
+                i = skipWhitespace(end + 1, limit);
+                if (i == limit || data.get(i) != ':') {
+                    throw error("Expected ':'", i);
+                }
+                state = AFTER_NAME;
+                i = skipWhitespace(i + 1, limit);
+                continue;
+            }
+
+            if (state == AFTER_VALUE) {
+                throw error(depth == 0 ? "Unexpected data after the end of a document" : "Expected ',' or ']'", i);
+            }
+
+            if (c == '{' || c == '[') {
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth * 2);
+                }
+                open[depth++] = size;
+                append(c == '{' ? OBJECT : ARRAY, 0, i);
+                state = EMPTY;
+                i = skipWhitespace(i + 1, limit);
+                continue;
+            }
+
+            if (c == '"') {
+                var end = scanString(i + 1, limit);
+                var next = skipWhitespace(end + 1, limit);
+                if (context == ARRAY && next < limit && data.get(next) == ':') {
+                    i = skipWhitespace(next + 1, limit);
+                    continue;
+                }
+                append(STRING, escaped ? ESCAPED : 0, i);
+                state = AFTER_VALUE;
+                i = next;
+                continue;
+            }
+
+            if (!JsonParser.isWordByte(c)) {
+                throw error(String.format("Unexpected character '%c'", (char) c), i);
+            }
+            var end = scanWord(i, limit);
+            append(wordKind(i, end), 0, i);
+            state = AFTER_VALUE;
+            i = skipWhitespace(end, limit);
+        }
+
+        if (size == 0 || depth > 0) {
+            throw error("Unexpected end of a document", limit);
+        }
+    }
+
+    private void append(int kind, int payload, int offset) {
+        if (size == tape.length) {
+            if (size == MAX_ENTRIES) {
+                throw error("The document has too many values to index", offset);
+            }
+            tape = Arrays.copyOf(tape, Math.min(size * 2, MAX_ENTRIES));
+        }
+        tape[size++] = (long) kind << 60 | (long) payload << 32 | offset;
+    }
+
+    private int kind(int i) {
+        return (int) (tape[i] >>> 60);
+    }
+
+    private int payload(int i) {
+        return (int) (tape[i] >>> 32) & (MAX_ENTRIES - 1);
+    }
+
+    private int offset(int i) {
+        return (int) tape[i];
+    }
+
+    /**
+     * Gets the index of the entry after a value, skipping objects and arrays.
+     */
+    private int next(int i) {
+        var kind = kind(i);
+        return kind == OBJECT || kind == ARRAY ? payload(i) + 1 : i + 1;
+    }
+
+    /**
+     * Gets the offset after the last byte of a value.
+     */
+    private int end(int i) {
+        var kind = kind(i);
+        var offset = offset(i);
+        if (kind == OBJECT || kind == ARRAY) {
+            return offset(payload(i)) + 1;
+        }
+        if (data.get(offset) == '"') {
+            return scanString(offset + 1, data.limit()) + 1;
+        }
+        return scanWord(offset, data.limit());
+    }
+
+    private boolean nameEquals(int i, byte[] key, String name) {
+        var start = offset(i) + 1;
+        if (payload(i) == ESCAPED) {
+            try (var parser = parserAt(offset(i))) {
+                return parser.getString().equals(name);
+            }
+        }
+
+        if (start + key.length >= data.limit()) {
+            return false;
+        }
+        for (int j = 0; j < key.length; j++) {
+            if (data.get(start + j) != key[j]) {
+                return false;
+            }
+        }
+        return data.get(start + key.length) == '"';
+    }
+
+    /**
+     * Creates a parser at the first token of a value, it must be closed.
+     */
+    private JsonParser parserAt(int offset) {
+        var parser = new JsonParser(data.slice(offset, data.limit() - offset));
+        parser.next();
+        return parser;
+    }
+
+    /**
+     * Finds the closing quote of a string.
+     *
+     * @param i     offset after the opening quote
+     * @param limit end of a document
+     * @return offset of the closing quote
+     */
+    private int scanString(int i, int limit) {
+        escaped = false;
+        while (i < limit) {
+            var c = data.get(i);
+            if (c == '"') {
+                return i;
+            }
+            if (c == '\\') {
+                escaped = true;
+                i++;
+            }
+            i++;
+        }
+        throw error("Unterminated string", limit);
+    }
+
+    private int scanWord(int i, int limit) {
+        while (i < limit && JsonParser.isWordByte(data.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int wordKind(int start, int end) {
+        var c = data.get(start);
+        if (c == '-' || c >= '0' && c <= '9') {
+            return NUMBER;
+        }
+        if (matches(start, end, "true")) {
+            return TRUE;
+        }
+        if (matches(start, end, "false")) {
+            return FALSE;
+        }
+        if (matches(start, end, "null")) {
+            return NULL;
+        }
+        if (matches(start, end, "NaN") || matches(start, end, "Infinity")) {
+            return NUMBER;
+        }
+        return STRING;
+    }
+
+    private boolean matches(int start, int end, String literal) {
+        if (end - start != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (data.get(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipWhitespace(int i, int limit) {
+        while (i < limit) {
+            var c = data.get(i);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Parses a token of a JSON pointer as an index of an array.
+     *
+     * @return index, or -1 if a token is not a number without leading zeros
+     */
+    private static int arrayIndex(String token) {
+        if (token.isEmpty() || token.length() > 9 || token.length() > 1 && token.charAt(0) == '0') {
+            return -1;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) < '0' || token.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(token);
+    }
+
+    private static JsonParseException error(String message, int offset) {
+        return new JsonParseException(String.format("%s at byte %d", message, offset));
+    }
+}
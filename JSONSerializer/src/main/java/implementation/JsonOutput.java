@@ -0,0 +1,541 @@
+package implementation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffer that JSON is encoded to in UTF-8 incrementally.
+ * With a target stream the buffer is bounded and flushed to the stream as it fills,
+ * so memory does not depend on the size of a document. Without a target it grows to hold a whole document.
+ * Buffers are taken from a pool and must be given back with {@link #release()}.
+ */
+final class JsonOutput {
+    /**
+     * Size of a buffer in bytes.
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Number of chars of a long string that are copied and scanned at once.
+     */
+    static final int CHUNK_SIZE = 512;
+
+    /**
+     * Length from which strings are scanned in bulk, shorter strings are escaped char by char.
+     */
+    private static final int BULK_THRESHOLD = 16;
+
+    /**
+     * Scanner that finds chars that must be escaped or encoded.
+     */
+    private static final EscapeScanner SCANNER = EscapeScanner.best();
+
+    /**
+     * Escapes of ASCII chars, zero if a char is written as it is,
+     * 'u' if a char is written as a unicode escape.
+     */
+    private static final byte[] ESCAPES = new byte[0x80];
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] BASE64_DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['\t'] = 't';
+    }
+
+    /**
+     * Stream the buffer is flushed to, or null if the buffer grows.
+     */
+    private final OutputStream target;
+
+    private byte[] buffer;
+
+    /**
+     * Chars of a long string being escaped, taken from a pool on first use.
+     */
+    private char[] chars;
+
+    private int position;
+
+    /**
+     * Number of bytes flushed to the stream, or written before this output if it is restarted.
+     */
+    private long flushed;
+
+    /**
+     * Creates an output that keeps a whole document in memory.
+     */
+    JsonOutput() {
+        this(null);
+    }
+
+    /**
+     * Creates an output that is flushed to a stream.
+     *
+     * @param target a stream where JSON is written
+     */
+    JsonOutput(OutputStream target) {
+        this.target = target;
+        this.buffer = BufferPool.BYTES.acquire();
+    }
+
+    void write(char c) {
+        if (c < 0x80) {
+            if (position == buffer.length) {
+                ensureCapacity(1);
+            }
+            buffer[position++] = (byte) c;
+        } else {
+            ensureCapacity(3);
+            encode(c);
+        }
+    }
+
+    /**
+     * Writes bytes of encoded JSON, e.g. of a fragment written to another output.
+     *
+     * @param bytes  encoded JSON
+     * @param offset index of the first byte
+     * @param length number of bytes
+     */
+    void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (position == buffer.length) {
+                ensureCapacity(length);
+            }
+
+            var count = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Gets a number of bytes in the buffer.
+     *
+     * @return number of written bytes that are not flushed yet
+     */
+    int size() {
+        return position;
+    }
+
+    /**
+     * Gets a number of bytes written to this output, including flushed ones.
+     *
+     * @return size of a document so far
+     */
+    long written() {
+        return flushed + position;
+    }
+
+    /**
+     * Writes bytes of this output to another one.
+     *
+     * @param other output to copy to
+     * @param from  index of the first copied byte
+     */
+    void copyTo(JsonOutput other, int from) {
+        other.write(buffer, from, position - from);
+    }
+
+    /**
+     * Writes a document kept in memory to a stream without copying it first.
+     *
+     * @param stream stream to write to
+     * @throws IOException if the stream fails
+     */
+    void writeTo(OutputStream stream) throws IOException {
+        stream.write(buffer, 0, position);
+    }
+
+    /**
+     * Writes a string in UTF-8, runs of ASCII chars are copied without branching on their encoding.
+     *
+     * @param value string to write
+     */
+    void write(String value) {
+        var length = value.length();
+        var i = 0;
+        while (i < length) {
+            if (position == buffer.length) {
+                ensureCapacity(1);
+            }
+
+            var bytes = buffer;
+            var pos = position;
+            var limit = Math.min(length, i + bytes.length - pos);
+            char c;
+            while (i < limit && (c = value.charAt(i)) < 0x80) {
+                bytes[pos++] = (byte) c;
+                i++;
+            }
+            position = pos;
+
+            if (i < limit) {
+                i = writeNonAscii(value, i);
+            }
+        }
+    }
+
+    /**
+     * Writes a string as a JSON string, quoted and escaped.
+     * Long strings are scanned in chunks and runs of chars that need no escaping are copied in bulk.
+     *
+     * @param value string to write
+     */
+    void writeQuoted(String value) {
+        write('"');
+        if (value.length() < BULK_THRESHOLD) {
+            writeEscaped(value);
+        } else {
+            writeEscapedInBulk(value);
+        }
+        write('"');
+    }
+
+    /**
+     * Writes a date or a time as a JSON string, with the fast writer of a pattern if it can write a value.
+     *
+     * @param writer compiled pattern
+     * @param value  value of a field
+     */
+    void writeQuoted(DateFormatWriter writer, Object value) {
+        if (writer.canWrite(value)) {
+            ensureCapacity(writer.maxLength + 2);
+            buffer[position++] = '"';
+            position = writer.write(buffer, position, value);
+            buffer[position++] = '"';
+        } else {
+            writeQuoted(writer.format(value));
+        }
+    }
+
+    /**
+     * Writes bytes as a quoted base64 string, encoded right into the buffer three bytes at a time.
+     *
+     * @param bytes bytes to encode
+     */
+    void writeBase64(byte[] bytes) {
+        write('"');
+        var whole = bytes.length - bytes.length % 3;
+        for (int i = 0; i < whole; i += 3) {
+            ensureCapacity(4);
+            var group = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | bytes[i + 2] & 0xff;
+            buffer[position] = BASE64_DIGITS[group >>> 18];
+            buffer[position + 1] = BASE64_DIGITS[group >>> 12 & 0x3f];
+            buffer[position + 2] = BASE64_DIGITS[group >>> 6 & 0x3f];
+            buffer[position + 3] = BASE64_DIGITS[group & 0x3f];
+            position += 4;
+        }
+
+        if (whole < bytes.length) {
+            ensureCapacity(4);
+            var group = (bytes[whole] & 0xff) << 16;
+            if (whole + 1 < bytes.length) {
+                group |= (bytes[whole + 1] & 0xff) << 8;
+            }
+            buffer[position] = BASE64_DIGITS[group >>> 18];
+            buffer[position + 1] = BASE64_DIGITS[group >>> 12 & 0x3f];
+            buffer[position + 2] = whole + 1 < bytes.length ? BASE64_DIGITS[group >>> 6 & 0x3f] : (byte) '=';
+            buffer[position + 3] = '=';
+            position += 4;
+        }
+        write('"');
+    }
+
+    void write(int value) {
+        write((long) value);
+    }
+
+    void write(long value) {
+        ensureCapacity(NumberWriter.MAX_LENGTH);
+        position = NumberWriter.writeLong(buffer, position, value);
+    }
+
+    void write(double value) {
+        ensureCapacity(NumberWriter.MAX_LENGTH);
+        position = NumberWriter.writeDouble(buffer, position, value);
+    }
+
+    void write(float value) {
+        ensureCapacity(NumberWriter.MAX_LENGTH);
+        position = NumberWriter.writeFloat(buffer, position, value);
+    }
+
+    void write(boolean value) {
+        write(value ? "true" : "false");
+    }
+
+    /**
+     * Writes all buffered bytes to the target stream and flushes it.
+     *
+     * @throws UncheckedIOException if the stream fails
+     */
+    void flush() {
+        flushBuffer();
+        try {
+            target.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Empties an output that keeps a document in memory, so it is reused for another one,
+     * and takes a buffer from the pool again if it was released.
+     *
+     * @param start number of bytes written before this output, counted by {@link #written()}
+     */
+    void restart(long start) {
+        if (buffer == null) {
+            buffer = BufferPool.BYTES.acquire();
+        }
+        position = 0;
+        flushed = start;
+    }
+
+    /**
+     * Gives the buffer back to the pool, the output cannot be used afterwards.
+     */
+    void release() {
+        if (buffer != null) {
+            BufferPool.BYTES.release(buffer);
+            buffer = null;
+        }
+        if (chars != null) {
+            BufferPool.CHARS.release(chars);
+            chars = null;
+        }
+    }
+
+    /**
+     * Copies a document kept in memory.
+     *
+     * @return written bytes
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Encodes a name of a property to UTF-8 once, so it can be copied to outputs as it is.
+     *
+     * @param name name of a property
+     * @return quoted and escaped name followed by a colon
+     */
+    static byte[] encodeName(String name) {
+        var output = new JsonOutput();
+        try {
+            output.writeQuoted(name);
+            output.write(':');
+            return output.toByteArray();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Encodes a constant string value to UTF-8 once, so it can be copied to outputs as it is.
+     *
+     * @param value some string
+     * @return quoted and escaped string
+     */
+    static byte[] encodeString(String value) {
+        var output = new JsonOutput();
+        try {
+            output.writeQuoted(value);
+            return output.toByteArray();
+        } finally {
+            output.release();
+        }
+    }
+
+    /**
+     * Decodes a document kept in memory.
+     *
+     * @return written JSON
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, position, StandardCharsets.UTF_8);
+    }
+
+    private void writeEscaped(String value) {
+        var length = value.length();
+        var i = 0;
+        while (i < length) {
+            var c = value.charAt(i);
+            if (c >= 0x80) {
+                i = writeNonAscii(value, i);
+                continue;
+            }
+
+            if (ESCAPES[c] == 0) {
+                if (position == buffer.length) {
+                    ensureCapacity(1);
+                }
+                buffer[position++] = (byte) c;
+            } else {
+                writeEscape(c);
+            }
+            i++;
+        }
+    }
+
+    private void writeEscapedInBulk(String value) {
+        if (chars == null) {
+            chars = BufferPool.CHARS.acquire();
+        }
+
+        var length = value.length();
+        var i = 0;
+        while (i < length) {
+            var chunkStart = i;
+            var chunkEnd = Math.min(length, chunkStart + chars.length);
+            value.getChars(chunkStart, chunkEnd, chars, 0);
+
+            while (i < chunkEnd) {
+                var clean = SCANNER.scan(chars, i - chunkStart, chunkEnd - chunkStart) + chunkStart;
+                copyAscii(value, i, clean);
+                i = clean;
+
+                if (i < chunkEnd) {
+                    var c = chars[i - chunkStart];
+                    if (c < 0x80) {
+                        writeEscape(c);
+                        i++;
+                    } else {
+                        i = writeNonAscii(value, i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies ASCII chars of a string that need no escaping.
+     *
+     * @param value string to copy
+     * @param from  index of the first char
+     * @param to    index after the last char
+     */
+    @SuppressWarnings("deprecation")
+    private void copyAscii(String value, int from, int to) {
+        while (from < to) {
+            ensureCapacity(Math.min(to - from, BUFFER_SIZE));
+
+            var count = Math.min(to - from, buffer.length - position);
+            value.getBytes(from, from + count, buffer, position);
+            position += count;
+            from += count;
+        }
+    }
+
+    /**
+     * Writes an escape of an ASCII char.
+     *
+     * @param c char that must be escaped
+     */
+    private void writeEscape(char c) {
+        ensureCapacity(6);
+
+        var escape = ESCAPES[c];
+        buffer[position++] = '\\';
+        buffer[position++] = escape;
+        if (escape == 'u') {
+            buffer[position++] = '0';
+            buffer[position++] = '0';
+            buffer[position++] = HEX_DIGITS[c >> 4];
+            buffer[position++] = HEX_DIGITS[c & 0xF];
+        }
+    }
+
+    /**
+     * Writes a char that is not ASCII, or a surrogate pair starting with it.
+     * Unpaired surrogates are written as '?' the way String.getBytes does it.
+     *
+     * @param value string to write
+     * @param index index of a char that is not ASCII
+     * @return index of the next char to write
+     */
+    private int writeNonAscii(String value, int index) {
+        ensureCapacity(4);
+
+        var c = value.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            var codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[position++] = (byte) (0x80 | (codePoint >> 12) & 0x3F);
+            buffer[position++] = (byte) (0x80 | (codePoint >> 6) & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            return index + 2;
+        }
+
+        encode(c);
+        return index + 1;
+    }
+
+    /**
+     * Writes a char of the Basic Multilingual Plane that is not ASCII, there must be room for 3 bytes.
+     *
+     * @param c char to write
+     */
+    private void encode(char c) {
+        if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | c >> 6);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isSurrogate(c)) {
+            buffer[position++] = '?';
+        } else {
+            buffer[position++] = (byte) (0xE0 | c >> 12);
+            buffer[position++] = (byte) (0x80 | (c >> 6) & 0x3F);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        }
+    }
+
+    /**
+     * Makes room for a number of bytes, by flushing the buffer to the target stream or by growing it.
+     *
+     * @param size number of bytes
+     */
+    private void ensureCapacity(int size) {
+        if (buffer.length - position >= size) {
+            return;
+        }
+
+        if (target != null) {
+            flushBuffer();
+        } else {
+            var grown = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + size));
+            BufferPool.BYTES.release(buffer);
+            buffer = grown;
+        }
+    }
+
+    private void flushBuffer() {
+        try {
+            target.write(buffer, 0, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flushed += position;
+        position = 0;
+    }
+}
@@ -0,0 +1,702 @@
+package implementation;
+
+import exceptions.JsonParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser of JSON in UTF-8, the counterpart of JsonGenerator.
+ * Every call of {@link #next()} reads one token, names and values of the current token are decoded
+ * only when they are asked for, so names can be matched against encoded keys without creating strings.
+ * Input is read from a byte array, or incrementally from a stream or a buffer into a pooled buffer.
+ * <p>
+ * The parser also reads what older versions of the serializer wrote: labels of array elements in the form
+ * {@code "Label":{...}} are skipped, NaN and infinite numbers are numbers, and unquoted words,
+ * e.g. enum constants, are strings.
+ */
+public final class JsonParser implements AutoCloseable {
+    /**
+     * Tokens of JSON.
+     */
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        NUMBER,
+        TRUE,
+        FALSE,
+        NULL,
+        END_DOCUMENT
+    }
+
+    private static final int ROOT = 0;
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+
+    /**
+     * Stream input is read from, null if input is a byte array or a buffer.
+     */
+    private final InputStream stream;
+
+    /**
+     * Buffer input is read from, null if input is a byte array or a stream.
+     */
+    private final ByteBuffer source;
+
+    /**
+     * True if the buffer is taken from a pool.
+     */
+    private boolean pooled;
+
+    private byte[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    /**
+     * Number of bytes dropped from the buffer before its start, to report positions in input.
+     */
+    private long dropped;
+
+    private int[] contexts = new int[16];
+
+    private boolean[] hasEntries = new boolean[16];
+
+    private int depth;
+
+    /**
+     * Most levels of objects and arrays a document can be nested to.
+     */
+    private int maxDepth = Integer.MAX_VALUE;
+
+    /**
+     * True if a name is read in the current object and its value is expected.
+     */
+    private boolean nameRead;
+
+    private Token token;
+
+    /**
+     * Start of the content of the current name, string, or number in the buffer,
+     * -1 if bytes of the current token are not needed anymore.
+     */
+    private int tokenStart = -1;
+
+    private int tokenEnd;
+
+    /**
+     * True if the current name or string has escapes.
+     */
+    private boolean escaped;
+
+    /**
+     * Creates a parser of a whole document.
+     *
+     * @param json JSON in UTF-8
+     */
+    public JsonParser(byte[] json) {
+        this(json, 0, json.length);
+    }
+
+    /**
+     * Creates a parser of a part of an array.
+     *
+     * @param json   array with JSON in UTF-8
+     * @param offset index of the first byte
+     * @param length number of bytes
+     */
+    public JsonParser(byte[] json, int offset, int length) {
+        this.stream = null;
+        this.source = null;
+        this.buffer = json;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Creates a parser that reads a stream incrementally, the stream is not closed.
+     *
+     * @param stream a stream of JSON in UTF-8
+     */
+    public JsonParser(InputStream stream) {
+        this.stream = stream;
+        this.source = null;
+        this.buffer = BufferPool.BYTES.acquire();
+        this.pooled = true;
+    }
+
+    /**
+     * Creates a parser of remaining bytes of a buffer, a buffer without an array is read incrementally.
+     *
+     * @param json buffer with JSON in UTF-8
+     */
+    public JsonParser(ByteBuffer json) {
+        this.stream = null;
+        if (json.hasArray()) {
+            this.source = null;
+            this.buffer = json.array();
+            this.position = json.arrayOffset() + json.position();
+            this.limit = json.arrayOffset() + json.limit();
+        } else {
+            this.source = json.slice();
+            this.buffer = BufferPool.BYTES.acquire();
+            this.pooled = true;
+        }
+    }
+
+    /**
+     * Limits how deeply objects and arrays of a document can be nested, not limited by default.
+     * Readers that recurse per level set it, so a deep document fails instead of overflowing the stack.
+     *
+     * @param maxDepth most levels of nesting, the root object or array is level 1
+     * @throws IllegalArgumentException if a depth is not positive
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException(String.format("The maximum depth %d must be positive", maxDepth));
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return read token
+     * @throws JsonParseException if JSON is malformed
+     */
+    public Token next() {
+        tokenStart = -1;
+
+        var context = contexts[depth];
+        if (context == OBJECT && !nameRead) {
+            var c = skipWhitespace();
+            if (c == '}') {
+                position++;
+                pop();
+                return token = Token.END_OBJECT;
+            }
+            if (hasEntries[depth]) {
+                expect(c, ',');
+                position++;
+                c = skipWhitespace();
+            }
+            expect(c, '"');
+            position++;
+            readString();
+            hasEntries[depth] = true;
+
+            expect(skipWhitespace(), ':');
+            position++;
+            nameRead = true;
+            return token = Token.NAME;
+        }
+
+        if (context == ARRAY) {
+            var c = skipWhitespace();
+            if (c == ']') {
+                position++;
+                pop();
+                return token = Token.END_ARRAY;
+            }
+            if (hasEntries[depth]) {
+                expect(c, ',');
+                position++;
+            }
+            hasEntries[depth] = true;
+            return token = readArrayValue();
+        }
+
+        if (context == ROOT && hasEntries[0]) {
+            var c = skipWhitespace();
+            if (c >= 0) {
+                throw error("Unexpected data after the end of a document");
+            }
+            return token = Token.END_DOCUMENT;
+        }
+
+        nameRead = false;
+        hasEntries[depth] = true;
+        return token = readValue(skipWhitespace());
+    }
+
+    /**
+     * Gets the last read token.
+     *
+     * @return current token, null before the first one
+     */
+    public Token currentToken() {
+        return token;
+    }
+
+    /**
+     * Skips the value after the current name, or the rest of the current object or array
+     * if the current token begins one.
+     *
+     * @throws JsonParseException if JSON is malformed
+     */
+    public void skipValue() {
+        if (token == Token.NAME) {
+            next();
+        }
+        if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY) {
+            return;
+        }
+
+        var end = depth - 1;
+        while (depth > end) {
+            next();
+        }
+    }
+
+    /**
+     * Gets the current name or string.
+     *
+     * @return decoded name or string, or text of a number
+     * @throws IllegalStateException if the current token has no text
+     */
+    public String getString() {
+        checkText();
+        if (!escaped) {
+            return new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+        }
+        return unescape();
+    }
+
+    /**
+     * Compares the current name or string with encoded text without decoding it.
+     *
+     * @param key text in UTF-8
+     * @return true if the current name or string is the same text
+     * @throws IllegalStateException if the current token has no text
+     */
+    public boolean textEquals(byte[] key) {
+        checkText();
+        if (escaped) {
+            return getString().equals(new String(key, StandardCharsets.UTF_8));
+        }
+        return Arrays.equals(buffer, tokenStart, tokenEnd, key, 0, key.length);
+    }
+
+    /**
+     * Gets the current number as an int.
+     *
+     * @return value of a number
+     * @throws JsonParseException if a number is not an int
+     */
+    public int getInt() {
+        var value = getLong();
+        if (value != (int) value) {
+            throw error("The number is out of range of int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Gets the current number as a long, integer numbers are parsed without creating strings.
+     *
+     * @return value of a number
+     * @throws JsonParseException if a number is not a long
+     */
+    public long getLong() {
+        checkNumber();
+
+        var i = tokenStart;
+        var negative = buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == tokenEnd || tokenEnd - i > 19) {
+            return parseLongSlowly();
+        }
+
+        var value = 0L;
+        for (; i < tokenEnd; i++) {
+            var digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return parseLongSlowly();
+            }
+            value = value * 10 + digit;
+        }
+        if (value < 0) {
+            return parseLongSlowly();
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Gets the current number, or a string with NaN or an infinite number, as a double.
+     *
+     * @return value of a number
+     * @throws JsonParseException if a number is malformed
+     */
+    public double getDouble() {
+        if (token == Token.STRING || token == Token.NUMBER) {
+            var text = getString();
+            switch (text) {
+                case "NaN" -> {
+                    return Double.NaN;
+                }
+                case "Infinity" -> {
+                    return Double.POSITIVE_INFINITY;
+                }
+                case "-Infinity" -> {
+                    return Double.NEGATIVE_INFINITY;
+                }
+                default -> {
+                }
+            }
+            if (token == Token.NUMBER) {
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    throw error("Malformed number " + text);
+                }
+            }
+        }
+        throw error("Expected a number but was " + token);
+    }
+
+    /**
+     * Gets a position of the parser in input.
+     *
+     * @return number of read bytes
+     */
+    public long position() {
+        return dropped + position;
+    }
+
+    /**
+     * Gives a pooled buffer back, the parser cannot be used afterwards. The input is not closed.
+     */
+    @Override
+    public void close() {
+        if (pooled) {
+            BufferPool.BYTES.release(buffer);
+            pooled = false;
+            buffer = null;
+        }
+    }
+
+    /**
+     * Creates an exception with a position in input.
+     *
+     * @param message description of a problem
+     * @return new exception
+     */
+    JsonParseException error(String message) {
+        return new JsonParseException(String.format("%s at byte %d", message, position()));
+    }
+
+    /**
+     * Reads a value of an array, skipping a label of an element written in the form {@code "Label":}.
+     */
+    private Token readArrayValue() {
+        var c = skipWhitespace();
+        if (c != '"') {
+            return readValue(c);
+        }
+
+        position++;
+        readString();
+        if (skipWhitespace() != ':') {
+            return Token.STRING;
+        }
+
+        position++;
+        tokenStart = -1;
+        return readValue(skipWhitespace());
+    }
+
+    private Token readValue(int c) {
+        switch (c) {
+            case '{' -> {
+                position++;
+                push(OBJECT);
+                return Token.BEGIN_OBJECT;
+            }
+            case '[' -> {
+                position++;
+                push(ARRAY);
+                return Token.BEGIN_ARRAY;
+            }
+            case '"' -> {
+                position++;
+                readString();
+                return Token.STRING;
+            }
+            case -1 -> throw error("Unexpected end of a document");
+            default -> {
+                if (c == '-' || c >= '0' && c <= '9') {
+                    readWord();
+                    return Token.NUMBER;
+                }
+                if (isWordByte(c)) {
+                    readWord();
+                    return wordToken();
+                }
+                throw error(String.format("Unexpected character '%c'", (char) c));
+            }
+        }
+    }
+
+    /**
+     * Gets a token of a literal or an unquoted word.
+     */
+    private Token wordToken() {
+        var length = tokenEnd - tokenStart;
+        if (length == 4 && matches("true")) {
+            return Token.TRUE;
+        }
+        if (length == 5 && matches("false")) {
+            return Token.FALSE;
+        }
+        if (length == 4 && matches("null")) {
+            return Token.NULL;
+        }
+        if (matches("NaN") || matches("Infinity") || matches("-Infinity")) {
+            return Token.NUMBER;
+        }
+        escaped = false;
+        return Token.STRING;
+    }
+
+    private boolean matches(String literal) {
+        if (tokenEnd - tokenStart != literal.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer[tokenStart + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a number, a literal or an unquoted word up to a delimiter.
+     */
+    private void readWord() {
+        tokenStart = position;
+        escaped = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            if (!isWordByte(buffer[position])) {
+                break;
+            }
+            position++;
+        }
+        tokenEnd = position;
+    }
+
+    /**
+     * Checks if a byte can be a part of a number, a literal or an unquoted word.
+     *
+     * @param c some byte
+     * @return true if a byte does not end a word
+     */
+    static boolean isWordByte(int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || c == '-' || c == '+' || c == '.' || c == '_' || c == '$';
+    }
+
+    /**
+     * Reads a string after its opening quote, only its bounds are remembered.
+     */
+    private void readString() {
+        tokenStart = position;
+        escaped = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                throw error("Unterminated string");
+            }
+
+            var c = buffer[position];
+            if (c == '"') {
+                tokenEnd = position++;
+                return;
+            }
+            if (c == '\\') {
+                escaped = true;
+                position++;
+                if (position == limit && !fill()) {
+                    throw error("Unterminated string");
+                }
+            } else if (c >= 0 && c < 0x20) {
+                throw error("Unescaped control character in a string");
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Decodes a string with escapes.
+     */
+    private String unescape() {
+        var builder = new StringBuilder(tokenEnd - tokenStart);
+        var runStart = tokenStart;
+        var i = tokenStart;
+        while (i < tokenEnd) {
+            if (buffer[i] != '\\') {
+                i++;
+                continue;
+            }
+
+            builder.append(new String(buffer, runStart, i - runStart, StandardCharsets.UTF_8));
+            var c = buffer[i + 1];
+            i += 2;
+            switch (c) {
+                case '"' -> builder.append('"');
+                case '\\' -> builder.append('\\');
+                case '/' -> builder.append('/');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (i + 4 > tokenEnd) {
+                        throw error("Malformed unicode escape");
+                    }
+                    var code = 0;
+                    for (int j = 0; j < 4; j++) {
+                        var digit = Character.digit(buffer[i + j], 16);
+                        if (digit < 0) {
+                            throw error("Malformed unicode escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    builder.append((char) code);
+                    i += 4;
+                }
+                default -> throw error(String.format("Unknown escape '\\%c'", (char) c));
+            }
+            runStart = i;
+        }
+        builder.append(new String(buffer, runStart, tokenEnd - runStart, StandardCharsets.UTF_8));
+        return builder.toString();
+    }
+
+    private long parseLongSlowly() {
+        var text = getString();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw error("Expected an integer number but was " + text);
+        }
+    }
+
+    private void checkText() {
+        if (tokenStart < 0) {
+            throw new IllegalStateException("The current token " + token + " has no text");
+        }
+    }
+
+    private void checkNumber() {
+        if (token != Token.NUMBER) {
+            throw error("Expected a number but was " + token);
+        }
+    }
+
+    private void expect(int c, char expected) {
+        if (c != expected) {
+            throw c < 0
+                    ? error("Unexpected end of a document")
+                    : error(String.format("Expected '%c' but was '%c'", expected, (char) c));
+        }
+    }
+
+    /**
+     * Skips whitespace and peeks the next byte.
+     *
+     * @return next byte, or -1 at the end of input
+     */
+    private int skipWhitespace() {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+
+            var c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Reads more input into the buffer, keeping bytes of the current token.
+     *
+     * @return true if something was read, false at the end of input
+     */
+    private boolean fill() {
+        if (stream == null && source == null) {
+            return false;
+        }
+
+        var keep = tokenStart >= 0 ? tokenStart : position;
+        if (keep > 0) {
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            dropped += keep;
+            limit -= keep;
+            position -= keep;
+            tokenEnd -= keep;
+            if (tokenStart >= 0) {
+                tokenStart = 0;
+            }
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        int count;
+        if (stream != null) {
+            try {
+                count = stream.read(buffer, limit, buffer.length - limit);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            count = Math.min(source.remaining(), buffer.length - limit);
+            source.get(buffer, limit, count);
+            if (count == 0) {
+                count = -1;
+            }
+        }
+
+        if (count <= 0) {
+            return false;
+        }
+        limit += count;
+        return true;
+    }
+
+    private void push(int context) {
+        if (depth == maxDepth) {
+            throw error(String.format("The document is nested deeper than %d levels", maxDepth));
+        }
+        if (++depth == contexts.length) {
+            contexts = Arrays.copyOf(contexts, depth * 2);
+            hasEntries = Arrays.copyOf(hasEntries, depth * 2);
+        }
+        contexts[depth] = context;
+        hasEntries[depth] = false;
+        nameRead = false;
+    }
+
+    private void pop() {
+        depth--;
+        nameRead = false;
+    }
+}
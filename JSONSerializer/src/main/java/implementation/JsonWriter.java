@@ -1,31 +1,134 @@
 package implementation;
 
+import exceptions.CyclicReferenceException;
 import exceptions.ExportedException;
+import exceptions.LimitExceededException;
 import exceptions.PublicConstructorException;
-import interfaces.*;
+import interfaces.JsonWritable;
+import interfaces.Restriction;
 
-import java.lang.reflect.Field;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.ParameterizedType;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Handles all operations when formatting an object to string in JSON format.
  */
 public class JsonWriter implements Restriction {
     /**
-     * An object that is going to be formatted.
+     * Name of a reference written instead of an object that is met again inside itself.
+     */
+    private static final byte[] REFERENCE_NAME = JsonOutput.encodeName("$ref");
+
+    /**
+     * Number of objects of generated writers nested in place, deeper ones are resumed from the work stack,
+     * so the thread stack does not grow with a document.
+     */
+    private static final int MAX_INLINE_DEPTH = 32;
+
+    /**
+     * An object that is going to be formatted, null for a writer that is reused as a per-call context.
      */
     private final Object objectToFormat;
 
+    /**
+     * Settings of a serializer, e.g. a flag to use writers generated at runtime for @Exported classes.
+     */
+    private final SerializerConfig config;
+
+    /**
+     * Receivers of property values from generated writers, one per nesting level.
+     */
+    private final List<PropertySink> sinks = new ArrayList<>();
+
+    /**
+     * Current nesting level of objects written by generated writers.
+     */
+    private int depth;
+
+    /**
+     * Generator that is reset for every document, so its stack of contexts is reused.
+     */
+    private JsonGenerator generator;
+
+    /**
+     * Work stack of values that are begun and not ended yet, reused between documents.
+     */
+    private Frame[] frames = new Frame[16];
+
+    /**
+     * Number of frames on the work stack.
+     */
+    private int top;
+
+    /**
+     * Objects that are being written, the objects of object frames and of the ancestors.
+     */
+    private final IdentitySet path = new IdentitySet();
+
+    /**
+     * Number of cycles written as null or as references.
+     */
+    private int cycles;
+
+    /**
+     * Objects a writer of a chunk of a collection is inside of, none for a document.
+     */
+    private Ancestors ancestors = Ancestors.NONE;
+
+    /**
+     * Depth of a value the work stack starts at.
+     */
+    private int baseDepth;
+
+    /**
+     * Number of bytes of a document written before the output of this writer, e.g. by earlier elements.
+     */
+    private long offset;
+
+    /**
+     * Generators of fragments of cached objects, one per level of nested cache misses, reused between misses.
+     */
+    private final List<JsonGenerator> fragments = new ArrayList<>();
+
+    /**
+     * Number of cache misses that are being written.
+     */
+    private int fragmentLevel;
+
     public JsonWriter(Object obj) {
+        this(obj, false);
+    }
+
+    public JsonWriter(Object obj, boolean compiled) {
+        this(obj, compiled ? SerializerConfig.builder().compiled(true).build() : SerializerConfig.DEFAULT);
+    }
+
+    private JsonWriter(Object obj, SerializerConfig config) {
         objectToFormat = obj;
+        this.config = config;
+    }
+
+    /**
+     * Creates a writer that formats any object passed to it, so it can be reused between calls.
+     * A writer is not thread-safe, a call must own it until it returns.
+     *
+     * @param config settings of a serializer
+     */
+    JsonWriter(SerializerConfig config) {
+        this(null, config);
     }
 
     /**
@@ -36,433 +139,1289 @@ public class JsonWriter implements Restriction {
      * @throws IllegalAccessException if an illegal access attempt has occurred
      */
     public String formatObject(boolean nullHandling) throws IllegalAccessException {
-        var fields = objectToFormat.getClass().getDeclaredFields();
-
-        StringBuilder stringBuilder = new StringBuilder("{");
-
-        formatDifferentTypes(fields, stringBuilder, objectToFormat, nullHandling);
+        return formatObject(objectToFormat, nullHandling);
+    }
 
-        stringBuilder.append("}");
+    /**
+     * Formats an object in JSON format and writes it incrementally to a stream in UTF-8.
+     * The stream is flushed but not closed.
+     *
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param stream       a stream where JSON is written
+     * @throws UncheckedIOException if the stream fails
+     */
+    public void formatObject(boolean nullHandling, OutputStream stream) {
+        formatObject(objectToFormat, nullHandling, stream);
+    }
 
-        deleteRedundantCommas(stringBuilder);
+    /**
+     * Formats an object to JSON format string.
+     *
+     * @param obj          serializing object
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @return JSON representation of an object.
+     */
+    String formatObject(Object obj, boolean nullHandling) {
+        var output = new JsonOutput();
+        try {
+            formatObject(obj, nullHandling, output);
+
+            return output.toString();
+        } finally {
+            output.release();
+        }
+    }
 
-        return stringBuilder.toString();
+    /**
+     * Formats an object in JSON format to an output.
+     *
+     * @param obj          serializing object
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param output       output JSON is written to
+     */
+    void formatObject(Object obj, boolean nullHandling, JsonOutput output) {
+        formatObject(obj, nullHandling, generatorFor(output));
     }
 
     /**
-     * Deleting redundant commas in a string in JSON format.
+     * Formats an object in JSON format and writes it incrementally to a stream in UTF-8.
+     * The stream is flushed but not closed.
      *
-     * @param stringBuilder StringBuilder object to handle operations with a string
+     * @param obj          serializing object
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param stream       a stream where JSON is written
+     * @throws UncheckedIOException if the stream fails
      */
-    private void deleteRedundantCommas(StringBuilder stringBuilder) {
-        // Deletes commas before closing brackets.
-        for (int i = 0; i < stringBuilder.toString().length() - 1; i++) {
-            if (stringBuilder.toString().charAt(i) == ',' &&
-                    (stringBuilder.toString().charAt(i + 1) == '}' || stringBuilder.toString().charAt(i + 1) == ']')) {
-                stringBuilder.deleteCharAt(i);
-            }
+    void formatObject(Object obj, boolean nullHandling, OutputStream stream) {
+        var output = new JsonOutput(stream);
+        try {
+            formatObject(obj, nullHandling, generatorFor(output));
+
+            output.flush();
+        } finally {
+            output.release();
         }
     }
 
     /**
-     * Formats every type to string in JSON format.
+     * Formats an object in JSON format with a generator,
+     * so it can be a value inside a document written by hand.
      *
-     * @param fields        an array of fields
-     * @param stringBuilder StringBuilder object to handle string operations
-     * @param obj           serializing object
-     * @param nullHandling  flag to check if class uses null values for serialization
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param generator    generator to write JSON with
      */
-    private void formatDifferentTypes(Field[] fields, StringBuilder stringBuilder, Object obj, boolean nullHandling)
-            throws IllegalAccessException {
-        for (var i = 0; i < fields.length; i++) {
-
-            fields[i].setAccessible(true);
+    public void formatObject(boolean nullHandling, JsonGenerator generator) {
+        formatObject(objectToFormat, nullHandling, generator);
+    }
 
-            if (handleFieldRestrictions(fields, i)) {
-                continue;
+    /**
+     * Formats a sequence of objects in JSON format and writes it incrementally to a stream in UTF-8.
+     * Plans and restrictions are looked up once for a run of objects of the same class.
+     * The stream is flushed but not closed.
+     *
+     * @param objects objects to format
+     * @param format  a JSON array or newline-delimited JSON
+     * @param stream  a stream where JSON is written
+     * @throws UncheckedIOException if the stream fails
+     */
+    void formatSequence(Iterator<?> objects, SequenceFormat format, OutputStream stream) {
+        var output = new JsonOutput(stream);
+        try {
+            var generator = generatorFor(output);
+            var array = format == SequenceFormat.JSON_ARRAY;
+            if (array) {
+                generator.beginArray();
             }
 
-            String propertyName = processPropertyNameAnnotation(fields, i);
+            Class<?> lastClass = null;
+            ClassPlan plan = null;
+            var first = true;
+            var index = -1;
+            while (objects.hasNext()) {
+                var obj = objects.next();
+                index++;
+
+                if (!array) {
+                    if (!first) {
+                        output.write('\n');
+                    }
+                    generator.reset(output);
+                }
+                first = false;
 
-            Class<?> genericType = getGenericType(fields, i);
+                if (obj == null) {
+                    generator.writeNull();
+                    continue;
+                }
 
-            if (isCollection(fields[i]) && !isCorrectGenericType(genericType)) {
-                if (nullHandling && fields[i].get(obj) == null) {
-                    stringBuilder.append(String.format("\"%s\":null,", propertyName));
-                } else if (fields[i].get(obj) != null) {
-                    stringBuilder.append(String.format("\"%s\":[", propertyName));
+                if (obj.getClass() != lastClass) {
+                    lastClass = obj.getClass();
+                    plan = ClassPlan.of(lastClass);
+                    checkRestrictionsOfObjectOfCollection(plan);
+                }
 
-                    processCollection(stringBuilder, obj, fields[i], nullHandling);
+                beginElement(array ? index : -1, 0);
+                writeObject(plan, obj, generator, plan.nullHandling, false, null);
+                drain(0);
+                checkOutputSize(generator);
+            }
 
-                    stringBuilder.append("],");
-                }
-            } else if (isWrapperOrPrimitive(fields[i]) || isCollection(fields[i])) {
-                formatStringsOrSimpleTypes(fields, stringBuilder, obj, i, nullHandling, propertyName);
-            } else if (!isWrapperOrPrimitive(fields[i])) {
-                processCustomTypes(fields, stringBuilder, obj, nullHandling, i, propertyName);
+            if (array) {
+                generator.endArray();
+            } else if (!first) {
+                output.write('\n');
             }
+
+            output.flush();
+        } finally {
+            output.release();
         }
     }
 
     /**
-     * Formatting custom types to string in JSON format recursively.
+     * Formats an element of a sequence that is written by parts, e.g. by several threads,
+     * so references and limits are the same as if the whole sequence was written at once.
      *
-     * @param fields        an array of fields
-     * @param stringBuilder StringBuilder object to handle string operations
-     * @param object        serializing object
-     * @param nullHandling  flag to check if class uses null values for serialization
-     * @param index         index of a field in an array of fields
-     * @param propertyName  name of a property
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @param obj          serializing object
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param output       output JSON is written to
+     * @param index        index of an element of a JSON array, or -1 for a line of newline-delimited JSON
+     * @param offset       number of bytes of a sequence written before the element
      */
-    private void processCustomTypes(Field[] fields, StringBuilder stringBuilder, Object object, boolean nullHandling,
-                                    int index, String propertyName) throws IllegalAccessException {
-        checkRestrictionsForFieldType(fields, object, index);
+    void formatElement(Object obj, boolean nullHandling, JsonOutput output, int index, long offset) {
+        var generator = generatorFor(output);
+        beginElement(index, offset);
+        writeObject(ClassPlan.of(obj.getClass()), obj, generator, nullHandling, false, null);
+        drain(0);
+        checkOutputSize(generator);
+    }
 
-        if (!nullHandling && fields[index].get(object) == null) {
-            return;
+    /**
+     * Resets the work stack for an element of a sequence.
+     *
+     * @param index  index of an element of a JSON array, or -1 for a line of newline-delimited JSON
+     * @param offset number of bytes of a sequence written before the element
+     */
+    private void beginElement(int index, long offset) {
+        reset();
+        this.offset = offset;
+        if (index >= 0) {
+            baseDepth = 1;
+            if (config.cyclePolicy() == CyclePolicy.REFERENCE) {
+                ancestors = new Ancestors(Ancestors.NONE.objects, Ancestors.NONE.pointers, "/" + index, 0);
+            }
         }
+    }
+
+    private void formatObject(Object obj, boolean nullHandling, JsonGenerator generator) {
+        reset();
+        writeObject(ClassPlan.of(obj.getClass()), obj, generator, nullHandling, false, null);
+        drain(0);
+        checkOutputSize(generator);
+    }
 
-        stringBuilder.append(String.format("\"%s\":", propertyName));
+    /**
+     * Gets the generator of this writer switched to an output.
+     *
+     * @param output output of the next document
+     * @return reset generator
+     */
+    private JsonGenerator generatorFor(JsonOutput output) {
+        if (generator == null) {
+            generator = new JsonGenerator(output);
+        }
+        return generator.reset(output);
+    }
+
+    /**
+     * Empties the work stack before a document, frames left by a document that failed are cleared.
+     */
+    private void reset() {
+        while (top > 0) {
+            frames[--top].clear();
+        }
+        fragmentLevel = 0;
+        path.clear();
+        ancestors = Ancestors.NONE;
+        baseDepth = 0;
+        offset = 0;
+    }
 
-        if (fields[index].get(object) != null) {
-            stringBuilder.append("{");
+    /**
+     * Writes an object as a JSON object, or copies its JSON from a fragment cache if it is immutable.
+     * An object that is already being written is handled by the cycle policy instead.
+     * Properties of a reflectively written object are written when the work stack is drained.
+     *
+     * @param plan         plan of a class of an object
+     * @param obj          serializing object
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param inCollection flag to format properties the way objects of collections are formatted
+     * @param label        encoded label written before an object, or null
+     */
+    private void writeObject(ClassPlan plan, Object obj, JsonGenerator generator, boolean nullHandling,
+                             boolean inCollection, byte[] label) {
+        if (path.contains(obj)) {
+            writeCycle(plan, obj, generator);
+            return;
+        }
 
-            formatDifferentTypes(fields[index].getType().getDeclaredFields(),
-                    stringBuilder, fields[index].get(object),
-                    fields[index].get(object).getClass().getAnnotation(Exported.class)
-                            .nullHandling().isIncluded());
+        if (label != null) {
+            generator.writeLabel(label);
+        }
 
-            stringBuilder.append("},");
+        var cache = config.fragmentCache();
+        if (cache != null && plan.immutable) {
+            writeCached(cache, plan, obj, generator, nullHandling, inCollection);
         } else {
-            stringBuilder.append("null,");
+            writeUncached(plan, obj, generator, nullHandling, inCollection);
         }
     }
 
     /**
-     * Gets generic type if a field's type is collection.
+     * Copies JSON of an immutable object from a cache, or formats it to its own buffer and caches it.
+     * A fragment that holds a substitute of a cycle depends on where it is written, so it is not cached.
      *
-     * @param fields an array of fields
-     * @param index  index of a field in an array of fields
-     * @return class instance if generic type
+     * @param cache        shared cache of fragments
+     * @param plan         plan of a class of an object
+     * @param obj          serializing object
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param inCollection flag to format properties the way objects of collections are formatted
      */
-    private Class<?> getGenericType(Field[] fields, int index) {
-        ParameterizedType type;
-        Class<?> genericType = null;
-        if (isCollection(fields[index])) {
-            type = (ParameterizedType) fields[index].getGenericType();
-            genericType = (Class<?>) type.getActualTypeArguments()[0];
+    private void writeCached(FragmentCache cache, ClassPlan plan, Object obj, JsonGenerator generator,
+                             boolean nullHandling, boolean inCollection) {
+        var variant = (nullHandling ? 1 : 0) | (inCollection ? 2 : 0);
+        var fragment = cache.get(obj, variant);
+        if (fragment == null) {
+            if (fragmentLevel == fragments.size()) {
+                fragments.add(new JsonGenerator(new JsonOutput()));
+            }
+            var fragmentGenerator = fragments.get(fragmentLevel++);
+            var output = fragmentGenerator.output();
+            // Sizes of a fragment are counted from where it is going to be copied to.
+            output.restart(generator.written());
+            fragmentGenerator.reset(output);
+            try {
+                var base = top;
+                var cyclesBefore = cycles;
+                writeUncached(plan, obj, fragmentGenerator, nullHandling, inCollection);
+                drain(base);
+                checkOutputSize(fragmentGenerator);
+                fragment = output.toByteArray();
+                if (cycles == cyclesBefore) {
+                    cache.put(obj, variant, fragment);
+                }
+            } finally {
+                fragmentLevel--;
+                output.release();
+            }
         }
-        return genericType;
+
+        generator.writeEncodedValue(fragment);
     }
 
     /**
-     * Checks field restrictions i.e. if a field is synthetic or static,
-     * or if a field marked as @Ignored.
+     * Formats an object as a JSON object, or lets it write itself if it implements JsonWritable.
+     * An object is pushed to the work stack, and it is ended when its frame is.
+     * Objects of generated writers are begun in place unless they are nested too deeply,
+     * and JsonWritable objects write themselves in place.
      *
-     * @param fields an array of fields
-     * @param index  an index of a field in a field array
-     * @return true if a field is synthetic or static, of marked as @Ignored, otherwise, false
+     * @param plan         plan of a class of an object
+     * @param obj          serializing object
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param inCollection flag to format properties the way objects of collections are formatted
      */
-    private boolean handleFieldRestrictions(Field[] fields, int index) {
-        if (fields[index].isSynthetic() || Modifier.isStatic(fields[index].getModifiers())) {
-            return true;
+    private void writeUncached(ClassPlan plan, Object obj, JsonGenerator generator, boolean nullHandling,
+                               boolean inCollection) {
+        var writable = obj instanceof JsonWritable;
+        var writer = writable ? null : writerOf(plan);
+        var kind = writable ? FrameKind.INLINE : writer != null ? FrameKind.COMPILED : FrameKind.OBJECT;
+
+        var frame = push(kind, generator);
+        frame.object = obj;
+        frame.plan = plan;
+        frame.writer = writer;
+        frame.nullHandling = nullHandling;
+        frame.inCollection = inCollection;
+        frame.enclosingHandling = generator.getNonFiniteHandling();
+        path.add(obj);
+        generator.setNonFiniteHandling(plan.nonFiniteHandling);
+
+        if (kind == FrameKind.INLINE) {
+            ((JsonWritable) obj).writeJson(generator);
+            pop(frame);
+            return;
         }
 
-        return fields[index].isAnnotationPresent(Ignored.class);
+        generator.beginObject();
+        if (kind == FrameKind.COMPILED && depth < MAX_INLINE_DEPTH && !stepCompiled(frame)) {
+            pop(frame);
+        }
     }
 
     /**
-     * Sets new property's name if it is marked as @PropertyName.
+     * Writes frames of the work stack until it shrinks to a size, so nested values are written
+     * without a call per nesting level.
      *
-     * @param fields an array of fields.
-     * @param index  an index of a field in an array of fields
-     * @return string representation of a new property's name
+     * @param base number of frames left on the stack
      */
-    private String processPropertyNameAnnotation(Field[] fields, int index) {
-        var propertyName = fields[index].getName();
-        if (fields[index].isAnnotationPresent(PropertyName.class)) {
-            propertyName = fields[index].getAnnotation(PropertyName.class).value();
+    private void drain(int base) {
+        while (top > base) {
+            var frame = frames[top - 1];
+            checkOutputSize(frame.generator);
+
+            var pending = switch (frame.kind) {
+                case OBJECT -> stepObject(frame);
+                case ELEMENTS -> stepElements(frame);
+                case ENTRIES -> stepEntries(frame);
+                case COMPILED -> stepCompiled(frame);
+                case INLINE -> throw new IllegalStateException(
+                        "An inline frame is finished by the call that pushed it");
+            };
+            if (!pending) {
+                pop(frame);
+            }
         }
-        return propertyName;
     }
 
     /**
-     * Gets all properties of a collection of custom types and tries to format to JSON.
+     * Writes properties of an object until one of them pushes a frame.
      *
-     * @param stringBuilder StringBuilder object to process operations with strings
-     * @param object        serializing object
-     * @param fields        an array of fields
-     * @param nullHandling  flag to check if class uses null values for serialization
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @param frame frame of a reflectively written object
+     * @return true if a frame was pushed, false if all properties are written
      */
-    private void processCollection(StringBuilder stringBuilder, Object object, Field fields, boolean nullHandling)
-            throws IllegalAccessException {
-        List<?> list = castCollection(object, fields);
+    private boolean stepObject(Frame frame) {
+        var properties = frame.plan.properties;
+        var generator = frame.generator;
+        var size = top;
+
+        while (frame.index < properties.length) {
+            var property = properties[frame.index++];
+            frame.property = property;
+
+            if (property.type.isPrimitive()) {
+                generator.writeEncodedName(property.encodedName);
+                appendPrimitive(property, frame.object, generator);
+            } else if (frame.inCollection) {
+                formatListProperty(property, property.accessor.get(frame.object), generator, frame.nullHandling);
+            } else {
+                formatProperty(property, property.accessor.get(frame.object), generator, frame.nullHandling);
+            }
 
-        for (var listObject : list) {
-            if (!nullHandling && listObject == null) {
-                continue;
+            if (top != size) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            if (listObject != null) {
-                checkRestrictionsOfObjectOfCollection(listObject);
+    /**
+     * Begins an object of a generated writer, or writes properties it deferred until one of them pushes a frame.
+     *
+     * @param frame frame of an object of a generated writer
+     * @return true if a frame was pushed, false if all properties are written
+     */
+    private boolean stepCompiled(Frame frame) {
+        var size = top;
+        if (!frame.started) {
+            frame.started = true;
+            writeCompiled(frame);
+            if (top != size) {
+                return true;
+            }
+        }
 
-                stringBuilder.append(String.format("\"%s\":{", listObject.getClass().getSimpleName()));
+        var properties = frame.plan.properties;
+        var generator = frame.generator;
+        while (frame.deferredNext < frame.deferredSize) {
+            var i = frame.deferredNext++;
+            var property = properties[frame.deferredIndexes[i]];
+            var value = frame.deferredValues[i];
+            frame.deferredValues[i] = null;
+            frame.property = property;
+
+            if (!property.type.isPrimitive()) {
+                formatValue(frame, property, value);
+            } else {
+                generator.writeEncodedName(property.encodedName);
+                if (value instanceof Character symbol) {
+                    generator.writeString(String.valueOf(symbol));
+                } else {
+                    writeSimpleValue(value, generator);
+                }
+            }
 
-                handleListRecursively(listObject, stringBuilder, nullHandling);
+            if (top != size) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                stringBuilder.deleteCharAt(stringBuilder.length() - 1);
-                stringBuilder.append("},");
+    /**
+     * Writes elements of a collection until one of them pushes a frame.
+     *
+     * @param frame frame of a collection
+     * @return true if a frame was pushed, false if all elements are written
+     */
+    private boolean stepElements(Frame frame) {
+        var generator = frame.generator;
+        var size = top;
+
+        while (true) {
+            Object element;
+            if (frame.list != null) {
+                if (frame.index + 1 >= frame.size) {
+                    return false;
+                }
+                element = frame.list.get(++frame.index);
+            } else {
+                if (!frame.iterator.hasNext()) {
+                    return false;
+                }
+                element = frame.iterator.next();
+                frame.index++;
+            }
 
+            if (frame.property == null) {
+                processElement(generator, element, frame.nullHandling);
+            } else if (element != null || frame.nullHandling) {
+                writeElementValue(frame.property, element, generator);
+            }
 
-            } else {
-                stringBuilder.append("null,");
+            if (top != size) {
+                return true;
             }
+            checkOutputSize(generator);
         }
     }
 
     /**
-     * Casts collection to a List.
+     * Writes entries of a map until a value pushes a frame.
      *
-     * @param object serializing object
-     * @param field  field of a collection type
-     * @return new list of cast collection
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @param frame frame of a map
+     * @return true if a frame was pushed, false if all entries are written
      */
-    private List<?> castCollection(Object object, Field field) throws IllegalAccessException {
-        List<?> list = new ArrayList<>();
-        if (field.getType() == List.class) {
-            list = new ArrayList<>((List<?>) field.get(object));
-        } else if (field.getType() == Set.class) {
-            list = new ArrayList<>((Set<?>) field.get(object));
+    private boolean stepEntries(Frame frame) {
+        var generator = frame.generator;
+        var size = top;
+
+        while (frame.iterator.hasNext()) {
+            var entry = (Map.Entry<?, ?>) frame.iterator.next();
+            var value = entry.getValue();
+            if (value == null && !frame.nullHandling) {
+                continue;
+            }
+
+            frame.key = entry.getKey();
+            generator.writeEncodedName(frame.property.keyNames.nameOf(frame.key));
+            writeElementValue(frame.property, value, generator);
+
+            if (top != size) {
+                return true;
+            }
+            checkOutputSize(generator);
         }
-        return list;
+        return false;
     }
 
     /**
-     * Checks restrictions for objects of a collection of custom types.
+     * Pushes a frame to the work stack, frames are reused between documents.
      *
-     * @param object object from collection
+     * @param kind      kind of a frame
+     * @param generator generator the frame writes with
+     * @return cleared frame
+     * @throws LimitExceededException if the stack is as deep as a document is allowed to be
      */
-    private void checkRestrictionsOfObjectOfCollection(Object object) {
-        if (!object.getClass().isAnnotationPresent(Exported.class)) {
-            throw new ExportedException(
-                    String.format("The object %s you want to write is not @Exported",
-                            object.getClass().getSimpleName()));
+    private Frame push(FrameKind kind, JsonGenerator generator) {
+        if (baseDepth + top >= config.maxDepth()) {
+            throw new LimitExceededException(
+                    String.format("The depth of a document exceeds the maximum of %d", config.maxDepth()));
         }
 
-        if (!hasConstructor(object) && !object.getClass().isRecord()) {
-            throw new PublicConstructorException(
-                    String.format("There is no public constructor with no parameters for class %s",
-                            object.getClass().getSimpleName()));
+        if (top == frames.length) {
+            frames = Arrays.copyOf(frames, top * 2);
         }
+        var frame = frames[top];
+        if (frame == null) {
+            frame = frames[top] = new Frame();
+        }
+        top++;
+
+        frame.kind = kind;
+        frame.generator = generator;
+        return frame;
     }
 
     /**
-     * Formats objects in list recursively.
+     * Ends a value of the frame on top of the work stack and pops it.
      *
-     * @param object        object in list
-     * @param stringBuilder StringBuilder object to process strings
-     * @param nullHandling  flag to check if class uses null values for serialization
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @param frame frame on top of the stack
      */
-    private void handleListRecursively(Object object, StringBuilder stringBuilder, boolean nullHandling)
-            throws IllegalAccessException {
-        var fields = object.getClass().getDeclaredFields();
-        for (int i = 0; i < fields.length; i++) {
-            fields[i].setAccessible(true);
+    private void pop(Frame frame) {
+        switch (frame.kind) {
+            case OBJECT, COMPILED -> {
+                frame.generator.endObject();
+                frame.generator.setNonFiniteHandling(frame.enclosingHandling);
+                path.remove(frame.object);
+            }
+            case INLINE -> {
+                frame.generator.setNonFiniteHandling(frame.enclosingHandling);
+                path.remove(frame.object);
+            }
+            case ELEMENTS -> frame.generator.endArray();
+            case ENTRIES -> frame.generator.endObject();
+        }
 
-            if (handleFieldRestrictions(fields, i)) {
-                continue;
+        frame.clear();
+        top--;
+    }
+
+    /**
+     * Writes an object that is met again inside itself the way the cycle policy sets.
+     *
+     * @param plan      plan of a class of an object
+     * @param obj       object that is being written
+     * @param generator generator to write JSON with
+     * @throws CyclicReferenceException if the policy is FAIL
+     */
+    private void writeCycle(ClassPlan plan, Object obj, JsonGenerator generator) {
+        switch (config.cyclePolicy()) {
+            case NULL -> generator.writeNull();
+            case REFERENCE -> {
+                generator.beginObject();
+                generator.writeEncodedName(REFERENCE_NAME);
+                generator.writeString(pointerTo(obj));
+                generator.endObject();
             }
+            default -> throw new CyclicReferenceException(
+                    String.format("The object %s is met again inside itself, the graph of objects has a cycle",
+                            plan.simpleName));
+        }
+        cycles++;
+    }
 
-            if (fields[i].isAnnotationPresent(Ignored.class)) {
-                continue;
+    /**
+     * Finds a JSON pointer to the place an object that is being written is written at.
+     *
+     * @param obj object that is being written
+     * @return JSON pointer from the root of a document
+     */
+    private String pointerTo(Object obj) {
+        for (var k = 0; k < top; k++) {
+            if (frames[k].object == obj) {
+                return pointerOf(k);
             }
+        }
 
-            var propertyName = fields[i].getName();
-            if (fields[i].isAnnotationPresent(PropertyName.class)) {
-                propertyName = fields[i].getAnnotation(PropertyName.class).value();
+        var objects = ancestors.objects;
+        for (var i = 0; i < objects.length; i++) {
+            if (objects[i] == obj) {
+                return ancestors.pointers[i];
             }
+        }
+        throw new IllegalStateException("An object being written is not on the work stack");
+    }
 
-            if (fields[i].get(object) == null && !nullHandling) {
-                continue;
+    /**
+     * Builds a JSON pointer to a value of a frame from the tokens of the frames below it.
+     *
+     * @param index index of a frame in the work stack
+     * @return JSON pointer from the root of a document
+     */
+    private String pointerOf(int index) {
+        var pointer = new StringBuilder(ancestors.prefix);
+        for (var k = 0; k < index; k++) {
+            var frame = frames[k];
+            pointer.append('/');
+            switch (frame.kind) {
+                case ELEMENTS -> pointer.append(frame.index);
+                case ENTRIES -> appendToken(pointer, NameCache.textOf(frame.key));
+                default -> appendToken(pointer, frame.property.name);
             }
+        }
+        return pointer.toString();
+    }
 
-            if (fields[i].get(object) != null) {
-                if (isWrapperOrPrimitive(fields[i])) {
-                    if (fields[i].getType() == String.class && fields[i].get(object) != null) {
-                        stringBuilder.append(String.format("\"%s\":\"%s\", ", propertyName, fields[i].get(object)));
-                    } else {
-                        if (fields[i].isAnnotationPresent(DateFormat.class)) {
-                            var value = handleDateFormatAnnotation(fields, object, i);
+    /**
+     * Appends a token of a JSON pointer, '~' is escaped as {@code ~0} and '/' as {@code ~1}.
+     *
+     * @param pointer pointer being built
+     * @param token   name of a property or a key of a map
+     */
+    private static void appendToken(StringBuilder pointer, String token) {
+        for (var i = 0; i < token.length(); i++) {
+            var c = token.charAt(i);
+            if (c == '~') {
+                pointer.append("~0");
+            } else if (c == '/') {
+                pointer.append("~1");
+            } else {
+                pointer.append(c);
+            }
+        }
+    }
 
-                            stringBuilder.append(String.format("\"%s\":%s, ", propertyName, value));
-                        } else {
-                            stringBuilder.append(String.format("\"%s\":%s, ", propertyName, fields[i].get(object)));
-                        }
-                    }
-                } else {
-                    checkRestrictionsForFieldType(fields, object, i);
+    /**
+     * Checks the size of a document against the maximum.
+     *
+     * @param generator generator of a document
+     * @throws LimitExceededException if a document is larger than allowed
+     */
+    private void checkOutputSize(JsonGenerator generator) {
+        checkOutputSize(offset + generator.written(), config);
+    }
 
-                    stringBuilder.append(String.format("\"%s\":{", propertyName));
+    /**
+     * Checks the size of a document against the maximum.
+     *
+     * @param written number of bytes of a document
+     * @param config  settings of a serializer
+     * @throws LimitExceededException if a document is larger than allowed
+     */
+    static void checkOutputSize(long written, SerializerConfig config) {
+        if (written > config.maxOutputSize()) {
+            throw new LimitExceededException(
+                    String.format("The size of a document exceeds the maximum of %d bytes", config.maxOutputSize()));
+        }
+    }
+
+    /**
+     * Writes a value of a property passed by a generated writer. Values nested in it are written in place
+     * if the object is not nested too deeply, otherwise, they are left on the work stack,
+     * and the properties passed after them are deferred until they are written.
+     *
+     * @param frame    frame of an object of a generated writer
+     * @param property planned property
+     * @param value    value of a property
+     */
+    void writeSinkValue(Frame frame, PropertyPlan property, Object value) {
+        var size = top;
+        frame.property = property;
+        formatValue(frame, property, value);
+
+        if (top != size) {
+            if (depth < MAX_INLINE_DEPTH) {
+                drain(size);
+            } else {
+                frame.deferring = true;
+            }
+        }
+    }
+
+    /**
+     * Keeps a value of a property of an object of a generated writer until the values before it are written.
+     *
+     * @param frame frame of an object of a generated writer
+     * @param index index of a property in the plan of a class
+     * @param value value of a property, primitive values are boxed
+     */
+    void defer(Frame frame, int index, Object value) {
+        var count = frame.plan.properties.length;
+        if (frame.deferredIndexes == null || frame.deferredIndexes.length < count) {
+            frame.deferredIndexes = new int[count];
+            frame.deferredValues = new Object[count];
+        }
+        frame.deferredIndexes[frame.deferredSize] = index;
+        frame.deferredValues[frame.deferredSize++] = value;
+    }
 
-                    handleListRecursively(fields[i].get(object), stringBuilder, nullHandling);
+    /**
+     * Formats a value of a property of a reference type of an object, in the way of its frame.
+     *
+     * @param frame    frame of an object
+     * @param property planned property
+     * @param value    value of a property
+     */
+    private void formatValue(Frame frame, PropertyPlan property, Object value) {
+        if (frame.inCollection) {
+            formatListProperty(property, value, frame.generator, frame.nullHandling);
+        } else {
+            formatProperty(property, value, frame.generator, frame.nullHandling);
+        }
+    }
 
-                    stringBuilder.append("},");
+    /**
+     * Formats a value of a property of a reference type to string in JSON format.
+     * Collections and maps are pushed to the work stack and are ended when their frames are.
+     *
+     * @param property     planned property
+     * @param value        value of a property
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     */
+    private void formatProperty(PropertyPlan property, Object value, JsonGenerator generator, boolean nullHandling) {
+        switch (property.kind) {
+            case OBJECT_COLLECTION -> {
+                if (nullHandling && value == null) {
+                    generator.writeEncodedName(property.encodedName);
+                    generator.writeNull();
+                } else if (value != null) {
+                    generator.writeEncodedName(property.encodedName);
+
+                    processCollection(generator, value, nullHandling);
                 }
+            }
+            case SIMPLE_COLLECTION -> {
+                if (nullHandling || value != null) {
+                    generator.writeEncodedName(property.encodedName);
+                    writeSimpleCollection(property, value, generator, nullHandling);
+                }
+            }
+            case PRIMITIVE_ARRAY, PRIMITIVE_COLLECTION -> {
+                if (nullHandling || value != null) {
+                    generator.writeEncodedName(property.encodedName);
+                    writePrimitives(property, value, generator);
+                }
+            }
+            case MAP -> {
+                if (nullHandling || value != null) {
+                    generator.writeEncodedName(property.encodedName);
+                    writeMap(property, (Map<?, ?>) value, generator, nullHandling);
+                }
+            }
+            case OBJECT -> processCustomTypes(property, value, generator, nullHandling);
+            default -> formatStringsOrSimpleTypes(property, value, generator, nullHandling);
+        }
+    }
+
+    /**
+     * Gets a writer generated for a class at compile time, or at runtime if compiled mode is on.
+     *
+     * @param plan plan of a class of an object
+     * @return generated writer, or null if a class is written reflectively
+     */
+    private TypeWriter writerOf(ClassPlan plan) {
+        TypeWriter writer = plan.writer;
+        if (writer == null && config.compiled()) {
+            writer = WriterCompiler.writerOf(plan);
+        }
+        return writer;
+    }
+
+    /**
+     * Formats properties of an object with a writer generated for its class.
+     *
+     * @param frame frame of an object of a generated writer
+     */
+    private void writeCompiled(Frame frame) {
+        if (sinks.size() == depth) {
+            sinks.add(new PropertySink(this));
+        }
+
+        var sink = sinks.get(depth);
+        sink.reset(frame);
+
+        depth++;
+        try {
+            frame.writer.writeProperties(frame.object, sink);
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * Formatting custom types to string in JSON format.
+     *
+     * @param property     planned property
+     * @param value        value of a property
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     */
+    private void processCustomTypes(PropertyPlan property, Object value, JsonGenerator generator,
+                                    boolean nullHandling) {
+        checkRestrictionsForFieldType(property, value);
+
+        if (!nullHandling && value == null) {
+            return;
+        }
+
+        generator.writeEncodedName(property.encodedName);
+
+        if (value != null) {
+            writeObject(ClassPlan.of(property.type), value, generator,
+                    ClassPlan.of(value.getClass()).nullHandling, false, null);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    /**
+     * Begins an array of a collection of custom types and pushes it to the work stack.
+     * A large list is written in parallel and ended in place instead.
+     *
+     * @param generator    generator to write JSON with
+     * @param collection   value of a collection field, see {@link #iteratorOf(Object)}
+     * @param nullHandling flag to check if class uses null values for serialization
+     */
+    private void processCollection(JsonGenerator generator, Object collection, boolean nullHandling) {
+        var threshold = config.parallelThreshold();
+        generator.beginArray();
+        if (threshold > 0 && collection instanceof List<?> list && list.size() >= threshold) {
+            processCollectionInParallel(generator, list, nullHandling);
+            generator.endArray();
+        } else {
+            pushElements(generator, null, collection, nullHandling);
+        }
+    }
+
+    /**
+     * Pushes a frame of a collection that is iterated in place, lists with random access by index.
+     *
+     * @param generator    generator to write JSON with
+     * @param property     planned property of kind SIMPLE_COLLECTION, or null for custom types
+     * @param collection   value of a collection field, see {@link #iteratorOf(Object)}
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @return pushed frame
+     */
+    private Frame pushElements(JsonGenerator generator, PropertyPlan property, Object collection,
+                               boolean nullHandling) {
+        var frame = push(FrameKind.ELEMENTS, generator);
+        frame.property = property;
+        frame.nullHandling = nullHandling;
+        frame.index = -1;
+        if (collection instanceof List<?> list && collection instanceof RandomAccess) {
+            frame.list = list;
+            frame.size = list.size();
+        } else {
+            frame.iterator = iteratorOf(collection);
+        }
+        return frame;
+    }
+
+    /**
+     * Formats an object of a collection of custom types, labeled with its class name.
+     *
+     * @param generator    generator to write JSON with
+     * @param listObject   object of a collection
+     * @param nullHandling flag to check if class uses null values for serialization
+     */
+    private void processElement(JsonGenerator generator, Object listObject, boolean nullHandling) {
+        if (!nullHandling && listObject == null) {
+            return;
+        }
+
+        if (listObject != null) {
+            var plan = ClassPlan.of(listObject.getClass());
+
+            checkRestrictionsOfObjectOfCollection(plan);
+
+            writeObject(plan, listObject, generator, nullHandling, true, plan.encodedLabel);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    /**
+     * Begins an array of a collection of simple values and pushes it to the work stack.
+     *
+     * @param property     planned property of kind SIMPLE_COLLECTION
+     * @param collection   value of a property, see {@link #iteratorOf(Object)}
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     */
+    private void writeSimpleCollection(PropertyPlan property, Object collection, JsonGenerator generator,
+                                       boolean nullHandling) {
+        if (collection == null) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.beginArray();
+        pushElements(generator, property, collection, nullHandling);
+    }
+
+    /**
+     * Gets an iterator over elements of a value of a collection property without copying them.
+     * Streams and iterators are consumed, so they are written once.
+     *
+     * @param collection an Iterable, a Stream, an Iterator or a Supplier of iterators
+     * @return iterator over elements
+     */
+    private static Iterator<?> iteratorOf(Object collection) {
+        if (collection instanceof Iterable<?> iterable) {
+            return iterable.iterator();
+        }
+        if (collection instanceof Stream<?> stream) {
+            return stream.iterator();
+        }
+        if (collection instanceof Supplier<?> supplier) {
+            return (Iterator<?>) supplier.get();
+        }
+        return (Iterator<?>) collection;
+    }
+
+    /**
+     * Splits a large collection into chunks, formats every chunk to its own buffer on a ForkJoinPool,
+     * and writes the chunks in the original order, so the output is the same as the sequential one.
+     * Chunks are written by writers of their own that know the objects this writer is inside of.
+     * If writing fails, chunks that have not started are cancelled, while running chunks are not interrupted:
+     * they are waited for, and their buffers are given back to the pool.
+     *
+     * @param generator    generator to write JSON with
+     * @param list         objects of a collection
+     * @param nullHandling flag to check if class uses null values for serialization
+     */
+    private void processCollectionInParallel(JsonGenerator generator, List<?> list, boolean nullHandling) {
+        var pool = config.forkJoinPool();
+        var chunkCount = Math.min(list.size(), pool.getParallelism() * 4);
+        var chunkSize = (list.size() + chunkCount - 1) / chunkCount;
+        var enclosing = enclosingAncestors();
+
+        List<ForkJoinTask<JsonOutput>> tasks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += chunkSize) {
+            var start = from;
+            var end = Math.min(list.size(), from + chunkSize);
+            var task = ForkJoinTask.adapt(() -> formatChunk(list, start, end, nullHandling, enclosing));
+            if (ForkJoinTask.getPool() == pool) {
+                task.fork();
             } else {
-                try {
-                    var field = object.getClass().getDeclaredField(fields[i].getName());
-                    Class<?> clazz = field.getType();
+                pool.execute(task);
+            }
+            tasks.add(task);
+        }
 
-                    if (!clazz.isAnnotationPresent(Exported.class) && !isWrapperOrPrimitive(field)) {
-                        throw new ExportedException(
-                                String.format("The object %s you want to write is not @Exported",
-                                        clazz.getSimpleName()));
+        var joined = 0;
+        try {
+            for (; joined < tasks.size(); joined++) {
+                var output = tasks.get(joined).join();
+                try {
+                    generator.writeElements(output, 1);
+                } finally {
+                    output.release();
+                }
+                checkOutputSize(generator);
+            }
+        } finally {
+            for (int i = joined + 1; i < tasks.size(); i++) {
+                var task = tasks.get(i);
+                if (!task.cancel(false)) {
+                    task.quietlyJoin();
+                    if (task.isCompletedNormally()) {
+                        task.getRawResult().release();
                     }
-
-                    stringBuilder.append(String.format("\"%s\":null, ", propertyName));
-                } catch (NoSuchFieldException e) {
-                    e.printStackTrace();
                 }
             }
         }
     }
 
     /**
-     * Checks if class is marked as @Exported,
-     * and checks if it has constructor with no parameters or if it is a record.
+     * Gets the objects this writer is inside of, with pointers to them if cycles are written as references.
      *
-     * @param fields an array of fields
-     * @param object serializing object
-     * @param index  index of a field in an array of fields
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @return ancestors of a collection written in parallel
+     */
+    private Ancestors enclosingAncestors() {
+        var reference = config.cyclePolicy() == CyclePolicy.REFERENCE;
+        List<Object> objects = new ArrayList<>(List.of(ancestors.objects));
+        List<String> pointers = new ArrayList<>(List.of(ancestors.pointers));
+        for (var k = 0; k < top; k++) {
+            if (frames[k].object != null) {
+                objects.add(frames[k].object);
+                pointers.add(reference ? pointerOf(k) : "");
+            }
+        }
+        return new Ancestors(objects.toArray(), pointers.toArray(String[]::new),
+                reference ? pointerOf(top) : "", baseDepth + top);
+    }
+
+    /**
+     * Formats objects of a chunk of a collection as elements of an array with a writer of its own.
+     *
+     * @param list         objects of a collection
+     * @param from         index of the first object of a chunk
+     * @param to           index after the last object of a chunk
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @param enclosing    objects the collection is inside of
+     * @return output that holds an opening bracket followed by the elements
+     */
+    private JsonOutput formatChunk(List<?> list, int from, int to, boolean nullHandling, Ancestors enclosing) {
+        var output = new JsonOutput();
+        try {
+            var chunkWriter = new JsonWriter(null, config);
+            chunkWriter.ancestors = enclosing;
+            chunkWriter.baseDepth = enclosing.depth;
+            for (var object : enclosing.objects) {
+                chunkWriter.path.add(object);
+            }
+
+            var chunkGenerator = chunkWriter.generatorFor(output);
+            chunkGenerator.beginArray();
+            var frame = chunkWriter.pushElements(chunkGenerator, null, list, nullHandling);
+            frame.index = from - 1;
+            frame.size = to;
+            while (chunkWriter.stepElements(frame)) {
+                chunkWriter.drain(1);
+            }
+            return output;
+        } catch (RuntimeException | Error e) {
+            output.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Begins a map as a JSON object and pushes it to the work stack, its entries are iterated in place.
+     * Names of keys are encoded once per property and copied afterwards.
+     *
+     * @param property     planned property of kind MAP
+     * @param map          value of a property
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     * @throws IllegalArgumentException if a key is null or is not a String, an enum or a number
+     */
+    private void writeMap(PropertyPlan property, Map<?, ?> map, JsonGenerator generator, boolean nullHandling) {
+        if (map == null) {
+            generator.writeNull();
+            return;
+        }
+
+        generator.beginObject();
+        var frame = push(FrameKind.ENTRIES, generator);
+        frame.property = property;
+        frame.nullHandling = nullHandling;
+        frame.iterator = map.entrySet().iterator();
+    }
+
+    /**
+     * Writes a value of a map entry or an element of a collection of simple values by its class,
+     * so maps with values of any type can be written.
+     *
+     * @param property  planned property of kind MAP or SIMPLE_COLLECTION
+     * @param value     value of an entry or an element
+     * @param generator generator to write JSON with
+     */
+    private void writeElementValue(PropertyPlan property, Object value, JsonGenerator generator) {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String || value instanceof Character) {
+            generator.writeString(value.toString());
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Enum<?>) {
+            writeSimpleValue(value, generator);
+        } else if (value instanceof LocalDate || value instanceof LocalTime || value instanceof LocalDateTime) {
+            generator.writeDate(property.dateWriter != null ? property.dateWriter : DateFormatWriter.ISO, value);
+        } else {
+            var plan = ClassPlan.of(value.getClass());
+            checkRestrictionsOfObjectOfCollection(plan);
+
+            writeObject(plan, value, generator, plan.nullHandling, false, null);
+        }
+    }
+
+    /**
+     * Checks restrictions for objects of a collection of custom types.
+     *
+     * @param plan plan of a class of an object from collection
      */
-    private void checkRestrictionsForFieldType(Field[] fields, Object object, int index) throws IllegalAccessException {
-        if (!fields[index].getType().isAnnotationPresent(Exported.class)) {
+    private void checkRestrictionsOfObjectOfCollection(ClassPlan plan) {
+        if (!plan.exported) {
             throw new ExportedException(
                     String.format("The object %s you want to write is not @Exported",
-                            fields[index].getType().getSimpleName()));
+                            plan.simpleName));
         }
 
-        if (!hasConstructor(fields[index].get(object)) && !fields[index].get(object).getClass().isRecord()) {
+        if (!plan.constructible) {
             throw new PublicConstructorException(
                     String.format("There is no public constructor with no parameters for class %s",
-                            fields[index].get(object).getClass().getSimpleName()));
+                            plan.simpleName));
         }
     }
 
     /**
-     * Formats fields of not custom types in JSON format.
+     * Formats a value of a property of a reference type of an object in list.
      *
-     * @param fields        an array of fields
-     * @param stringBuilder StringBuilder object to process operations with strings
-     * @param object        serializing object
-     * @param index         index of a field in an array of fields
-     * @param nullHandling  flag to check if class uses null values for serialization
-     * @param propertyName  name of a property
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @param property     planned property
+     * @param value        value of a property
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
      */
-    private void formatStringsOrSimpleTypes(Field[] fields, StringBuilder stringBuilder,
-                                            Object object, int index, boolean nullHandling,
-                                            String propertyName) throws IllegalAccessException {
-        if (fields[index].getType() == String.class && fields[index].get(object) != null) {
-            stringBuilder.append(String.format("\"%s\":\"%s\",", propertyName, fields[index].get(object)));
-        } else if (nullHandling || fields[index].get(object) != null) {
-            if (fields[index].isAnnotationPresent(DateFormat.class)) {
-                var value = handleDateFormatAnnotation(fields, object, index);
+    private void formatListProperty(PropertyPlan property, Object value, JsonGenerator generator,
+                                    boolean nullHandling) {
+        if (value == null && !nullHandling) {
+            return;
+        }
 
-                stringBuilder.append(String.format("\"%s\":\"%s\",", propertyName, value));
+        if (property.kind == PropertyPlan.ValueKind.PRIMITIVE_ARRAY ||
+                property.kind == PropertyPlan.ValueKind.PRIMITIVE_COLLECTION) {
+            generator.writeEncodedName(property.encodedName);
+            writePrimitives(property, value, generator);
+        } else if (property.kind == PropertyPlan.ValueKind.MAP) {
+            generator.writeEncodedName(property.encodedName);
+            writeMap(property, (Map<?, ?>) value, generator, nullHandling);
+        } else if (property.kind == PropertyPlan.ValueKind.SIMPLE_COLLECTION) {
+            generator.writeEncodedName(property.encodedName);
+            writeSimpleCollection(property, value, generator, nullHandling);
+        } else if (value != null) {
+            if (property.isWrapperOrPrimitive()) {
+                generator.writeEncodedName(property.encodedName);
+
+                if (property.kind == PropertyPlan.ValueKind.STRING) {
+                    generator.writeString(value.toString());
+                } else if (property.dateWriter != null) {
+                    generator.writeDate(property.dateWriter, value);
+                } else {
+                    writeSimpleValue(value, generator);
+                }
             } else {
-                stringBuilder.append(String.format("\"%s\":%s,", propertyName, fields[index].get(object)));
+                checkRestrictionsForFieldType(property, value);
+
+                generator.writeEncodedName(property.encodedName);
+
+                writeObject(ClassPlan.of(value.getClass()), value, generator, nullHandling, true, null);
+            }
+        } else {
+            if (!property.typeExported && !property.isWrapperOrPrimitive()) {
+                throw new ExportedException(
+                        String.format("The object %s you want to write is not @Exported",
+                                property.type.getSimpleName()));
             }
-        }
 
+            generator.writeEncodedName(property.encodedName);
+            generator.writeNull();
+        }
     }
 
     /**
-     * Handles fields that marked as @DateFormat.
+     * Checks if class is marked as @Exported,
+     * and checks if it has constructor with no parameters or if it is a record.
      *
-     * @param fields an array of fields
-     * @param object serializing object
-     * @param index  an index of a field in an array of fields
-     * @return string representation of a new format of fields of types LocalDate, LocalTime, LocalDateTime
-     * @throws IllegalAccessException if an illegal access attempt has occurred
+     * @param property planned property
+     * @param value    value of a property
      */
-    private String handleDateFormatAnnotation(Field[] fields, Object object, int index) throws IllegalAccessException {
-        var format =
-                DateTimeFormatter.ofPattern(fields[index].getAnnotation(DateFormat.class).pattern());
+    private void checkRestrictionsForFieldType(PropertyPlan property, Object value) {
+        if (!property.typeExported) {
+            throw new ExportedException(
+                    String.format("The object %s you want to write is not @Exported",
+                            property.type.getSimpleName()));
+        }
 
-        String value = " ";
+        if (value != null && !ClassPlan.of(value.getClass()).constructible) {
+            throw new PublicConstructorException(
+                    String.format("There is no public constructor with no parameters for class %s",
+                            value.getClass().getSimpleName()));
+        }
+    }
 
-        if (fields[index].get(object) instanceof LocalDate) {
-            value = ((LocalDate) fields[index].get(object)).format(format);
-        } else if (fields[index].get(object) instanceof LocalDateTime) {
-            value = ((LocalDateTime) fields[index].get(object)).format(format);
-        } else if (fields[index].get(object) instanceof LocalTime) {
-            value = ((LocalTime) fields[index].get(object)).format(format);
+    /**
+     * Formats fields of not custom types in JSON format.
+     *
+     * @param property     planned property
+     * @param value        value of a property
+     * @param generator    generator to write JSON with
+     * @param nullHandling flag to check if class uses null values for serialization
+     */
+    private void formatStringsOrSimpleTypes(PropertyPlan property, Object value, JsonGenerator generator,
+                                            boolean nullHandling) {
+        if (!nullHandling && value == null) {
+            return;
         }
 
-        return value;
+        generator.writeEncodedName(property.encodedName);
+
+        if (property.kind == PropertyPlan.ValueKind.STRING) {
+            generator.writeString(value != null ? value.toString() : null);
+        } else if (value == null) {
+            generator.writeNull();
+        } else if (property.dateWriter != null) {
+            generator.writeDate(property.dateWriter, value);
+        } else {
+            writeSimpleValue(value, generator);
+        }
     }
 
     /**
-     * Checks if class is a simple type, not custom.
+     * Writes a value of a wrapper, enum, or date type, numbers and booleans without creating strings,
+     * and enum constants as their encoded names.
      *
-     * @param type checking class
-     * @return true if a class is wrapper, LocalDate, LocalTime, LocalDateTime, otherwise, false
+     * @param value     value of a property
+     * @param generator generator to write JSON with
      */
-    private boolean isCorrectGenericType(Class<?> type) {
-        return type.getSimpleName().equals("Integer") ||
-                type.getSimpleName().equals("Double") ||
-                type.getSimpleName().equals("Long") ||
-                type.getSimpleName().equals("Float") ||
-                type.getSimpleName().equals("Short") ||
-                type.getSimpleName().equals("Character") ||
-                type.getSimpleName().equals("String") ||
-                type.getSimpleName().equals("Byte") ||
-                type.getSimpleName().equals("Boolean") ||
-                type.getSimpleName().equals("LocalDate") ||
-                type.getSimpleName().equals("LocalTime") ||
-                type.getSimpleName().equals("LocalDateTime");
+    private static void writeSimpleValue(Object value, JsonGenerator generator) {
+        if (value instanceof Integer number) {
+            generator.writeNumber(number.intValue());
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number.longValue());
+        } else if (value instanceof Double number) {
+            generator.writeNumber(number.doubleValue());
+        } else if (value instanceof Float number) {
+            generator.writeNumber(number.floatValue());
+        } else if (value instanceof Short number) {
+            generator.writeNumber(number.shortValue());
+        } else if (value instanceof Byte number) {
+            generator.writeNumber(number.byteValue());
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else if (value instanceof Enum<?> constant) {
+            generator.writeEncodedValue(EnumNames.nameOf(constant));
+        } else {
+            generator.writeRawValue(value.toString());
+        }
     }
 
     /**
-     * Checks a field's type is primitive, wrapper, LocalDate, LocalDateTime, LocalTime, Enum.
+     * Writes a primitive array or a collection of primitive values in place, without boxing or copying elements.
      *
-     * @param field checking field
-     * @return true if a field's type is one of
-     * primitive, wrapper, LocalDate, LocalDateTime, LocalTime, Enum, otherwise, false
+     * @param property  planned property of kind PRIMITIVE_ARRAY or PRIMITIVE_COLLECTION
+     * @param value     value of a property
+     * @param generator generator to write JSON with
      */
-    private boolean isWrapperOrPrimitive(Field field) {
-        return field.getType() == Double.class ||
-                field.getType() == Float.class ||
-                field.getType() == Long.class ||
-                field.getType() == Integer.class ||
-                field.getType() == Short.class ||
-                field.getType() == Character.class ||
-                field.getType() == Byte.class ||
-                field.getType() == Boolean.class ||
-                field.getType().isPrimitive() ||
-                field.getType() == String.class ||
-                field.getType().isEnum() ||
-                field.getType() == LocalDate.class ||
-                field.getType() == LocalTime.class ||
-                field.getType() == LocalDateTime.class;
+    private void writePrimitives(PropertyPlan property, Object value, JsonGenerator generator) {
+        if (value == null) {
+            generator.writeNull();
+        } else if (property.kind == PropertyPlan.ValueKind.PRIMITIVE_COLLECTION) {
+            generator.beginArray();
+            property.primitiveWriter.writeElements(value, generator);
+            generator.endArray();
+        } else if (value instanceof int[] values) {
+            generator.writeArray(values);
+        } else if (value instanceof long[] values) {
+            generator.writeArray(values);
+        } else if (value instanceof double[] values) {
+            generator.writeArray(values);
+        } else if (value instanceof byte[] values) {
+            if (config.base64Bytes()) {
+                generator.writeBase64(values);
+            } else {
+                generator.writeArray(values);
+            }
+        } else if (value instanceof float[] values) {
+            generator.writeArray(values);
+        } else if (value instanceof short[] values) {
+            generator.writeArray(values);
+        } else {
+            generator.writeArray((boolean[]) value);
+        }
     }
 
     /**
-     * Checks if a field's type is a collection of List or Set.
+     * Writes a value of a primitive field without boxing it.
      *
-     * @param field some field
-     * @return true if a field is collection, otherwise, false
+     * @param property  planned property of a primitive type
+     * @param object    serializing object
+     * @param generator generator to write JSON with
      */
-    private boolean isCollection(Field field) {
-        return field.getType() == List.class ||
-                field.getType() == Set.class;
+    private void appendPrimitive(PropertyPlan property, Object object, JsonGenerator generator) {
+        var accessor = property.accessor;
+        var type = property.type;
+
+        if (type == int.class) {
+            generator.writeNumber(accessor.getInt(object));
+        } else if (type == long.class) {
+            generator.writeNumber(accessor.getLong(object));
+        } else if (type == double.class) {
+            generator.writeNumber(accessor.getDouble(object));
+        } else if (type == boolean.class) {
+            generator.writeBoolean(accessor.getBoolean(object));
+        } else if (type == float.class) {
+            generator.writeNumber(accessor.getFloat(object));
+        } else if (type == char.class) {
+            generator.writeString(String.valueOf(accessor.getChar(object)));
+        } else if (type == short.class) {
+            generator.writeNumber(accessor.getShort(object));
+        } else {
+            generator.writeNumber(accessor.getByte(object));
+        }
     }
 
     @Override
@@ -478,4 +1437,145 @@ public class JsonWriter implements Restriction {
             return true;
         }
     }
+
+    /**
+     * Kinds of frames of the work stack.
+     */
+    private enum FrameKind {
+        /**
+         * Object written reflectively, a property at a time.
+         */
+        OBJECT,
+
+        /**
+         * Object written by a generated writer, its properties after a nested value that is left
+         * on the stack are deferred.
+         */
+        COMPILED,
+
+        /**
+         * Object written by itself, it is finished by the call that pushed it.
+         */
+        INLINE,
+
+        /**
+         * Collection written an element at a time.
+         */
+        ELEMENTS,
+
+        /**
+         * Map written an entry at a time.
+         */
+        ENTRIES
+    }
+
+    /**
+     * Frame of the work stack, a value that is begun and is not ended yet.
+     * A PropertySink reads the plan, the generator and the deferring flag of a frame of a generated writer.
+     */
+    static final class Frame {
+        private FrameKind kind;
+
+        JsonGenerator generator;
+
+        /**
+         * Object of an object frame.
+         */
+        private Object object;
+
+        ClassPlan plan;
+
+        private TypeWriter writer;
+
+        /**
+         * Property that is being written by an object frame, or the property of a collection of simple values
+         * or of a map, null for a collection of custom types.
+         */
+        private PropertyPlan property;
+
+        private boolean nullHandling;
+
+        private boolean inCollection;
+
+        /**
+         * Handling of non-finite numbers restored when an object is ended.
+         */
+        private NonFiniteHandling enclosingHandling;
+
+        /**
+         * Index of the next property of an object, or of the current element of a collection.
+         */
+        private int index;
+
+        /**
+         * List with random access, iterated up to the size, or null if the iterator is used.
+         */
+        private List<?> list;
+
+        private int size;
+
+        private Iterator<?> iterator;
+
+        /**
+         * Key of the current entry of a map.
+         */
+        private Object key;
+
+        /**
+         * True if a generated writer has begun writing properties of an object.
+         */
+        private boolean started;
+
+        /**
+         * True if properties passed by a generated writer are deferred, because a value before them
+         * is left on the stack.
+         */
+        boolean deferring;
+
+        /**
+         * Indexes and values of deferred properties, reused by objects of the frame.
+         */
+        private int[] deferredIndexes;
+
+        private Object[] deferredValues;
+
+        private int deferredSize;
+
+        /**
+         * Index of the next deferred property to write.
+         */
+        private int deferredNext;
+
+        private void clear() {
+            generator = null;
+            object = null;
+            plan = null;
+            writer = null;
+            started = false;
+            deferring = false;
+            if (deferredSize > 0) {
+                Arrays.fill(deferredValues, 0, deferredSize, null);
+            }
+            deferredSize = 0;
+            deferredNext = 0;
+            property = null;
+            enclosingHandling = null;
+            index = 0;
+            list = null;
+            iterator = null;
+            key = null;
+        }
+    }
+
+    /**
+     * Objects a writer of a chunk of a collection is inside of, and where they are written.
+     *
+     * @param objects  objects compared by identity
+     * @param pointers JSON pointers to the objects, empty if cycles are not written as references
+     * @param prefix   JSON pointer to the collection
+     * @param depth    depth of the collection
+     */
+    private record Ancestors(Object[] objects, String[] pointers, String prefix, int depth) {
+        private static final Ancestors NONE = new Ancestors(new Object[0], new String[0], "", 0);
+    }
 }
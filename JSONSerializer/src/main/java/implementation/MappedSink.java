@@ -0,0 +1,101 @@
+package implementation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stream that writes encoded JSON into a file mapped to memory.
+ * The file is mapped in windows of a fixed size, the next window is mapped when the current one is full,
+ * so a document of any size is written without write calls and the page cache writes it back to disk.
+ * Windows are not forced, a full window is dropped and the kernel writes it back like any dirty page.
+ * The file must be truncated to {@link #length()} after the sink is closed, since the last window is not full.
+ * <p>
+ * Mapped regions stay valid until their buffers are collected, so the file is truncated while they may still
+ * be mapped. Linux and macOS allow it, Windows does not, which is why writing through mapping is supported
+ * on Linux and macOS only.
+ */
+final class MappedSink extends OutputStream {
+    private final FileChannel channel;
+
+    /**
+     * Size of a mapped window in bytes.
+     */
+    private final int windowSize;
+
+    /**
+     * Current window, null when the sink is closed.
+     */
+    private MappedByteBuffer window;
+
+    /**
+     * Position of the current window in the file, or a length of a document when the sink is closed.
+     */
+    private long windowStart;
+
+    /**
+     * Creates a sink that writes a file from the beginning.
+     *
+     * @param channel    channel of a file opened for reading and writing
+     * @param windowSize size of a mapped window in bytes
+     * @throws IOException if a file cannot be mapped
+     */
+    MappedSink(FileChannel channel, int windowSize) throws IOException {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.window = channel.map(FileChannel.MapMode.READ_WRITE, 0, windowSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!window.hasRemaining()) {
+            nextWindow();
+        }
+        window.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!window.hasRemaining()) {
+                nextWindow();
+            }
+
+            var count = Math.min(length, window.remaining());
+            window.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Gets a number of written bytes.
+     *
+     * @return length of a document
+     */
+    long length() {
+        return window == null ? windowStart : windowStart + window.position();
+    }
+
+    /**
+     * Drops the last window. Writing to a closed sink fails.
+     */
+    @Override
+    public void close() {
+        if (window != null) {
+            windowStart += window.position();
+            window = null;
+        }
+    }
+
+    private void nextWindow() throws IOException {
+        if (window == null) {
+            throw new IOException("The sink is closed");
+        }
+
+        window = null;
+        windowStart += windowSize;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+    }
+}
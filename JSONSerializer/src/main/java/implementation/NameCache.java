@@ -0,0 +1,65 @@
+package implementation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names of map entries encoded once to UTF-8 in the form {@code "name":}, keyed by map keys.
+ * A cache belongs to a property and is shared between threads. It stops growing at a fixed size,
+ * so maps with unbounded keys, e.g. ids, encode new keys every time and do not fill memory.
+ */
+final class NameCache {
+    /**
+     * Number of keys a cache holds at most.
+     */
+    static final int MAX_SIZE = 4096;
+
+    private final Map<Object, byte[]> names = new ConcurrentHashMap<>();
+
+    /**
+     * Gets an encoded name of a map key.
+     *
+     * @param key key of a map, a String, an enum or a number
+     * @return name in the form {@code "name":}
+     * @throws IllegalArgumentException if a key is null or of another type
+     */
+    byte[] nameOf(Object key) {
+        if (key == null) {
+            textOf(null);
+        }
+
+        var name = names.get(key);
+        if (name != null) {
+            return name;
+        }
+
+        name = JsonOutput.encodeName(textOf(key));
+        if (names.size() < MAX_SIZE) {
+            names.putIfAbsent(key, name);
+        }
+        return name;
+    }
+
+    /**
+     * Gets a text of a map key, the name of an enum constant, or the decimal form of a number.
+     *
+     * @param key key of a map
+     * @return text of a name
+     * @throws IllegalArgumentException if a key is null or not a String, an enum or a number
+     */
+    static String textOf(Object key) {
+        if (key instanceof String text) {
+            return text;
+        }
+        if (key instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        if (key instanceof Number) {
+            return key.toString();
+        }
+        throw new IllegalArgumentException(key == null
+                ? "A null key of a map cannot be written as a name"
+                : String.format("The key %s of type %s cannot be written as a name, " +
+                "keys of maps must be strings, enums or numbers", key, key.getClass().getSimpleName()));
+    }
+}
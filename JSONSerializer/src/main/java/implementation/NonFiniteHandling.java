@@ -0,0 +1,26 @@
+package implementation;
+
+/**
+ * Sets handling of NaN and infinite values of float and double types, which JSON has no numbers for.
+ */
+public enum NonFiniteHandling {
+    /**
+     * Writes NaN, Infinity and -Infinity as they are, the way Double.toString does it.
+     */
+    LITERAL,
+
+    /**
+     * Writes NaN, Infinity and -Infinity as strings.
+     */
+    STRING,
+
+    /**
+     * Writes null instead of a value.
+     */
+    NULL,
+
+    /**
+     * Throws NonFiniteNumberException.
+     */
+    FAIL
+}
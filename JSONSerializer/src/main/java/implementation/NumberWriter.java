@@ -0,0 +1,408 @@
+package implementation;
+
+import java.math.BigInteger;
+
+/**
+ * Writes numbers as ASCII digits straight into a byte buffer, without creating strings.
+ * Integers are written two digits at a time from a table of digit pairs.
+ * Floating point numbers are written with the Schubfach algorithm by Raffaello Giulietti,
+ * which finds the shortest decimal that rounds to the same value,
+ * in the format of {@link Double#toString(double)} and {@link Float#toString(float)}.
+ */
+final class NumberWriter {
+    /**
+     * Most bytes a number is written with, e.g. {@code -2.2250738585072014E-308}.
+     */
+    static final int MAX_LENGTH = 24;
+
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes();
+
+    /**
+     * Number of significant digits a double is normalized to.
+     */
+    private static final int H = 17;
+
+    private static final long DOUBLE_C_MIN = 1L << 52;
+    private static final int DOUBLE_Q_MIN = -1074;
+    private static final long DOUBLE_C_TINY = 3;
+
+    private static final long FLOAT_C_MIN = 1L << 23;
+    private static final int FLOAT_Q_MIN = -149;
+    private static final long FLOAT_C_TINY = 8;
+
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final int MASK_28 = (1 << 28) - 1;
+
+    /**
+     * The 126-bit approximations g of powers of ten used by Schubfach, as pairs of the upper and lower 63 bits.
+     * For 10^-k = b 2^r with 2^125 <= b < 2^126, g = floor(b) + 1.
+     */
+    private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+
+        var mask63 = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            var r = flog2pow10(-k) - 125;
+            BigInteger beta;
+            if (k <= 0) {
+                var power = BigInteger.TEN.pow(-k);
+                beta = r >= 0 ? power.shiftRight(r) : power.shiftLeft(-r);
+            } else {
+                beta = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+            }
+            var g = beta.add(BigInteger.ONE);
+            G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+            G[2 * (k - K_MIN) + 1] = g.and(mask63).longValue();
+        }
+    }
+
+    private NumberWriter() {
+    }
+
+    /**
+     * Writes an integer number.
+     *
+     * @param buffer   buffer with room for at least {@link #MAX_LENGTH} bytes at a position
+     * @param position index to write at
+     * @param value    number to write
+     * @return index after the written number
+     */
+    static int writeLong(byte[] buffer, int position, long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                System.arraycopy(LONG_MIN_VALUE, 0, buffer, position, LONG_MIN_VALUE.length);
+                return position + LONG_MIN_VALUE.length;
+            }
+            buffer[position++] = '-';
+            value = -value;
+        }
+
+        var end = position + digitCount(value);
+        var pos = end;
+        while (value >= 100) {
+            var quotient = value / 100;
+            var pair = (int) (value - quotient * 100) << 1;
+            buffer[--pos] = DIGIT_PAIRS[pair + 1];
+            buffer[--pos] = DIGIT_PAIRS[pair];
+            value = quotient;
+        }
+        if (value >= 10) {
+            var pair = (int) value << 1;
+            buffer[--pos] = DIGIT_PAIRS[pair + 1];
+            buffer[--pos] = DIGIT_PAIRS[pair];
+        } else {
+            buffer[--pos] = (byte) ('0' + value);
+        }
+        return end;
+    }
+
+    /**
+     * Writes a double number the way {@link Double#toString(double)} writes it, with the shortest digits.
+     *
+     * @param buffer   buffer with room for at least {@link #MAX_LENGTH} bytes at a position
+     * @param position index to write at
+     * @param value    number to write
+     * @return index after the written number
+     */
+    static int writeDouble(byte[] buffer, int position, double value) {
+        var bits = Double.doubleToRawLongBits(value);
+        var t = bits & DOUBLE_C_MIN - 1;
+        var bq = (int) (bits >>> 52) & 0x7FF;
+        if (bq == 0x7FF) {
+            return writeNonFinite(buffer, position, value);
+        }
+
+        if (bits < 0) {
+            buffer[position++] = '-';
+        }
+
+        if (bq != 0) {
+            var mq = -DOUBLE_Q_MIN + 1 - bq;
+            var c = DOUBLE_C_MIN | t;
+            if (0 < mq && mq < 53) {
+                var f = c >> mq;
+                if (f << mq == c) {
+                    return toChars(buffer, position, f, 0);
+                }
+            }
+            return toDecimal(buffer, position, -mq, c, 0, DOUBLE_C_MIN, DOUBLE_Q_MIN);
+        }
+        if (t != 0) {
+            return t < DOUBLE_C_TINY
+                    ? toDecimal(buffer, position, DOUBLE_Q_MIN, 10 * t, -1, DOUBLE_C_MIN, DOUBLE_Q_MIN)
+                    : toDecimal(buffer, position, DOUBLE_Q_MIN, t, 0, DOUBLE_C_MIN, DOUBLE_Q_MIN);
+        }
+        return writeZero(buffer, position);
+    }
+
+    /**
+     * Writes a float number the way {@link Float#toString(float)} writes it, with the shortest digits.
+     *
+     * @param buffer   buffer with room for at least {@link #MAX_LENGTH} bytes at a position
+     * @param position index to write at
+     * @param value    number to write
+     * @return index after the written number
+     */
+    static int writeFloat(byte[] buffer, int position, float value) {
+        var bits = Float.floatToRawIntBits(value);
+        var t = bits & FLOAT_C_MIN - 1;
+        var bq = (bits >>> 23) & 0xFF;
+        if (bq == 0xFF) {
+            return writeNonFinite(buffer, position, value);
+        }
+
+        if (bits < 0) {
+            buffer[position++] = '-';
+        }
+
+        if (bq != 0) {
+            var mq = -FLOAT_Q_MIN + 1 - bq;
+            var c = FLOAT_C_MIN | t;
+            if (0 < mq && mq < 24) {
+                var f = c >> mq;
+                if (f << mq == c) {
+                    return toChars(buffer, position, f, 0);
+                }
+            }
+            return toDecimal(buffer, position, -mq, c, 0, FLOAT_C_MIN, FLOAT_Q_MIN);
+        }
+        if (t != 0) {
+            return t < FLOAT_C_TINY
+                    ? toDecimal(buffer, position, FLOAT_Q_MIN, 10L * t, -1, FLOAT_C_MIN, FLOAT_Q_MIN)
+                    : toDecimal(buffer, position, FLOAT_Q_MIN, t, 0, FLOAT_C_MIN, FLOAT_Q_MIN);
+        }
+        return writeZero(buffer, position);
+    }
+
+    private static int writeZero(byte[] buffer, int position) {
+        buffer[position++] = '0';
+        buffer[position++] = '.';
+        buffer[position++] = '0';
+        return position;
+    }
+
+    private static int writeNonFinite(byte[] buffer, int position, double value) {
+        var text = Double.isNaN(value) ? "NaN" : value > 0 ? "Infinity" : "-Infinity";
+        for (int i = 0; i < text.length(); i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+        return position;
+    }
+
+    /**
+     * Finds the shortest decimal in the rounding interval of c 2^q and writes it.
+     *
+     * @param q    binary exponent
+     * @param c    binary significand
+     * @param dk   correction of a decimal exponent, -1 if c was multiplied by 10
+     * @param cMin smallest significand of a normal value of a format
+     * @param qMin smallest exponent of a format
+     */
+    private static int toDecimal(byte[] buffer, int position, int q, long c, int dk, long cMin, int qMin) {
+        var out = (int) c & 0x1;
+        var cb = c << 2;
+        var cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != cMin || q == qMin) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        var h = q + flog2pow10(-k) + 2;
+
+        var g1 = G[2 * (k - K_MIN)];
+        var g0 = G[2 * (k - K_MIN) + 1];
+
+        var vb = rop(g1, g0, cb << h);
+        var vbl = rop(g1, g0, cbl << h);
+        var vbr = rop(g1, g0, cbr << h);
+
+        var s = vb >> 2;
+        if (s >= 100) {
+            var sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            var tp10 = sp10 + 10;
+            var upin = vbl + out <= sp10 << 2;
+            var wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return toChars(buffer, position, upin ? sp10 : tp10, k);
+            }
+        }
+
+        var t = s + 1;
+        var uin = vbl + out <= s << 2;
+        var win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return toChars(buffer, position, uin ? s : t, k + dk);
+        }
+
+        var cmp = vb - (s + t << 1);
+        return toChars(buffer, position, cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk);
+    }
+
+    /**
+     * Rounds the product of g and cp to odd, keeping the upper bits.
+     */
+    private static long rop(long g1, long g0, long cp) {
+        var x1 = Math.multiplyHigh(g0, cp);
+        var y0 = g1 * cp;
+        var y1 = Math.multiplyHigh(g1, cp);
+        var z = (y0 >>> 1) + x1;
+        var vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    /**
+     * Writes f 10^e, plain for 10^-3 <= f 10^e < 10^7, otherwise, in computerized scientific notation.
+     */
+    private static int toChars(byte[] buffer, int position, long f, int e) {
+        var length = digitCount(f);
+        f *= POWERS_OF_TEN[H - length];
+        e += length;
+
+        // Split 17 digits into the first one, the next 8 and the last 8.
+        var hm = Math.multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+        var l = (int) (f - 100_000_000L * hm);
+        var h = (int) (hm * 1_441_151_881L >>> 57);
+        var m = (int) (hm - 100_000_000 * h);
+
+        if (0 < e && e <= 7) {
+            return plainWithoutLeadingZeros(buffer, position, h, m, l, e);
+        }
+        if (-3 < e && e <= 0) {
+            return plainWithLeadingZeros(buffer, position, h, m, l, e);
+        }
+        return scientific(buffer, position, h, m, l, e);
+    }
+
+    private static int plainWithoutLeadingZeros(byte[] buffer, int position, int h, int m, int l, int e) {
+        buffer[position++] = (byte) ('0' + h);
+        var y = y(m);
+        var i = 1;
+        for (; i < e; i++) {
+            var t = 10 * y;
+            buffer[position++] = (byte) ('0' + (t >>> 28));
+            y = t & MASK_28;
+        }
+        buffer[position++] = '.';
+        for (; i <= 8; i++) {
+            var t = 10 * y;
+            buffer[position++] = (byte) ('0' + (t >>> 28));
+            y = t & MASK_28;
+        }
+        return lowDigits(buffer, position, l);
+    }
+
+    private static int plainWithLeadingZeros(byte[] buffer, int position, int h, int m, int l, int e) {
+        buffer[position++] = '0';
+        buffer[position++] = '.';
+        for (; e < 0; e++) {
+            buffer[position++] = '0';
+        }
+        buffer[position++] = (byte) ('0' + h);
+        position = eightDigits(buffer, position, m);
+        return lowDigits(buffer, position, l);
+    }
+
+    private static int scientific(byte[] buffer, int position, int h, int m, int l, int e) {
+        buffer[position++] = (byte) ('0' + h);
+        buffer[position++] = '.';
+        position = eightDigits(buffer, position, m);
+        position = lowDigits(buffer, position, l);
+
+        e--;
+        buffer[position++] = 'E';
+        if (e < 0) {
+            buffer[position++] = '-';
+            e = -e;
+        }
+        if (e >= 100) {
+            var d = e * 1_311 >>> 17;
+            buffer[position++] = (byte) ('0' + d);
+            e -= 100 * d;
+            buffer[position++] = DIGIT_PAIRS[e << 1];
+            buffer[position++] = DIGIT_PAIRS[(e << 1) + 1];
+        } else if (e >= 10) {
+            buffer[position++] = DIGIT_PAIRS[e << 1];
+            buffer[position++] = DIGIT_PAIRS[(e << 1) + 1];
+        } else {
+            buffer[position++] = (byte) ('0' + e);
+        }
+        return position;
+    }
+
+    /**
+     * Writes the last 8 digits, then removes trailing zeros but keeps one digit after the point.
+     */
+    private static int lowDigits(byte[] buffer, int position, int l) {
+        if (l != 0) {
+            position = eightDigits(buffer, position, l);
+        }
+        while (buffer[position - 1] == '0') {
+            position--;
+        }
+        if (buffer[position - 1] == '.') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Writes 8 digits from left to right with multiplications only.
+     */
+    private static int eightDigits(byte[] buffer, int position, int m) {
+        var y = y(m);
+        for (int i = 0; i < 8; i++) {
+            var t = 10 * y;
+            buffer[position++] = (byte) ('0' + (t >>> 28));
+            y = t & MASK_28;
+        }
+        return position;
+    }
+
+    private static int y(int a) {
+        return (int) (Math.multiplyHigh((long) (a + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+    }
+
+    /**
+     * Counts decimal digits of a non-negative number.
+     *
+     * @param value non-negative number
+     * @return number of digits, 1 for zero
+     */
+    static int digitCount(long value) {
+        var count = (64 - Long.numberOfLeadingZeros(value | 1)) * 1233 >>> 12;
+        return (value | 1) >= POWERS_OF_TEN[count] ? count + 1 : count;
+    }
+
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+}
@@ -0,0 +1,85 @@
+package implementation;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Pool of objects that are reused between calls, e.g. per-call contexts of a serializer.
+ * Objects are kept in a fixed number of slots, a thread starts looking for a free object
+ * at a slot chosen by its id, so the pool works the same way for platform and virtual threads
+ * and does not keep an object per thread.
+ *
+ * @param <T> type of objects
+ */
+final class ObjectPool<T> {
+    /**
+     * Factory of new objects.
+     */
+    private final Supplier<T> factory;
+
+    private final AtomicReferenceArray<T> slots;
+
+    private final int mask;
+
+    /**
+     * Creates a pool.
+     *
+     * @param factory  factory of new objects
+     * @param capacity number of pooled objects, rounded up to a power of two
+     */
+    ObjectPool(Supplier<T> factory, int capacity) {
+        var size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+
+        this.factory = factory;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Takes an object from the pool, or creates a new one if the pool is empty.
+     *
+     * @return pooled or new object
+     */
+    T acquire() {
+        var start = probe();
+        for (int i = 0; i <= mask; i++) {
+            var index = (start + i) & mask;
+            if (slots.get(index) != null) {
+                var object = slots.getAndSet(index, null);
+                if (object != null) {
+                    return object;
+                }
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Gives an object back to the pool, the object is dropped if the pool is full.
+     *
+     * @param object object taken from the pool
+     */
+    void release(T object) {
+        var start = probe();
+        for (int i = 0; i <= mask; i++) {
+            var index = (start + i) & mask;
+            if (slots.get(index) == null && slots.compareAndSet(index, null, object)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets a number of slots of the pool.
+     *
+     * @return capacity rounded up to a power of two
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    private static int probe() {
+        var id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 32)) * 0x9E3779B9 >>> 16;
+    }
+}
@@ -0,0 +1,47 @@
+package implementation;
+
+/**
+ * Writes elements of a collection of primitive values, e.g. an {@code IntList}, without boxing them.
+ * Implementations are registered in META-INF/services/implementation.PrimitiveCollectionWriter,
+ * and fields of a written type or its subtypes are written as JSON arrays.
+ *
+ * @param <T> type of collections
+ */
+public interface PrimitiveCollectionWriter<T> {
+    /**
+     * Gets a type of collections this writer writes.
+     *
+     * @return written type
+     */
+    Class<T> type();
+
+    /**
+     * Writes every element of a collection with a writeNumber or writeBoolean method of a generator.
+     * The array is begun and ended by the serializer.
+     *
+     * @param collection written collection, not null
+     * @param generator  generator to write elements with
+     */
+    void writeElements(T collection, JsonGenerator generator);
+
+    /**
+     * Gets a type of arrays elements of a collection are read to, e.g. {@code int[].class} for an {@code IntList}.
+     * By default, collections of this type are not read, and the deserializer fails on them.
+     *
+     * @return primitive array type, or null if collections cannot be read
+     */
+    default Class<?> arrayType() {
+        return null;
+    }
+
+    /**
+     * Creates a collection of elements read by the deserializer.
+     *
+     * @param elements array of {@link #arrayType()} with read elements
+     * @return collection of elements
+     */
+    default T fromArray(Object elements) {
+        throw new UnsupportedOperationException(
+                String.format("Collections of %s cannot be read", type().getSimpleName()));
+    }
+}
@@ -0,0 +1,44 @@
+package implementation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Writers of collections of primitive values, loaded once with ServiceLoader.
+ */
+final class PrimitiveCollectionWriters {
+    private static final List<PrimitiveCollectionWriter<?>> WRITERS = load();
+
+    private PrimitiveCollectionWriters() {
+    }
+
+    /**
+     * Gets a writer of a declared type of a field, it is looked up once when a class is planned.
+     *
+     * @param type some class
+     * @return first registered writer of a type or its supertype, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    static PrimitiveCollectionWriter<Object> writerOf(Class<?> type) {
+        for (var writer : WRITERS) {
+            if (writer.type().isAssignableFrom(type)) {
+                return (PrimitiveCollectionWriter<Object>) writer;
+            }
+        }
+        return null;
+    }
+
+    private static List<PrimitiveCollectionWriter<?>> load() {
+        List<PrimitiveCollectionWriter<?>> writers = new ArrayList<>();
+        try {
+            for (var writer : ServiceLoader.load(PrimitiveCollectionWriter.class)) {
+                writers.add(writer);
+            }
+        } catch (ServiceConfigurationError e) {
+            // A broken registration only disables writers of primitive collections.
+        }
+        return List.copyOf(writers);
+    }
+}
@@ -0,0 +1,347 @@
+package implementation;
+
+import interfaces.DateFormat;
+import interfaces.Exported;
+import interfaces.PropertyName;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Immutable serialization plan of a single property.
+ */
+final class PropertyPlan {
+    /**
+     * Kinds of values that are formatted differently.
+     */
+    enum ValueKind {
+        /**
+         * String or Character value.
+         */
+        STRING,
+
+        /**
+         * Primitive, wrapper, enum, LocalDate, LocalTime or LocalDateTime value.
+         * Enum constants are written as quoted names.
+         */
+        SIMPLE,
+
+        /**
+         * Collection, Iterable, Iterator, Stream or Supplier of iterators of simple values.
+         */
+        SIMPLE_COLLECTION,
+
+        /**
+         * Collection, Iterable, Iterator, Stream or Supplier of iterators of custom types.
+         */
+        OBJECT_COLLECTION,
+
+        /**
+         * Array of int, long, double, float, short, byte or boolean values.
+         */
+        PRIMITIVE_ARRAY,
+
+        /**
+         * Collection of primitive values written by a PrimitiveCollectionWriter.
+         */
+        PRIMITIVE_COLLECTION,
+
+        /**
+         * Map with String, enum or number keys, written as an object.
+         */
+        MAP,
+
+        /**
+         * Custom type.
+         */
+        OBJECT
+    }
+
+    /**
+     * Reflected field, accessible for reading, null if a property is read by a generated writer.
+     */
+    final Field field;
+
+    /**
+     * Accessor bound to a field, null if a property is read by a generated writer.
+     */
+    final FieldAccessor accessor;
+
+    /**
+     * Name of a property, taking @PropertyName into account.
+     */
+    final String name;
+
+    /**
+     * Name of a property encoded once to UTF-8 in the form {@code "name":}, copied as it is on every write.
+     */
+    final byte[] encodedName;
+
+    /**
+     * Declared type of a field.
+     */
+    final Class<?> type;
+
+    /**
+     * Kind of a value.
+     */
+    final ValueKind kind;
+
+    /**
+     * Generic type of collection elements or map values, null if a field is not a collection or a map.
+     */
+    final Class<?> elementType;
+
+    /**
+     * Encoded names of map keys, null if a field is not a map.
+     */
+    final NameCache keyNames;
+
+    /**
+     * True if a declared type of a field is marked as @Exported.
+     */
+    final boolean typeExported;
+
+    /**
+     * Compiled pattern of a field marked as @DateFormat, the ISO writer for other LocalDate,
+     * LocalTime and LocalDateTime fields, otherwise, null.
+     */
+    final DateFormatWriter dateWriter;
+
+    /**
+     * Writer of a collection of primitive values registered for a declared type of a field, otherwise, null.
+     */
+    final PrimitiveCollectionWriter<Object> primitiveWriter;
+
+    PropertyPlan(Field field) {
+        field.setAccessible(true);
+
+        this.field = field;
+        this.type = field.getType();
+
+        try {
+            this.accessor = new FieldAccessor(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(
+                    String.format("The field %s cannot be read", field.getName()), e);
+        }
+        this.typeExported = type.isAnnotationPresent(Exported.class);
+
+        var propertyName = field.getAnnotation(PropertyName.class);
+        this.name = propertyName != null ? propertyName.value() : field.getName();
+        this.encodedName = JsonOutput.encodeName(name);
+
+        this.primitiveWriter = PrimitiveCollectionWriters.writerOf(type);
+        this.elementType = elementTypeOf(field);
+        this.kind = kindOf(type, elementType, primitiveWriter);
+        this.keyNames = kind == ValueKind.MAP ? new NameCache() : null;
+
+        var dateFormat = field.getAnnotation(DateFormat.class);
+        this.dateWriter = dateWriterOf(elementType != null ? elementType : type,
+                dateFormat != null ? dateFormat.pattern() : null);
+    }
+
+    /**
+     * Builds a plan of a property described by the annotation processor.
+     *
+     * @param property generated description of a property
+     */
+    PropertyPlan(GeneratedProperty property) {
+        this.field = null;
+        this.accessor = null;
+        this.name = property.name();
+        this.encodedName = JsonOutput.encodeName(name);
+        this.type = property.type();
+        this.typeExported = property.typeExported();
+        this.primitiveWriter = PrimitiveCollectionWriters.writerOf(type);
+        this.elementType = isCollection(type) || isMap(type) || type == Supplier.class
+                ? property.elementType() != null ? property.elementType() : Object.class
+                : null;
+        this.kind = kindOf(type, elementType, primitiveWriter);
+        this.keyNames = kind == ValueKind.MAP ? new NameCache() : null;
+        this.dateWriter = dateWriterOf(elementType != null ? elementType : type, property.datePattern());
+    }
+
+    /**
+     * Compiles a pattern of @DateFormat of a field.
+     *
+     * @param type    declared type of a field
+     * @param pattern pattern of @DateFormat, null if a field is not marked as @DateFormat
+     * @return compiled pattern, the ISO writer for dates without a pattern, or null if a field is not a date
+     */
+    private static DateFormatWriter dateWriterOf(Class<?> type, String pattern) {
+        if (pattern != null) {
+            return DateFormatWriter.of(pattern);
+        }
+        if (type == LocalDate.class || type == LocalTime.class || type == LocalDateTime.class) {
+            return DateFormatWriter.ISO;
+        }
+        return null;
+    }
+
+    /**
+     * Gets a kind of values of a type.
+     *
+     * @param type            declared type of a field
+     * @param elementType     generic type of collection elements or map values, null for other types
+     * @param primitiveWriter writer of a collection of primitive values, or null
+     * @return kind of values
+     */
+    private static ValueKind kindOf(Class<?> type, Class<?> elementType,
+                                    PrimitiveCollectionWriter<Object> primitiveWriter) {
+        if (isPrimitiveArray(type)) {
+            return ValueKind.PRIMITIVE_ARRAY;
+        }
+        if (primitiveWriter != null) {
+            return ValueKind.PRIMITIVE_COLLECTION;
+        }
+        if (isMap(type)) {
+            return ValueKind.MAP;
+        }
+        if (elementType != null) {
+            return isCorrectGenericType(elementType) ? ValueKind.SIMPLE_COLLECTION : ValueKind.OBJECT_COLLECTION;
+        }
+        if (type == String.class || type == Character.class) {
+            return ValueKind.STRING;
+        }
+        if (isWrapperOrPrimitive(type)) {
+            return ValueKind.SIMPLE;
+        }
+        return ValueKind.OBJECT;
+    }
+
+    /**
+     * Checks if a value of a property is written as a simple value and not as an object.
+     *
+     * @return true if a property is of kind STRING or SIMPLE, otherwise, false
+     */
+    boolean isWrapperOrPrimitive() {
+        return kind == ValueKind.STRING || kind == ValueKind.SIMPLE;
+    }
+
+    /**
+     * Gets generic type of elements of a collection field or of values of a map field.
+     *
+     * @param field some field
+     * @return class of elements or values, Object if it is unknown, or null if a field is neither
+     */
+    private static Class<?> elementTypeOf(Field field) {
+        var type = field.getType();
+        if (isCollection(type)) {
+            return getGenericType(field.getGenericType(), 0);
+        }
+        if (isMap(type)) {
+            return getGenericType(field.getGenericType(), 1);
+        }
+        if (type == Supplier.class && field.getGenericType() instanceof ParameterizedType supplier &&
+                supplier.getActualTypeArguments()[0] instanceof ParameterizedType iterator &&
+                iterator.getRawType() == Iterator.class) {
+            return getGenericType(iterator, 0);
+        }
+        return null;
+    }
+
+    /**
+     * Gets an argument of a generic type.
+     *
+     * @param genericType generic type of a field
+     * @param index       index of a type argument
+     * @return class of an argument, or Object if it is unknown
+     */
+    private static Class<?> getGenericType(Type genericType, int index) {
+        if (genericType instanceof ParameterizedType type &&
+                type.getActualTypeArguments().length > index &&
+                type.getActualTypeArguments()[index] instanceof Class<?> argument) {
+            return argument;
+        }
+        return Object.class;
+    }
+
+    /**
+     * Checks if class is a simple type, not custom.
+     *
+     * @param type checking class
+     * @return true if a class is wrapper, String, LocalDate, LocalTime, LocalDateTime, otherwise, false
+     */
+    private static boolean isCorrectGenericType(Class<?> type) {
+        return type == Integer.class ||
+                type == Double.class ||
+                type == Long.class ||
+                type == Float.class ||
+                type == Short.class ||
+                type == Character.class ||
+                type == String.class ||
+                type == Byte.class ||
+                type == Boolean.class ||
+                type == LocalDate.class ||
+                type == LocalTime.class ||
+                type == LocalDateTime.class;
+    }
+
+    /**
+     * Checks a type is primitive, wrapper, String, LocalDate, LocalDateTime, LocalTime, Enum.
+     *
+     * @param type checking class
+     * @return true if a type is one of
+     * primitive, wrapper, String, LocalDate, LocalDateTime, LocalTime, Enum, otherwise, false
+     */
+    private static boolean isWrapperOrPrimitive(Class<?> type) {
+        return type == Double.class ||
+                type == Float.class ||
+                type == Long.class ||
+                type == Integer.class ||
+                type == Short.class ||
+                type == Character.class ||
+                type == Byte.class ||
+                type == Boolean.class ||
+                type.isPrimitive() ||
+                type == String.class ||
+                type.isEnum() ||
+                type == LocalDate.class ||
+                type == LocalTime.class ||
+                type == LocalDateTime.class;
+    }
+
+    /**
+     * Checks if a type is an array of a primitive type other than char.
+     *
+     * @param type some class
+     * @return true if a type is written as a JSON array of numbers or booleans, otherwise, false
+     */
+    static boolean isPrimitiveArray(Class<?> type) {
+        var component = type.getComponentType();
+        return component != null && component.isPrimitive() && component != char.class;
+    }
+
+    /**
+     * Checks if a type is a Map or an implementation of it.
+     *
+     * @param type some class
+     * @return true if a type is a map, otherwise, false
+     */
+    private static boolean isMap(Class<?> type) {
+        return Map.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Checks if a type is iterated as a collection: any Collection or Iterable, an Iterator or a Stream.
+     * An @Exported class is written as an object even if it is Iterable.
+     *
+     * @param type some class
+     * @return true if a type is collection, otherwise, false
+     */
+    private static boolean isCollection(Class<?> type) {
+        return !type.isAnnotationPresent(Exported.class) &&
+                (Iterable.class.isAssignableFrom(type) ||
+                        Iterator.class.isAssignableFrom(type) ||
+                        Stream.class.isAssignableFrom(type));
+    }
+}
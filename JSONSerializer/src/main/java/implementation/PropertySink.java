@@ -0,0 +1,124 @@
+package implementation;
+
+/**
+ * Receives property values from writers generated for @Exported classes
+ * and formats them the same way JsonWriter does.
+ * Values passed after a nested value that is left on the work stack of the writer are deferred,
+ * so an object of a generated writer can be resumed instead of nesting calls.
+ * Properties are passed by their indexes in the plan of a class, so their names are copied
+ * from the names encoded once when the class was planned.
+ */
+public final class PropertySink {
+    /**
+     * Writer that formats values of reference types.
+     */
+    private final JsonWriter jsonWriter;
+
+    /**
+     * Frame of an object that is being written.
+     */
+    private JsonWriter.Frame frame;
+
+    PropertySink(JsonWriter jsonWriter) {
+        this.jsonWriter = jsonWriter;
+    }
+
+    /**
+     * Switches the sink to another object.
+     *
+     * @param frame frame of an object of a generated writer
+     */
+    void reset(JsonWriter.Frame frame) {
+        this.frame = frame;
+    }
+
+    public void writeInt(int index, int value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeNumber(value);
+        }
+    }
+
+    public void writeLong(int index, long value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeNumber(value);
+        }
+    }
+
+    public void writeDouble(int index, double value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeNumber(value);
+        }
+    }
+
+    public void writeFloat(int index, float value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeNumber(value);
+        }
+    }
+
+    public void writeBoolean(int index, boolean value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeBoolean(value);
+        }
+    }
+
+    public void writeChar(int index, char value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeString(String.valueOf(value));
+        }
+    }
+
+    public void writeShort(int index, short value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeNumber(value);
+        }
+    }
+
+    public void writeByte(int index, byte value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            nameOf(index).writeNumber(value);
+        }
+    }
+
+    /**
+     * Writes a value of a property of a reference type.
+     *
+     * @param index index of a property in the plan of a class
+     * @param value value of a property
+     */
+    public void writeValue(int index, Object value) {
+        if (frame.deferring) {
+            jsonWriter.defer(frame, index, value);
+        } else {
+            jsonWriter.writeSinkValue(frame, frame.plan.properties[index], value);
+        }
+    }
+
+    /**
+     * Writes a name of a property.
+     *
+     * @param index index of a property in the plan of a class
+     * @return generator to write a value with
+     */
+    private JsonGenerator nameOf(int index) {
+        var generator = frame.generator;
+        generator.writeEncodedName(frame.plan.properties[index].encodedName);
+        return generator;
+    }
+}
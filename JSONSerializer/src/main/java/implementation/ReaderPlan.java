@@ -0,0 +1,246 @@
+package implementation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable deserialization plan of a class.
+ * It is built once per class with reflection, even if a class has a generated writer,
+ * and holds names of properties in UTF-8, setters of fields, and a constructor bound as method handles.
+ */
+final class ReaderPlan {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<ReaderPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected ReaderPlan computeValue(Class<?> type) {
+            return new ReaderPlan(type);
+        }
+    };
+
+    /**
+     * Serialization plan of a class, used for its restrictions.
+     */
+    final ClassPlan classPlan;
+
+    /**
+     * Properties that are read, the same as written ones.
+     */
+    final PropertyPlan[] properties;
+
+    /**
+     * Names of properties in UTF-8.
+     */
+    private final byte[][] names;
+
+    /**
+     * Setters of type (Object, Object)void, null for a record.
+     */
+    private final MethodHandle[] setters;
+
+    /**
+     * Indexes of arguments of the canonical constructor of a record, null for other classes.
+     */
+    private final int[] components;
+
+    /**
+     * Constructor of type ()Object, or the canonical constructor of a record of type (Object[])Object.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * Default values of components of a record, zeros for primitive ones, null for other classes.
+     */
+    private final Object[] defaults;
+
+    private ReaderPlan(Class<?> type) {
+        this.classPlan = ClassPlan.of(type);
+
+        List<PropertyPlan> list = new ArrayList<>();
+        if (classPlan.exported) {
+            for (var field : type.getDeclaredFields()) {
+                if (!ClassPlan.isSkipped(field)) {
+                    list.add(new PropertyPlan(field));
+                }
+            }
+        }
+        this.properties = list.toArray(new PropertyPlan[0]);
+
+        this.names = new byte[properties.length][];
+        for (int i = 0; i < properties.length; i++) {
+            names[i] = properties[i].name.getBytes(StandardCharsets.UTF_8);
+        }
+
+        try {
+            if (type.isRecord()) {
+                var recordComponents = type.getRecordComponents();
+                var parameterTypes = new Class<?>[recordComponents.length];
+                this.defaults = new Object[recordComponents.length];
+                for (int i = 0; i < recordComponents.length; i++) {
+                    parameterTypes[i] = recordComponents[i].getType();
+                    defaults[i] = parameterTypes[i].isPrimitive()
+                            ? Array.get(Array.newInstance(parameterTypes[i], 1), 0)
+                            : null;
+                }
+
+                this.components = new int[properties.length];
+                for (int i = 0; i < properties.length; i++) {
+                    components[i] = indexOfComponent(recordComponents, properties[i].field.getName());
+                }
+
+                var canonical = accessible(type.getDeclaredConstructor(parameterTypes));
+                this.constructor = LOOKUP.unreflectConstructor(canonical)
+                        .asSpreader(Object[].class, parameterTypes.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                this.setters = null;
+            } else {
+                this.components = null;
+                this.defaults = null;
+                this.constructor = classPlan.constructible && classPlan.exported
+                        ? LOOKUP.unreflectConstructor(accessible(type.getConstructor()))
+                        .asType(MethodType.methodType(Object.class))
+                        : null;
+
+                this.setters = new MethodHandle[properties.length];
+                for (int i = 0; i < properties.length; i++) {
+                    setters[i] = LOOKUP.unreflectSetter(properties[i].field)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                    String.format("The class %s cannot be read", type.getSimpleName()), e);
+        }
+    }
+
+    /**
+     * Gets a plan of a class, building it on first use.
+     *
+     * @param type some class
+     * @return shared plan of a class
+     */
+    static ReaderPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Checks if a class is a record, its objects are built from all values at once.
+     *
+     * @return true if a class is a record
+     */
+    boolean isRecord() {
+        return components != null;
+    }
+
+    /**
+     * Finds a property by the current name of a parser, trying the expected one first,
+     * since properties are usually written in declaration order.
+     *
+     * @param parser   parser at a name
+     * @param expected index of the expected property
+     * @return index of a property, or -1 if there is no such property
+     */
+    int indexOf(JsonParser parser, int expected) {
+        var count = names.length;
+        for (int i = 0; i < count; i++) {
+            var index = expected + i < count ? expected + i : expected + i - count;
+            if (parser.textEquals(names[index])) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates an object of a class with a constructor with no parameters.
+     *
+     * @return new object
+     */
+    Object newInstance() {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Creates arguments of the canonical constructor of a record filled with default values.
+     *
+     * @return new arguments
+     */
+    Object[] newArguments() {
+        return defaults.clone();
+    }
+
+    /**
+     * Sets a value of a property to arguments of the canonical constructor of a record.
+     *
+     * @param arguments arguments of a constructor
+     * @param index     index of a property
+     * @param value     value of a property
+     */
+    void setArgument(Object[] arguments, int index, Object value) {
+        arguments[components[index]] = value;
+    }
+
+    /**
+     * Creates a record with the canonical constructor.
+     *
+     * @param arguments values of components
+     * @return new record
+     */
+    Object newRecord(Object[] arguments) {
+        try {
+            return (Object) constructor.invokeExact(arguments);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Sets a value of a property of an object.
+     *
+     * @param target object of a class
+     * @param index  index of a property
+     * @param value  value of a type of a property, boxed for primitive properties
+     */
+    void set(Object target, int index, Object value) {
+        try {
+            setters[index].invokeExact(target, value);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static <T extends AccessibleObject> T accessible(T member) {
+        member.setAccessible(true);
+        return member;
+    }
+
+    private static int indexOfComponent(RecordComponent[] components, String name) {
+        for (int i = 0; i < components.length; i++) {
+            if (components[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException(String.format("The record has no component %s", name));
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(e);
+    }
+}
@@ -0,0 +1,17 @@
+package implementation;
+
+/**
+ * Scanner that checks chars one by one, used when the Vector API is not available.
+ */
+final class ScalarEscapeScanner implements EscapeScanner {
+    @Override
+    public int scan(char[] chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            var c = chars[i];
+            if (c < 0x20 || c >= 0x80 || c == '"' || c == '\\') {
+                return i;
+            }
+        }
+        return to;
+    }
+}
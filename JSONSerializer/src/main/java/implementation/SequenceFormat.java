@@ -0,0 +1,16 @@
+package implementation;
+
+/**
+ * Sets how a sequence of objects is written to one stream.
+ */
+public enum SequenceFormat {
+    /**
+     * Writes objects as elements of one JSON array.
+     */
+    JSON_ARRAY,
+
+    /**
+     * Writes every object as a JSON document on its own line, newline-delimited JSON.
+     */
+    NDJSON
+}
@@ -0,0 +1,165 @@
+package implementation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Serializes independent objects of a sequence concurrently and writes them to one stream in input order.
+ * Every object is written by a task of an executor to a buffer of its own,
+ * the calling thread writes finished buffers to the stream in order and waits for the oldest one
+ * when a window of objects is in flight, so memory does not depend on the length of a sequence.
+ * When an object fails, no more objects are submitted and objects in flight are cancelled.
+ * <p>
+ * Any executor works, e.g. a fixed thread pool, or a virtual thread per task executor on Java 21.
+ * References of cycles and the maximum size are counted from the start of a sequence, as in
+ * DefaultSerializer.writeAll, although the maximum can be passed by the objects in flight before it is noticed.
+ */
+public final class SerializationPipeline {
+    /**
+     * Serializer every object is written with.
+     */
+    private final DefaultSerializer serializer;
+
+    /**
+     * Executor of serialization tasks.
+     */
+    private final Executor executor;
+
+    /**
+     * Most objects that are serialized or wait to be written at once.
+     */
+    private final int window;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param serializer serializer every object is written with
+     * @param executor   executor of serialization tasks
+     * @param window     most objects that are serialized or wait to be written at once
+     * @throws IllegalArgumentException if a window is not positive
+     */
+    public SerializationPipeline(DefaultSerializer serializer, Executor executor, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException(String.format("The window %d must be positive", window));
+        }
+
+        this.serializer = Objects.requireNonNull(serializer, "serializer");
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.window = window;
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream, the stream is flushed but not closed.
+     * Null elements are written as null.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @param format       a JSON array or newline-delimited JSON
+     * @throws IOException if there are problems with IO streams.
+     */
+    public void writeAll(Iterator<?> objects, OutputStream outputStream, SequenceFormat format) throws IOException {
+        Objects.requireNonNull(format, "format");
+
+        var output = new JsonOutput(outputStream);
+        var generator = new JsonGenerator(output);
+        var array = format == SequenceFormat.JSON_ARRAY;
+        var inFlight = new ArrayDeque<CompletableFuture<JsonOutput>>(window);
+        try {
+            if (array) {
+                generator.beginArray();
+            }
+
+            var index = 0;
+            while (objects.hasNext()) {
+                if (inFlight.size() == window) {
+                    writeNext(inFlight, generator, output, array);
+                }
+
+                var object = objects.next();
+                var element = array ? index++ : -1;
+                var offset = output.written();
+                inFlight.add(CompletableFuture.supplyAsync(() -> serializer.encode(object, element, offset), executor));
+            }
+            while (!inFlight.isEmpty()) {
+                writeNext(inFlight, generator, output, array);
+            }
+
+            if (array) {
+                generator.endArray();
+            }
+            output.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            discard(inFlight);
+            output.release();
+        }
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream, the stream is flushed but not closed.
+     * The sequence is not closed either.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @param format       a JSON array or newline-delimited JSON
+     * @throws IOException if there are problems with IO streams.
+     */
+    public void writeAll(Stream<?> objects, OutputStream outputStream, SequenceFormat format) throws IOException {
+        writeAll(objects.iterator(), outputStream, format);
+    }
+
+    /**
+     * Waits for the oldest object in flight and writes it, the size of the whole sequence is checked
+     * against the maximum of the serializer.
+     */
+    private void writeNext(ArrayDeque<CompletableFuture<JsonOutput>> inFlight, JsonGenerator generator,
+                                  JsonOutput output, boolean array) {
+        JsonOutput fragment;
+        try {
+            fragment = inFlight.peek().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        inFlight.poll();
+
+        try {
+            if (array) {
+                generator.writeElements(fragment, 0);
+            } else {
+                fragment.copyTo(output, 0);
+                output.write('\n');
+            }
+        } finally {
+            fragment.release();
+        }
+        JsonWriter.checkOutputSize(output.written(), serializer.getConfig());
+    }
+
+    /**
+     * Cancels objects that will not be written after a failure, so tasks that have not started yet do nothing,
+     * and gives back buffers of objects that are already serialized.
+     */
+    private static void discard(ArrayDeque<CompletableFuture<JsonOutput>> inFlight) {
+        for (var future : inFlight) {
+            if (!future.cancel(false)) {
+                future.thenAccept(JsonOutput::release);
+            }
+        }
+        inFlight.clear();
+    }
+}
@@ -0,0 +1,353 @@
+package implementation;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable settings of a DefaultSerializer.
+ * A serializer built from a config can be shared between threads.
+ */
+public final class SerializerConfig {
+    /**
+     * Settings of {@code new DefaultSerializer()}.
+     */
+    public static final SerializerConfig DEFAULT = builder().build();
+
+    private final boolean compiled;
+
+    private final int pooledContexts;
+
+    private final int parallelThreshold;
+
+    private final ForkJoinPool forkJoinPool;
+
+    private final int mappedWindowSize;
+
+    private final boolean base64Bytes;
+
+    private final FragmentCache fragmentCache;
+
+    private final CyclePolicy cyclePolicy;
+
+    private final int maxDepth;
+
+    private final long maxOutputSize;
+
+    private SerializerConfig(Builder builder) {
+        this.compiled = builder.compiled;
+        this.pooledContexts = builder.pooledContexts;
+        this.parallelThreshold = builder.parallelThreshold;
+        this.forkJoinPool = builder.forkJoinPool;
+        this.mappedWindowSize = builder.mappedWindowSize;
+        this.base64Bytes = builder.base64Bytes;
+        this.fragmentCache = builder.fragmentCache;
+        this.cyclePolicy = builder.cyclePolicy;
+        this.maxDepth = builder.maxDepth;
+        this.maxOutputSize = builder.maxOutputSize;
+    }
+
+    /**
+     * Creates a builder with default settings.
+     *
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a builder with settings of this config.
+     *
+     * @return new builder
+     */
+    public Builder toBuilder() {
+        var builder = new Builder().compiled(compiled).pooledContexts(pooledContexts).forkJoinPool(forkJoinPool)
+                .base64Bytes(base64Bytes).fragmentCache(fragmentCache).cyclePolicy(cyclePolicy).maxDepth(maxDepth)
+                .maxOutputSize(maxOutputSize);
+        builder.parallelThreshold = parallelThreshold;
+        builder.mappedWindowSize = mappedWindowSize;
+        return builder;
+    }
+
+    /**
+     * Checks if @Exported classes are written with writers generated at runtime.
+     *
+     * @return true if writers are generated on first use of a class
+     */
+    public boolean compiled() {
+        return compiled;
+    }
+
+    /**
+     * Gets a number of per-call contexts a serializer keeps for reuse.
+     *
+     * @return number of pooled contexts
+     */
+    public int pooledContexts() {
+        return pooledContexts;
+    }
+
+    /**
+     * Gets a size from which collections of @Exported objects are written in parallel.
+     *
+     * @return size of a collection, or 0 if collections are written sequentially
+     */
+    public int parallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Gets a pool collections are written in parallel with.
+     *
+     * @return pool of parallel tasks, the common pool by default
+     */
+    public ForkJoinPool forkJoinPool() {
+        return forkJoinPool != null ? forkJoinPool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Gets a size of windows files are mapped to memory with when they are written by path.
+     *
+     * @return size of a window in bytes, or 0 if files are written with a channel
+     */
+    public int mappedWindowSize() {
+        return mappedWindowSize;
+    }
+
+    /**
+     * Checks if byte[] fields are written as base64 strings.
+     *
+     * @return true for base64 strings, false for arrays of numbers
+     */
+    public boolean base64Bytes() {
+        return base64Bytes;
+    }
+
+    /**
+     * Gets a cache of JSON of records and @Immutable objects.
+     *
+     * @return shared cache, or null if objects are always formatted
+     */
+    public FragmentCache fragmentCache() {
+        return fragmentCache;
+    }
+
+    /**
+     * Gets handling of an object that is met again inside itself.
+     *
+     * @return policy of cycles, FAIL by default
+     */
+    public CyclePolicy cyclePolicy() {
+        return cyclePolicy;
+    }
+
+    /**
+     * Gets a number of objects, collections and maps that can be nested inside each other.
+     *
+     * @return maximum depth of a document
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Gets a number of bytes a document can take.
+     *
+     * @return maximum size of a document in bytes
+     */
+    public long maxOutputSize() {
+        return maxOutputSize;
+    }
+
+    /**
+     * Builder of a SerializerConfig.
+     */
+    public static final class Builder {
+        private boolean compiled;
+
+        private int pooledContexts = Runtime.getRuntime().availableProcessors() * 4;
+
+        private int parallelThreshold;
+
+        private ForkJoinPool forkJoinPool;
+
+        private int mappedWindowSize;
+
+        private boolean base64Bytes;
+
+        private FragmentCache fragmentCache;
+
+        private CyclePolicy cyclePolicy = CyclePolicy.FAIL;
+
+        private int maxDepth = 1000;
+
+        private long maxOutputSize = Long.MAX_VALUE;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets generation of writers for @Exported classes at runtime, off by default.
+         *
+         * @param compiled flag to generate a dedicated writer for every @Exported class on first use,
+         *                 classes without a generated writer are written reflectively
+         * @return this builder
+         */
+        public Builder compiled(boolean compiled) {
+            this.compiled = compiled;
+            return this;
+        }
+
+        /**
+         * Sets a number of per-call contexts a serializer keeps for reuse, four per processor by default.
+         * Calls that find no free context create one, and it is dropped if the pool is full,
+         * so the number of threads does not change how much is kept.
+         *
+         * @param pooledContexts number of pooled contexts, rounded up to a power of two
+         * @return this builder
+         * @throws IllegalArgumentException if a number is not positive
+         */
+        public Builder pooledContexts(int pooledContexts) {
+            if (pooledContexts <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("The number of pooled contexts %d must be positive", pooledContexts));
+            }
+            this.pooledContexts = pooledContexts;
+            return this;
+        }
+
+        /**
+         * Turns on parallel writing of collections of @Exported objects, off by default.
+         * A collection with at least the given number of elements is split into chunks,
+         * the chunks are written to their own buffers on a ForkJoinPool and joined in the original order,
+         * so the output is the same as the sequential one.
+         *
+         * @param parallelThreshold size from which a collection is written in parallel
+         * @return this builder
+         * @throws IllegalArgumentException if a size is less than 2
+         */
+        public Builder parallelThreshold(int parallelThreshold) {
+            if (parallelThreshold < 2) {
+                throw new IllegalArgumentException(
+                        String.format("The parallel threshold %d must be at least 2", parallelThreshold));
+            }
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        /**
+         * Sets a pool collections are written in parallel with, the common pool by default.
+         *
+         * @param forkJoinPool pool of parallel tasks, null for the common pool
+         * @return this builder
+         */
+        public Builder forkJoinPool(ForkJoinPool forkJoinPool) {
+            this.forkJoinPool = forkJoinPool;
+            return this;
+        }
+
+        /**
+         * Turns on writing of files by path through memory mapping, off by default.
+         * A file is mapped in windows of the given size as a document grows,
+         * and the file is truncated to the length of a document at the end.
+         * Windows are written back by the page cache, nothing is forced to disk.
+         * Large windows, e.g. 64 MB, suit multi-gigabyte documents.
+         * Supported on Linux and macOS only, Windows does not truncate files while windows may still be mapped.
+         *
+         * @param mappedWindowSize size of a mapped window in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if a size is not positive
+         */
+        public Builder mappedWindowSize(int mappedWindowSize) {
+            if (mappedWindowSize <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("The mapped window size %d must be positive", mappedWindowSize));
+            }
+            this.mappedWindowSize = mappedWindowSize;
+            return this;
+        }
+
+        /**
+         * Sets writing of byte[] fields as base64 strings, off by default, so they are arrays of numbers.
+         *
+         * @param base64Bytes flag to write byte[] fields as strings in standard base64 with padding
+         * @return this builder
+         */
+        public Builder base64Bytes(boolean base64Bytes) {
+            this.base64Bytes = base64Bytes;
+            return this;
+        }
+
+        /**
+         * Turns on caching of JSON of records and classes marked as @Immutable, off by default.
+         * An object found in the cache is copied to the output as encoded bytes instead of being formatted.
+         *
+         * @param fragmentCache cache shared by all calls, null to turn caching off
+         * @return this builder
+         */
+        public Builder fragmentCache(FragmentCache fragmentCache) {
+            this.fragmentCache = fragmentCache;
+            return this;
+        }
+
+        /**
+         * Sets handling of an object that is met again inside itself, e.g. a child that refers to its parent.
+         * Objects are compared by identity, and only the objects a writer is inside of are checked,
+         * so an object shared by siblings is written every time. Cycles fail by default.
+         *
+         * @param cyclePolicy policy of cycles
+         * @return this builder
+         * @throws IllegalArgumentException if a policy is null
+         */
+        public Builder cyclePolicy(CyclePolicy cyclePolicy) {
+            if (cyclePolicy == null) {
+                throw new IllegalArgumentException("The cycle policy must not be null");
+            }
+            this.cyclePolicy = cyclePolicy;
+            return this;
+        }
+
+        /**
+         * Sets a number of objects, collections and maps that can be nested inside each other, 1000 by default.
+         * A deeper document fails with LimitExceededException as soon as the limit is passed.
+         *
+         * @param maxDepth maximum depth of a document
+         * @return this builder
+         * @throws IllegalArgumentException if a depth is not positive
+         */
+        public Builder maxDepth(int maxDepth) {
+            if (maxDepth <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("The maximum depth %d must be positive", maxDepth));
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Sets a number of bytes a document can take, unlimited by default.
+         * The size is checked between values, so a larger document fails with LimitExceededException
+         * soon after the limit is passed, and a stream may already hold a part of it.
+         *
+         * @param maxOutputSize maximum size of a document in bytes
+         * @return this builder
+         * @throws IllegalArgumentException if a size is not positive
+         */
+        public Builder maxOutputSize(long maxOutputSize) {
+            if (maxOutputSize <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("The maximum output size %d must be positive", maxOutputSize));
+            }
+            this.maxOutputSize = maxOutputSize;
+            return this;
+        }
+
+        /**
+         * Creates a config.
+         *
+         * @return immutable config
+         */
+        public SerializerConfig build() {
+            return new SerializerConfig(this);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package implementation;
+
+import interfaces.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Processor that subscribes to a publisher of @Exported objects and publishes their JSON in UTF-8
+ * as ByteBuffer chunks, one chunk per object, or objects coalesced into chunks up to a size limit.
+ * Objects are written as elements of one JSON array or as newline-delimited JSON.
+ * <p>
+ * Objects are requested from upstream only when the subscriber has requested chunks,
+ * one object per requested chunk, or a small batch at a time if chunks are coalesced.
+ * The processor has one subscriber.
+ */
+public final class SerializingProcessor implements Flow.Processor<Object, ByteBuffer> {
+    /**
+     * Number of objects requested from upstream at once when chunks are coalesced.
+     */
+    private static final int COALESCED_BATCH = 32;
+
+    private final Serializer serializer;
+
+    private final SequenceFormat format;
+
+    /**
+     * Largest size of a coalesced chunk in bytes, or 0 for one chunk per object.
+     */
+    private final int maxChunkSize;
+
+    /**
+     * Chunks that are ready and wait for demand.
+     */
+    private final Queue<ByteBuffer> ready = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Chunks requested by the subscriber and not published yet.
+     */
+    private final AtomicLong demand = new AtomicLong();
+
+    /**
+     * Objects requested from upstream and not received yet.
+     */
+    private final AtomicLong outstanding = new AtomicLong();
+
+    /**
+     * Number of pending drains, only the thread that increments it from zero publishes chunks.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final AtomicReference<Flow.Subscriber<? super ByteBuffer>> downstream = new AtomicReference<>();
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * JSON of an object that is being written.
+     */
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+
+    /**
+     * Bytes of the chunk that is being coalesced.
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    private volatile Flow.Subscription upstream;
+
+    /**
+     * True if upstream is finished and no more chunks are going to be ready.
+     */
+    private volatile boolean done;
+
+    private volatile Throwable error;
+
+    private boolean terminated;
+
+    private boolean first = true;
+
+    /**
+     * Number of objects received from upstream.
+     */
+    private int index;
+
+    /**
+     * Number of bytes of the sequence written so far.
+     */
+    private long written;
+
+    /**
+     * Creates a processor that publishes a chunk per object.
+     *
+     * @param serializer serializer objects are written with
+     * @param format     a JSON array or newline-delimited JSON
+     */
+    public SerializingProcessor(Serializer serializer, SequenceFormat format) {
+        this(serializer, format, 0);
+    }
+
+    /**
+     * Creates a processor that coalesces objects into chunks.
+     * A chunk is published when the next object does not fit into it, or when upstream completes.
+     * An object bigger than the limit is published as a chunk of its own.
+     *
+     * @param serializer   serializer objects are written with
+     * @param format       a JSON array or newline-delimited JSON
+     * @param maxChunkSize largest size of a chunk in bytes, or 0 for a chunk per object
+     * @throws IllegalArgumentException if a size is negative
+     */
+    public SerializingProcessor(Serializer serializer, SequenceFormat format, int maxChunkSize) {
+        if (maxChunkSize < 0) {
+            throw new IllegalArgumentException(
+                    String.format("The chunk size %d must not be negative", maxChunkSize));
+        }
+
+        this.serializer = Objects.requireNonNull(serializer, "serializer");
+        this.format = Objects.requireNonNull(format, "format");
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The processor already has a subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    var subscription = upstream;
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                    fail(new IllegalArgumentException(
+                            String.format("The number of requested chunks %d must be positive", n)));
+                    return;
+                }
+
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0
+                        ? Long.MAX_VALUE
+                        : current + added);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                if (cancelled.compareAndSet(false, true)) {
+                    var subscription = upstream;
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                    ready.clear();
+                }
+            }
+        });
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null || cancelled.get()) {
+            subscription.cancel();
+            return;
+        }
+
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(Object item) {
+        if (done) {
+            return;
+        }
+        outstanding.decrementAndGet();
+
+        try {
+            scratch.reset();
+            if (format == SequenceFormat.JSON_ARRAY) {
+                scratch.write(first ? '[' : ',');
+            }
+            writeItem(item);
+            if (format == SequenceFormat.NDJSON) {
+                scratch.write('\n');
+            }
+            written += scratch.size();
+
+            if (maxChunkSize > 0 && pending.size() > 0 && pending.size() + scratch.size() > maxChunkSize) {
+                publishPending();
+            }
+            scratch.writeTo(pending);
+            if (maxChunkSize == 0 || pending.size() >= maxChunkSize) {
+                publishPending();
+            }
+        } catch (Exception e) {
+            upstream.cancel();
+            fail(e);
+            return;
+        }
+        first = false;
+
+        drain();
+    }
+
+    /**
+     * Writes an object to the scratch buffer. A DefaultSerializer writes it as an element of the sequence,
+     * so references of cycles and the maximum size are counted from the start of the sequence.
+     */
+    private void writeItem(Object item) throws Exception {
+        var element = format == SequenceFormat.JSON_ARRAY ? index++ : -1;
+        if (!(serializer instanceof DefaultSerializer defaultSerializer)) {
+            serializer.write(item, scratch);
+            return;
+        }
+
+        var output = defaultSerializer.encode(item, element, written + scratch.size());
+        try {
+            output.writeTo(scratch);
+        } finally {
+            output.release();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+
+        if (format == SequenceFormat.JSON_ARRAY) {
+            pending.writeBytes((first ? "[]" : "]").getBytes(StandardCharsets.US_ASCII));
+        }
+        publishPending();
+
+        done = true;
+        drain();
+    }
+
+    /**
+     * Moves the coalesced chunk to chunks that wait for demand.
+     */
+    private void publishPending() {
+        if (pending.size() > 0) {
+            ready.add(ByteBuffer.wrap(pending.toByteArray()));
+            pending.reset();
+        }
+    }
+
+    /**
+     * Finishes the stream of chunks with an error, chunks that wait for demand are dropped.
+     */
+    private void fail(Throwable throwable) {
+        if (error == null) {
+            error = throwable;
+        }
+        done = true;
+        ready.clear();
+        drain();
+    }
+
+    /**
+     * Publishes ready chunks while the subscriber has demand, signals the end of the stream,
+     * and requests more objects from upstream. Calls from several threads are serialized.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        var missed = 1;
+        do {
+            var subscriber = downstream.get();
+            if (subscriber != null && !cancelled.get() && !terminated) {
+                ByteBuffer chunk;
+                while (demand.get() > 0 && (chunk = ready.poll()) != null) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(chunk);
+                }
+
+                if (done && ready.isEmpty()) {
+                    terminated = true;
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                } else {
+                    requestUpstream();
+                }
+            }
+
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Requests objects from upstream for demand that is not covered by ready chunks or requested objects.
+     */
+    private void requestUpstream() {
+        var subscription = upstream;
+        if (subscription == null || done) {
+            return;
+        }
+
+        var uncovered = demand.get() - ready.size();
+        if (maxChunkSize == 0) {
+            var count = uncovered - outstanding.get();
+            if (count > 0) {
+                outstanding.addAndGet(count);
+                subscription.request(count);
+            }
+        } else if (uncovered > 0 && outstanding.get() == 0) {
+            outstanding.addAndGet(COALESCED_BATCH);
+            subscription.request(COALESCED_BATCH);
+        }
+    }
+}
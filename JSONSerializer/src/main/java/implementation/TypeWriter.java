@@ -0,0 +1,15 @@
+package implementation;
+
+/**
+ * Writes all properties of objects of one class.
+ * Implementations are generated at runtime by the serializer, one per @Exported class.
+ */
+public interface TypeWriter {
+    /**
+     * Passes every serializable property of an object to a sink.
+     *
+     * @param object serializing object
+     * @param sink   receiver of property values
+     */
+    void writeProperties(Object object, PropertySink sink);
+}
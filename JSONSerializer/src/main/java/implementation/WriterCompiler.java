@@ -0,0 +1,279 @@
+package implementation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Generates a TypeWriter for every @Exported class the first time it is written.
+ * A generated writer is a hidden nestmate class of a written class, so it reads every field,
+ * including private ones, with a plain getfield instruction. It passes primitive values to a
+ * PropertySink with constant keys and without boxing, and hands other values to the sink by
+ * their property index.
+ * If a writer cannot be generated, e.g. a class is loaded by another class loader or its
+ * package is not open, there is no writer for a class and JsonWriter formats it reflectively.
+ */
+final class WriterCompiler {
+    private static final ClassValue<Optional<TypeWriter>> WRITERS = new ClassValue<>() {
+        @Override
+        protected Optional<TypeWriter> computeValue(Class<?> type) {
+            return Optional.ofNullable(compile(ClassPlan.of(type)));
+        }
+    };
+
+    private static final int JAVA_17 = 61;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ALOAD_3 = 0x2d;
+    private static final int ASTORE_3 = 0x4e;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final String SINK = PropertySink.class.getName().replace('.', '/');
+    private static final String WRITER = TypeWriter.class.getName().replace('.', '/');
+
+    private WriterCompiler() {
+    }
+
+    /**
+     * Gets a generated writer of a class, generating it on first use.
+     *
+     * @param plan plan of an @Exported class
+     * @return generated writer, or null if it cannot be generated
+     */
+    static TypeWriter writerOf(ClassPlan plan) {
+        if (!plan.exported) {
+            return null;
+        }
+        return WRITERS.get(plan.type).orElse(null);
+    }
+
+    /**
+     * Generates and instantiates a writer of a class.
+     *
+     * @param plan plan of an @Exported class
+     * @return generated writer, or null if it cannot be generated
+     */
+    private static TypeWriter compile(ClassPlan plan) {
+        try {
+            var lookup = MethodHandles.privateLookupIn(plan.type, MethodHandles.lookup());
+            if (!lookup.hasFullPrivilegeAccess()) {
+                return null;
+            }
+
+            var hidden = lookup.defineHiddenClass(generate(plan), true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            var constructor = hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class));
+
+            return (TypeWriter) constructor.invoke();
+        } catch (Throwable e) {
+            if (e instanceof VirtualMachineError error) {
+                throw error;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Generates a class file of a writer.
+     *
+     * @param plan plan of an @Exported class
+     * @return bytes of a class file
+     * @throws IOException never, bytes are written to memory
+     */
+    private static byte[] generate(ClassPlan plan) throws IOException {
+        var pool = new ConstantPool();
+        var owner = internalName(plan.type);
+
+        var thisClass = pool.classRef(owner + "$$JsonWriter");
+        var superClass = pool.classRef("java/lang/Object");
+        var writerInterface = pool.classRef(WRITER);
+        var codeAttribute = pool.utf8("Code");
+
+        var constructor = new ByteArrayOutputStream();
+        var constructorCode = new DataOutputStream(constructor);
+        constructorCode.writeByte(ALOAD_0);
+        constructorCode.writeByte(INVOKESPECIAL);
+        constructorCode.writeShort(pool.methodRef("java/lang/Object", "<init>", "()V"));
+        constructorCode.writeByte(RETURN);
+
+        var method = new ByteArrayOutputStream();
+        var code = new DataOutputStream(method);
+        code.writeByte(ALOAD_1);
+        code.writeByte(CHECKCAST);
+        code.writeShort(pool.classRef(owner));
+        code.writeByte(ASTORE_3);
+
+        for (var i = 0; i < plan.properties.length; i++) {
+            var property = plan.properties[i];
+            var type = property.type;
+
+            code.writeByte(ALOAD_2);
+            pushInt(code, i);
+            code.writeByte(ALOAD_3);
+            code.writeByte(GETFIELD);
+            code.writeShort(pool.fieldRef(owner, property.field.getName(), type.descriptorString()));
+            code.writeByte(INVOKEVIRTUAL);
+            if (type.isPrimitive()) {
+                code.writeShort(pool.methodRef(SINK, sinkMethod(type), "(I" +
+                        type.descriptorString() + ")V"));
+            } else {
+                code.writeShort(pool.methodRef(SINK, "writeValue", "(ILjava/lang/Object;)V"));
+            }
+        }
+        code.writeByte(RETURN);
+
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(JAVA_17);
+
+        var constructorName = pool.utf8("<init>");
+        var constructorDescriptor = pool.utf8("()V");
+        var methodName = pool.utf8("writeProperties");
+        var methodDescriptor = pool.utf8("(Ljava/lang/Object;L" + SINK + ";)V");
+        pool.writeTo(out);
+
+        out.writeShort(ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(writerInterface);
+        out.writeShort(0);
+
+        out.writeShort(2);
+        writeMethod(out, constructorName, constructorDescriptor, codeAttribute, 1, 1, constructor.toByteArray());
+        writeMethod(out, methodName, methodDescriptor, codeAttribute, 4, 4, method.toByteArray());
+
+        out.writeShort(0);
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static void pushInt(DataOutputStream code, int value) throws IOException {
+        if (value <= 5) {
+            code.writeByte(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            code.writeByte(BIPUSH);
+            code.writeByte(value);
+        } else {
+            code.writeByte(SIPUSH);
+            code.writeShort(value);
+        }
+    }
+
+    /**
+     * Gets a name of a PropertySink method that writes values of a primitive type.
+     *
+     * @param type primitive type
+     * @return name of a method
+     */
+    private static String sinkMethod(Class<?> type) {
+        var name = type.getName();
+        return "write" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    /**
+     * Constant pool of a generated class file.
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int CLASS = 7;
+        private static final int FIELD_REF = 9;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count = 1;
+
+        int utf8(String value) throws IOException {
+            var key = "U" + value;
+            var index = indexes.get(key);
+            if (index == null) {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+                index = add(key);
+            }
+            return index;
+        }
+
+        int classRef(String internalName) throws IOException {
+            return reference(CLASS, utf8(internalName), -1);
+        }
+
+        int fieldRef(String owner, String name, String descriptor) throws IOException {
+            return reference(FIELD_REF, classRef(owner), nameAndType(name, descriptor));
+        }
+
+        int methodRef(String owner, String name, String descriptor) throws IOException {
+            return reference(METHOD_REF, classRef(owner), nameAndType(name, descriptor));
+        }
+
+        private int nameAndType(String name, String descriptor) throws IOException {
+            return reference(NAME_AND_TYPE, utf8(name), utf8(descriptor));
+        }
+
+        private int reference(int tag, int first, int second) throws IOException {
+            var key = tag + ":" + first + ":" + second;
+            var index = indexes.get(key);
+            if (index == null) {
+                out.writeByte(tag);
+                out.writeShort(first);
+                if (second >= 0) {
+                    out.writeShort(second);
+                }
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            indexes.put(key, count);
+            return count++;
+        }
+
+        void writeTo(DataOutputStream classFile) throws IOException {
+            classFile.writeShort(count);
+            bytes.writeTo(classFile);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package interfaces;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+public interface Deserializer {
+    /**
+     * Reads an object from a string.
+     *
+     * @param json JSON of an object
+     * @param type class of an object, it must be @Exported
+     * @param <T>  type of an object
+     * @return read object
+     */
+    <T> T read(String json, Class<T> type);
+
+    /**
+     * Reads an object from JSON in UTF-8.
+     *
+     * @param json JSON of an object in UTF-8
+     * @param type class of an object, it must be @Exported
+     * @param <T>  type of an object
+     * @return read object
+     */
+    <T> T read(byte[] json, Class<T> type);
+
+    /**
+     * Reads an object from a stream of JSON in UTF-8 incrementally, the stream is not closed.
+     *
+     * @param stream a stream of JSON of an object in UTF-8
+     * @param type   class of an object, it must be @Exported
+     * @param <T>    type of an object
+     * @return read object
+     * @throws IOException if there are problems with IO streams.
+     */
+    <T> T read(InputStream stream, Class<T> type) throws IOException;
+
+    /**
+     * Reads an object from remaining bytes of a buffer of JSON in UTF-8.
+     *
+     * @param json JSON of an object in UTF-8
+     * @param type class of an object, it must be @Exported
+     * @param <T>  type of an object
+     * @return read object
+     */
+    <T> T read(ByteBuffer json, Class<T> type);
+}
@@ -1,5 +1,6 @@
 package interfaces;
 
+import implementation.NonFiniteHandling;
 import implementation.NullHandling;
 
 import java.lang.annotation.ElementType;
@@ -14,4 +15,6 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 public @interface Exported {
     NullHandling nullHandling() default NullHandling.EXCLUDE;
+
+    NonFiniteHandling nonFiniteHandling() default NonFiniteHandling.LITERAL;
 }
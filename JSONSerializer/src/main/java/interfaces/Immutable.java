@@ -0,0 +1,15 @@
+package interfaces;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * An annotation for @Exported classes whose objects never change after they are created,
+ * so their JSON can be cached by a FragmentCache. Records are treated as immutable without it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Immutable {
+}
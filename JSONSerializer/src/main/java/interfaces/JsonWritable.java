@@ -0,0 +1,16 @@
+package interfaces;
+
+import implementation.JsonGenerator;
+
+/**
+ * An interface for @Exported classes that write themselves instead of being serialized reflectively,
+ * e.g. hand-written hot types.
+ */
+public interface JsonWritable {
+    /**
+     * Writes an object as a single JSON value.
+     *
+     * @param generator generator to write JSON with
+     */
+    void writeJson(JsonGenerator generator);
+}
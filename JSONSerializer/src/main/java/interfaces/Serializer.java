@@ -1,8 +1,22 @@
 package interfaces;
 
+import implementation.SequenceFormat;
+
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface Serializer {
     /**
@@ -30,4 +44,197 @@ public interface Serializer {
      * @throws IOException if there are problems with IO streams.
      */
     void write(Object object, File file) throws IOException, IllegalAccessException;
-}
\ No newline at end of file
+
+    /**
+     * Serializes an object and writes it to a channel, the channel is not closed.
+     * By default, an object is written to a stream over the channel.
+     *
+     * @param object  an object to save
+     * @param channel a channel where an object is going to be saved
+     * @throws IOException if there are problems with IO channels.
+     */
+    default void write(Object object, WritableByteChannel channel) throws IOException {
+        writeTo(object, unclosed(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Serializes an object and saves it to a file, the file is created or truncated.
+     * By default, an object is written to a stream of the file.
+     *
+     * @param object an object to save
+     * @param path   a path of a file where an object is going to be saved
+     * @throws IOException if there are problems with IO channels.
+     */
+    default void write(Object object, Path path) throws IOException {
+        try (var stream = Files.newOutputStream(path)) {
+            writeTo(object, stream);
+        }
+    }
+
+    /**
+     * Serializes an object and writes it to a file asynchronously.
+     * An object is serialized by the calling thread, a file is written by the channel.
+     * By default, an object is serialized to a byte array first.
+     *
+     * @param object   an object to save
+     * @param channel  a file where an object is going to be saved
+     * @param position position in a file to write at
+     * @return future of a number of written bytes, completed exceptionally if an object cannot be saved
+     */
+    default CompletableFuture<Long> writeAsync(Object object, AsynchronousFileChannel channel, long position) {
+        var future = new CompletableFuture<Long>();
+        try {
+            var bytes = new ByteArrayOutputStream();
+            writeTo(object, bytes);
+
+            var buffer = ByteBuffer.wrap(bytes.toByteArray());
+            channel.write(buffer, position, position, new CompletionHandler<Integer, Long>() {
+                @Override
+                public void completed(Integer count, Long at) {
+                    if (buffer.hasRemaining()) {
+                        channel.write(buffer, at + count, at + count, this);
+                    } else {
+                        future.complete((long) buffer.limit());
+                    }
+                }
+
+                @Override
+                public void failed(Throwable throwable, Long at) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream, the stream is flushed but not closed.
+     * Null elements are written as null.
+     * By default, every object is written with {@link #write(Object, OutputStream)}.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @param format       a JSON array or newline-delimited JSON
+     * @throws IOException if there are problems with IO streams.
+     */
+    default void writeAll(Iterator<?> objects, OutputStream outputStream, SequenceFormat format) throws IOException {
+        var stream = unclosed(outputStream);
+        var array = format == SequenceFormat.JSON_ARRAY;
+        if (array) {
+            stream.write('[');
+        }
+
+        var first = true;
+        while (objects.hasNext()) {
+            var object = objects.next();
+            if (array && !first) {
+                stream.write(',');
+            }
+            first = false;
+
+            if (object == null) {
+                stream.write(new byte[]{'n', 'u', 'l', 'l'});
+            } else {
+                writeTo(object, stream);
+            }
+            if (!array) {
+                stream.write('\n');
+            }
+        }
+
+        if (array) {
+            stream.write(']');
+        }
+        stream.flush();
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream, the stream is flushed but not closed.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @param format       a JSON array or newline-delimited JSON
+     * @throws IOException if there are problems with IO streams.
+     */
+    default void writeAll(Iterable<?> objects, OutputStream outputStream, SequenceFormat format)
+            throws IOException {
+        writeAll(objects.iterator(), outputStream, format);
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream, the stream is flushed but not closed.
+     * The sequence is not closed either.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @param format       a JSON array or newline-delimited JSON
+     * @throws IOException if there are problems with IO streams.
+     */
+    default void writeAll(Stream<?> objects, OutputStream outputStream, SequenceFormat format) throws IOException {
+        writeAll(objects.iterator(), outputStream, format);
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream as a JSON array, the stream is flushed but not closed.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @throws IOException if there are problems with IO streams.
+     */
+    default void writeAll(Iterator<?> objects, OutputStream outputStream) throws IOException {
+        writeAll(objects, outputStream, SequenceFormat.JSON_ARRAY);
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream as a JSON array, the stream is flushed but not closed.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @throws IOException if there are problems with IO streams.
+     */
+    default void writeAll(Iterable<?> objects, OutputStream outputStream) throws IOException {
+        writeAll(objects.iterator(), outputStream, SequenceFormat.JSON_ARRAY);
+    }
+
+    /**
+     * Serializes a sequence of objects to OutputStream as a JSON array, the stream is flushed but not closed.
+     *
+     * @param objects      objects to save
+     * @param outputStream a stream where objects are going to be saved
+     * @throws IOException if there are problems with IO streams.
+     */
+    default void writeAll(Stream<?> objects, OutputStream outputStream) throws IOException {
+        writeAll(objects.iterator(), outputStream, SequenceFormat.JSON_ARRAY);
+    }
+
+    /**
+     * Writes an object with {@link #write(Object, OutputStream)} for methods that do not throw
+     * IllegalAccessException.
+     */
+    private void writeTo(Object object, OutputStream stream) throws IOException {
+        try {
+            write(object, stream);
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Wraps a stream, so closing it only flushes it.
+     */
+    private static OutputStream unclosed(OutputStream stream) {
+        return new FilterOutputStream(stream) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+}
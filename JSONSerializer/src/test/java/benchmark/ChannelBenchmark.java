@@ -0,0 +1,91 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import implementation.SerializerConfig;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing of a large object to a file channel directly against writing to a stream over the channel,
+ * and writing a file by path with a channel against writing it through memory mapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChannelBenchmark {
+    private final Serializer serializer = new DefaultSerializer();
+
+    private final Serializer mappedSerializer = new DefaultSerializer(SerializerConfig.builder()
+            .mappedWindowSize(1 << 24)
+            .build());
+
+    private SerializerBenchmark.Order order;
+
+    private Path path;
+
+    private FileChannel channel;
+
+    private OutputStream stream;
+
+    @Setup
+    public void setUp() throws IOException {
+        order = new SerializerBenchmark.Order();
+        for (int i = 0; i < 5000; i++) {
+            order.items.add(new SerializerBenchmark.LineItem(i));
+        }
+
+        path = Files.createTempFile("channel-benchmark", ".json");
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        stream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                channel.write(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public void channel() throws IOException {
+        channel.position(0);
+        serializer.write(order, channel);
+    }
+
+    @Benchmark
+    public void stream() throws IOException, IllegalAccessException {
+        channel.position(0);
+        serializer.write(order, stream);
+    }
+
+    @Benchmark
+    public void path() throws IOException {
+        serializer.write(order, path);
+    }
+
+    @Benchmark
+    public void mappedPath() throws IOException {
+        mappedSerializer.write(order, path);
+    }
+}
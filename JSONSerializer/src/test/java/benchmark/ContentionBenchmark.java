@@ -0,0 +1,62 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writeToString on one serializer shared by 1 to N threads,
+ * against a serializer created for every call.
+ * Run with {@code -t} to try other numbers of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+    private final Serializer shared = new DefaultSerializer();
+
+    private SerializerBenchmark.Order order;
+
+    @Setup
+    public void setUp() {
+        order = new SerializerBenchmark.Order();
+        for (int i = 0; i < 50; i++) {
+            order.items.add(new SerializerBenchmark.LineItem(i));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String shared1() throws IllegalAccessException {
+        return shared.writeToString(order);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public String shared2() throws IllegalAccessException {
+        return shared.writeToString(order);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String shared4() throws IllegalAccessException {
+        return shared.writeToString(order);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String sharedMax() throws IllegalAccessException {
+        return shared.writeToString(order);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String perCallMax() throws IllegalAccessException {
+        return new DefaultSerializer().writeToString(order);
+    }
+}
@@ -0,0 +1,45 @@
+package benchmark;
+
+import implementation.DefaultDeserializer;
+import implementation.DefaultSerializer;
+import interfaces.Deserializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading of an order with nested objects, a list and a formatted date from bytes and from a stream.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeserializerBenchmark {
+    private final Deserializer deserializer = new DefaultDeserializer();
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IllegalAccessException {
+        var order = new SerializerBenchmark.Order();
+        for (int i = 0; i < 50; i++) {
+            order.items.add(new SerializerBenchmark.LineItem(i));
+        }
+        json = new DefaultSerializer().writeToString(order).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public SerializerBenchmark.Order readBytes() {
+        return deserializer.read(json, SerializerBenchmark.Order.class);
+    }
+
+    @Benchmark
+    public SerializerBenchmark.Order readStream() throws IOException {
+        return deserializer.read(new ByteArrayInputStream(json), SerializerBenchmark.Order.class);
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import implementation.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares escaping of strings by JsonGenerator, with the Vector API scanner and with the scalar one,
+ * against a naive escaper that appends char by char to a StringBuilder.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EscapeBenchmark {
+    /**
+     * Text with nothing to escape, or text with a quote or a line break every few words.
+     */
+    @Param({"clean", "dirty"})
+    public String payload;
+
+    @Param({"24", "256"})
+    public int length;
+
+    private String text;
+
+    private JsonGenerator generator;
+
+    private OutputStream stream;
+
+    @Setup
+    public void setUp() {
+        var words = payload.equals("clean")
+                ? "The quick brown fox jumps over the lazy dog. "
+                : "The \"quick\" brown fox\njumps over the lazy dog. ";
+        text = words.repeat(length / words.length() + 1).substring(0, length);
+
+        stream = OutputStream.nullOutputStream();
+        generator = new JsonGenerator(stream);
+        generator.beginArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        generator.close();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public void vector() {
+        generator.writeString(text);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Djson.serializer.vector=false")
+    public void scalar() {
+        generator.writeString(text);
+    }
+
+    @Benchmark
+    public void naive() throws Exception {
+        var builder = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        stream.write(builder.append('"').toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
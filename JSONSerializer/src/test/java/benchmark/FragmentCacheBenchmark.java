@@ -0,0 +1,76 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import implementation.FragmentCache;
+import implementation.SerializerConfig;
+import interfaces.Exported;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing of a catalog whose products share a few reference records with and without a fragment cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FragmentCacheBenchmark {
+    private final Serializer plain = new DefaultSerializer();
+
+    private final Serializer cached = new DefaultSerializer(SerializerConfig.builder()
+            .fragmentCache(FragmentCache.byIdentity(1024))
+            .build());
+
+    private final OutputStream stream = OutputStream.nullOutputStream();
+
+    private Catalog catalog;
+
+    @Setup
+    public void setUp() {
+        var regions = List.of(new Region("EU", "Europe", new Currency("EUR", "Euro", 2)),
+                new Region("US", "United States", new Currency("USD", "US Dollar", 2)),
+                new Region("JP", "Japan", new Currency("JPY", "Yen", 0)));
+
+        catalog = new Catalog();
+        for (int i = 0; i < 1000; i++) {
+            catalog.products.add(new Product("SKU-" + i, regions.get(i % regions.size())));
+        }
+    }
+
+    @Benchmark
+    public void plain() throws Exception {
+        plain.write(catalog, stream);
+    }
+
+    @Benchmark
+    public void cached() throws Exception {
+        cached.write(catalog, stream);
+    }
+
+    @Exported
+    public static class Catalog {
+        public List<Product> products = new ArrayList<>();
+
+        public Catalog() {
+        }
+    }
+
+    @Exported
+    public record Product(String sku, Region region) {
+    }
+
+    @Exported
+    public record Region(String code, String name, Currency currency) {
+    }
+
+    @Exported
+    public record Currency(String code, String name, int digits) {
+    }
+}
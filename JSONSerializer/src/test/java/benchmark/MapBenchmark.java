@@ -0,0 +1,85 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import interfaces.Exported;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing of an attribute bag of 100 entries held in a Map against the same entries
+ * flattened into a list of wrapper objects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapBenchmark {
+    private static final int ENTRIES = 100;
+
+    private final Serializer serializer = new DefaultSerializer();
+
+    private final OutputStream stream = OutputStream.nullOutputStream();
+
+    private MapBag mapBag;
+
+    private ListBag listBag;
+
+    @Setup
+    public void setUp() {
+        mapBag = new MapBag();
+        listBag = new ListBag();
+        for (int i = 0; i < ENTRIES; i++) {
+            mapBag.attributes.put("attribute" + i, "value" + i);
+            listBag.attributes.add(new Attribute("attribute" + i, "value" + i));
+        }
+    }
+
+    @Benchmark
+    public void map() throws Exception {
+        serializer.write(mapBag, stream);
+    }
+
+    @Benchmark
+    public void wrapperList() throws Exception {
+        serializer.write(listBag, stream);
+    }
+
+    @Exported
+    public static class MapBag {
+        public Map<String, String> attributes = new LinkedHashMap<>();
+
+        public MapBag() {
+        }
+    }
+
+    @Exported
+    public static class ListBag {
+        public List<Attribute> attributes = new ArrayList<>();
+
+        public ListBag() {
+        }
+    }
+
+    @Exported
+    public static class Attribute {
+        public String name;
+        public String value;
+
+        public Attribute() {
+        }
+
+        Attribute(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
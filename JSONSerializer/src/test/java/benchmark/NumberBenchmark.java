@@ -0,0 +1,71 @@
+package benchmark;
+
+import implementation.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing of numbers by JsonGenerator against Double.toString and Long.toString
+ * followed by encoding of a string.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NumberBenchmark {
+    private static final int COUNT = 1024;
+
+    private final double[] doubles = new double[COUNT];
+
+    private final long[] longs = new long[COUNT];
+
+    private JsonGenerator generator;
+
+    private OutputStream stream;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        var random = new SplittableRandom(42);
+        for (int i = 0; i < COUNT; i++) {
+            doubles[i] = random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            longs[i] = random.nextLong() >> random.nextInt(64);
+        }
+
+        stream = OutputStream.nullOutputStream();
+        generator = new JsonGenerator(stream);
+        generator.beginArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        generator.close();
+    }
+
+    @Benchmark
+    public void doubleGenerator() {
+        generator.writeNumber(doubles[index++ & COUNT - 1]);
+    }
+
+    @Benchmark
+    public void doubleToString() throws Exception {
+        stream.write(Double.toString(doubles[index++ & COUNT - 1]).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public void longGenerator() {
+        generator.writeNumber(longs[index++ & COUNT - 1]);
+    }
+
+    @Benchmark
+    public void longToString() throws Exception {
+        stream.write(Long.toString(longs[index++ & COUNT - 1]).getBytes(StandardCharsets.US_ASCII));
+    }
+}
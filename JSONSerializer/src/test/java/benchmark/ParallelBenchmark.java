@@ -0,0 +1,45 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import implementation.SerializerConfig;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sequential and parallel writing of an object that holds a very large list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelBenchmark {
+    private final Serializer sequential = new DefaultSerializer();
+
+    private final Serializer parallel = new DefaultSerializer(SerializerConfig.builder()
+            .parallelThreshold(4096)
+            .build());
+
+    private SerializerBenchmark.Order order;
+
+    @Setup
+    public void setUp() {
+        order = new SerializerBenchmark.Order();
+        for (int i = 0; i < 200_000; i++) {
+            order.items.add(new SerializerBenchmark.LineItem(i));
+        }
+    }
+
+    @Benchmark
+    public String sequential() throws IllegalAccessException {
+        return sequential.writeToString(order);
+    }
+
+    @Benchmark
+    public String parallel() throws IllegalAccessException {
+        return parallel.writeToString(order);
+    }
+}
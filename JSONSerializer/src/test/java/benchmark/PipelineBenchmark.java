@@ -0,0 +1,66 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import implementation.SequenceFormat;
+import implementation.SerializationPipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing of many orders to one stream with writeAll on the calling thread
+ * against the pipeline that serializes them on a pool of all processors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+    private final DefaultSerializer serializer = new DefaultSerializer();
+
+    private final List<SerializerBenchmark.Order> orders = new ArrayList<>();
+
+    private final OutputStream stream = OutputStream.nullOutputStream();
+
+    private ExecutorService executor;
+
+    private SerializationPipeline pipeline;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 1000; i++) {
+            var order = new SerializerBenchmark.Order();
+            for (int j = 0; j < 20; j++) {
+                order.items.add(new SerializerBenchmark.LineItem(j));
+            }
+            orders.add(order);
+        }
+
+        var processors = Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(processors);
+        pipeline = new SerializationPipeline(serializer, executor, processors * 4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void writeAll() throws IOException {
+        serializer.writeAll(orders, stream, SequenceFormat.NDJSON);
+    }
+
+    @Benchmark
+    public void pipeline() throws IOException {
+        pipeline.writeAll(orders.iterator(), stream, SequenceFormat.NDJSON);
+    }
+}
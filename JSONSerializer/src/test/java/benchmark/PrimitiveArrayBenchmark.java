@@ -0,0 +1,71 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import interfaces.Exported;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing of a metric series of 10 000 points held in a double[] against the same points in a List.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveArrayBenchmark {
+    private static final int POINTS = 10_000;
+
+    private final Serializer serializer = new DefaultSerializer();
+
+    private final OutputStream stream = OutputStream.nullOutputStream();
+
+    private ArraySeries arraySeries;
+
+    private ListSeries listSeries;
+
+    @Setup
+    public void setUp() {
+        var random = new SplittableRandom(42);
+        arraySeries = new ArraySeries();
+        listSeries = new ListSeries();
+        arraySeries.points = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            arraySeries.points[i] = random.nextDouble() * 1000;
+            listSeries.points.add(arraySeries.points[i]);
+        }
+    }
+
+    @Benchmark
+    public void doubleArray() throws Exception {
+        serializer.write(arraySeries, stream);
+    }
+
+    @Benchmark
+    public void doubleList() throws Exception {
+        serializer.write(listSeries, stream);
+    }
+
+    @Exported
+    public static class ArraySeries {
+        public double[] points;
+
+        public ArraySeries() {
+        }
+    }
+
+    @Exported
+    public static class ListSeries {
+        public List<Double> points = new ArrayList<>();
+
+        public ListSeries() {
+        }
+    }
+}
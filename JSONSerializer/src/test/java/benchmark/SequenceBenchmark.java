@@ -0,0 +1,68 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import implementation.SequenceFormat;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing of many records to one stream with writeAll against a loop over write.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SequenceBenchmark {
+    private final Serializer serializer = new DefaultSerializer();
+
+    private final List<SerializerBenchmark.LineItem> items = new ArrayList<>();
+
+    private final OutputStream stream = OutputStream.nullOutputStream();
+
+    /**
+     * Stream that ignores close, the way a loop over write has to protect a shared stream.
+     */
+    private final OutputStream unclosable = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            stream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            stream.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < 1000; i++) {
+            items.add(new SerializerBenchmark.LineItem(i));
+        }
+    }
+
+    @Benchmark
+    public void writeAllNdjson() throws IOException {
+        serializer.writeAll(items, stream, SequenceFormat.NDJSON);
+    }
+
+    @Benchmark
+    public void writeLoop() throws IOException, IllegalAccessException {
+        for (var item : items) {
+            serializer.write(item, unclosable);
+            stream.write('\n');
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import implementation.NullHandling;
+import interfaces.DateFormat;
+import interfaces.Exported;
+import interfaces.PropertyName;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization of a nested object that holds a list of nested objects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializerBenchmark {
+    private final Serializer serializer = new DefaultSerializer();
+
+    private final Serializer compiledSerializer = new DefaultSerializer(true);
+
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        order = new Order();
+        for (int i = 0; i < 50; i++) {
+            order.items.add(new LineItem(i));
+        }
+    }
+
+    @Benchmark
+    public String writeToString() throws IllegalAccessException {
+        return serializer.writeToString(order);
+    }
+
+    @Benchmark
+    public String writeToStringCompiled() throws IllegalAccessException {
+        return compiledSerializer.writeToString(order);
+    }
+
+    @Exported
+    public static class Order {
+        public long id = 42L;
+        @PropertyName("customer_name")
+        public String customerName = "Jane Doe";
+        @DateFormat(pattern = "dd/MM/yyyy")
+        public LocalDate created = LocalDate.of(2024, 3, 15);
+        public Address address = new Address();
+        public List<LineItem> items = new ArrayList<>();
+        public String comment;
+
+        public Order() {
+        }
+    }
+
+    @Exported(nullHandling = NullHandling.INCLUDE)
+    public static class Address {
+        public String city = "Amsterdam";
+        public String street = "Damrak";
+        public int building = 1;
+
+        public Address() {
+        }
+    }
+
+    @Exported
+    public static class LineItem {
+        public int position;
+        public String sku;
+        public double price;
+        public boolean taxable = true;
+        public Integer quantity;
+
+        public LineItem() {
+        }
+
+        LineItem(int position) {
+            this.position = position;
+            this.sku = "SKU-" + position;
+            this.price = position * 1.25;
+            this.quantity = position % 4;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import implementation.DefaultSerializer;
+import implementation.SerializerConfig;
+import interfaces.Exported;
+import interfaces.Serializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing of a chain of 10 000 nested objects and of a wide tree of 1000 objects,
+ * which are written from the work stack instead of a call per nesting level.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraversalBenchmark {
+    private static final int DEPTH = 10_000;
+
+    private static final int WIDTH = 1000;
+
+    private final Serializer serializer = new DefaultSerializer(SerializerConfig.builder()
+            .maxDepth(DEPTH + 1)
+            .build());
+
+    private final OutputStream stream = OutputStream.nullOutputStream();
+
+    private Node chain;
+
+    private Node tree;
+
+    @Setup
+    public void setUp() {
+        chain = new Node(0);
+        var node = chain;
+        for (int i = 1; i < DEPTH; i++) {
+            node.next = new Node(i);
+            node = node.next;
+        }
+
+        tree = new Node(0);
+        tree.children = new ArrayList<>();
+        for (int i = 1; i <= WIDTH; i++) {
+            tree.children.add(new Node(i));
+        }
+    }
+
+    @Benchmark
+    public void deepChain() throws Exception {
+        serializer.write(chain, stream);
+    }
+
+    @Benchmark
+    public void wideTree() throws Exception {
+        serializer.write(tree, stream);
+    }
+
+    @Exported
+    public static class Node {
+        public int id;
+        public Node next;
+        public List<Node> children;
+
+        public Node() {
+        }
+
+        Node(int id) {
+            this.id = id;
+        }
+    }
+}
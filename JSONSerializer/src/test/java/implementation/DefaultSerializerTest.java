@@ -1,16 +1,39 @@
 package implementation;
 
+import exceptions.CyclicReferenceException;
 import exceptions.ExportedException;
+import exceptions.JsonParseException;
+import exceptions.LimitExceededException;
+import exceptions.NonFiniteNumberException;
 import exceptions.PublicConstructorException;
 import interfaces.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -87,6 +110,1131 @@ class DefaultSerializerTest {
         assertEquals(expected, serializer.writeToString(test));
     }
 
+    @Test
+    void classPlanIsSharedAndSkipsIgnoredFields() {
+        var plan = ClassPlan.of(TestClassThird.class);
+
+        assertSame(plan, ClassPlan.of(TestClassThird.class));
+        assertEquals(2, plan.properties.length);
+        assertEquals("boolean value", plan.properties[1].name);
+        assertTrue(plan.nullHandling);
+    }
+
+    @Test
+    void writeToStringPrimitives() throws IllegalAccessException {
+        String expected = "{\"i\":-7,\"l\":9000000000,\"d\":0.5,\"f\":1.25,\"c\":\"x\",\"s\":3,\"b\":-1," +
+                "\"bool\":true,\"boxed\":4}";
+        Serializer serializer = new DefaultSerializer();
+
+        assertEquals(expected, serializer.writeToString(new TestClassPrimitives()));
+    }
+
+    @Test
+    void compiledWriterMatchesReflectiveOutput() throws IllegalAccessException {
+        Serializer reflective = new DefaultSerializer();
+        Serializer compiled = new DefaultSerializer(true);
+
+        for (var object : List.of(new TestClassFirst(), new TestClassThird(), new TestClassFifth(),
+                new TestClassSixth(), new TestClassSeventh(), new TestClassEights(), new TestClassPrimitives())) {
+            assertNotNull(WriterCompiler.writerOf(ClassPlan.of(object.getClass())));
+            assertEquals(reflective.writeToString(object), compiled.writeToString(object));
+        }
+    }
+
+    @Test
+    void writeStreamsLargeDocumentsInUtf8() throws IOException, IllegalAccessException {
+        var test = new TestClassNinth();
+        for (int i = 0; i < 1000; i++) {
+            test.list.add(new TestClassThird());
+        }
+        Serializer serializer = new DefaultSerializer();
+        var stream = new ByteArrayOutputStream();
+
+        serializer.write(test, stream);
+
+        var json = stream.toString(StandardCharsets.UTF_8);
+        assertTrue(json.length() > JsonOutput.BUFFER_SIZE);
+        assertTrue(json.startsWith("{\"name\":\"Zoë ✓\",\"list\":[\"TestClassThird\":{\"boolean value\":false},"));
+        assertEquals(serializer.writeToString(test), json);
+    }
+
+    @Test
+    void outputEncodesUtf8AndReusesBuffers() {
+        var text = "ascii é ✓ \uD83D\uDE00 \uD800 " + Long.MIN_VALUE;
+        var output = new JsonOutput();
+        for (int i = 0; i < 1000; i++) {
+            output.write(text);
+            output.write(-1234567890123L);
+            output.write('ß');
+        }
+        var expected = (text.replace('\uD800', '?') + "-1234567890123ß").repeat(1000);
+        assertEquals(expected, output.toString());
+        output.release();
+
+        var pool = new BufferPool<byte[]>(() -> new byte[16], bytes -> bytes.length, 2, 64);
+        var buffer = pool.acquire();
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire());
+        pool.release(new byte[128]);
+        assertEquals(16, pool.acquire().length);
+
+        var single = new ObjectPool<>(Object::new, 1);
+        assertEquals(1, single.capacity());
+        assertEquals(8, new ObjectPool<>(Object::new, 5).capacity());
+        var first = single.acquire();
+        var second = single.acquire();
+        single.release(first);
+        single.release(second);
+        assertSame(first, single.acquire());
+        assertNotSame(second, single.acquire());
+    }
+
+    @Test
+    void writeToStringEscapesStrings() throws IllegalAccessException {
+        var test = new TestClassTwelfth();
+        test.text = "say \"hi\"\\\n\t\u0001 é ✓ " + "long text without escapes ".repeat(50) + "\"";
+        test.symbol = '"';
+
+        var expected = "{\"text\":\"say \\\"hi\\\"\\\\\\n\\t\\u0001 é ✓ "
+                + "long text without escapes ".repeat(50) + "\\\"\",\"symbol\":\"\\\"\",\"quote \\\" name\":\"\"}";
+        assertEquals(expected, new DefaultSerializer().writeToString(test));
+    }
+
+    @Test
+    void scannersFindTheSameChars() {
+        var random = new Random(42);
+        var chars = new char[300];
+        for (int run = 0; run < 1000; run++) {
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = random.nextInt(50) == 0 ? (char) random.nextInt(0x300) : (char) (0x20 + random.nextInt(0x5F));
+            }
+            var from = random.nextInt(chars.length);
+            var to = from + random.nextInt(chars.length - from + 1);
+
+            assertEquals(new ScalarEscapeScanner().scan(chars, from, to), EscapeScanner.best().scan(chars, from, to));
+        }
+
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            assertInstanceOf(VectorEscapeScanner.class, EscapeScanner.best());
+        } else {
+            assertInstanceOf(ScalarEscapeScanner.class, EscapeScanner.best());
+        }
+    }
+
+    @Test
+    void numbersAreWrittenWithShortestDigits() {
+        var buffer = new byte[NumberWriter.MAX_LENGTH];
+        var random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            var d = Double.longBitsToDouble(random.nextLong());
+            var f = Float.intBitsToFloat(random.nextInt());
+            var l = random.nextLong() >> random.nextInt(64);
+
+            var text = new String(buffer, 0, NumberWriter.writeDouble(buffer, 0, d), StandardCharsets.US_ASCII);
+            assertEquals(Double.valueOf(d), Double.valueOf(text));
+            assertTrue(text.length() <= Double.toString(d).length());
+
+            text = new String(buffer, 0, NumberWriter.writeFloat(buffer, 0, f), StandardCharsets.US_ASCII);
+            assertEquals(Float.valueOf(f), Float.valueOf(text));
+            assertTrue(text.length() <= Float.toString(f).length());
+
+            text = new String(buffer, 0, NumberWriter.writeLong(buffer, 0, l), StandardCharsets.US_ASCII);
+            assertEquals(Long.toString(l), text);
+        }
+
+        for (var d : new double[]{0.0, -0.0, 1.0, 0.1, 1e-3, 9999999.0, 1e7, 1e-4, 1e23, Double.MIN_VALUE,
+                Double.MAX_VALUE, Double.MIN_NORMAL, 61.25}) {
+            var text = new String(buffer, 0, NumberWriter.writeDouble(buffer, 0, d), StandardCharsets.US_ASCII);
+            assertEquals(d == 1e23 ? "1.0E23" : Double.toString(d), text);
+        }
+        assertEquals("-9223372036854775808", new String(buffer, 0,
+                NumberWriter.writeLong(buffer, 0, Long.MIN_VALUE), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void nonFiniteNumbersFollowClassPolicy() throws IllegalAccessException {
+        Serializer serializer = new DefaultSerializer();
+        String expected = "{\"d\":NaN,\"boxed\":Infinity,\"nested\":{\"d\":\"NaN\",\"f\":\"-Infinity\"," +
+                "\"list\":[\"TestClassFifteenth\":{\"d\":null,\"boxed\":null,\"finite\":1.0E-5}]}}";
+
+        assertEquals(expected, serializer.writeToString(new TestClassThirteenth()));
+        assertEquals(expected, new DefaultSerializer(true).writeToString(new TestClassThirteenth()));
+        assertThrows(NonFiniteNumberException.class, () -> serializer.writeToString(new TestClassSixteenth()));
+    }
+
+    @Test
+    void generatorWritesSeparatorsInOnePass() {
+        var stream = new ByteArrayOutputStream();
+        var generator = new JsonGenerator(stream);
+
+        generator.beginObject();
+        generator.writeName("a");
+        generator.beginArray();
+        generator.writeNumber(1);
+        generator.beginObject();
+        generator.endObject();
+        generator.beginArray();
+        generator.endArray();
+        generator.writeNull();
+        generator.endArray();
+        generator.writeName("b");
+        generator.writeString("x");
+        generator.endObject();
+        generator.flush();
+
+        assertEquals("{\"a\":[1,{},[],null],\"b\":\"x\"}", stream.toString(StandardCharsets.UTF_8));
+        assertThrows(IllegalStateException.class, generator::beginObject);
+        assertThrows(IllegalStateException.class, () -> new JsonGenerator(stream).writeName("a"));
+    }
+
+    @Test
+    void writableTypesWriteThemselves() throws IllegalAccessException {
+        String expected = "{\"point\":{\"x\":1,\"y\":2},\"points\":[\"TestClassTenth\":{\"x\":1,\"y\":2}," +
+                "\"TestClassTenth\":{\"x\":1,\"y\":2}]}";
+        Serializer serializer = new DefaultSerializer();
+
+        assertEquals(expected, serializer.writeToString(new TestClassEleventh()));
+        assertEquals(expected, new DefaultSerializer(true).writeToString(new TestClassEleventh()));
+    }
+
+    @Test
+    void datesAreWrittenWithCompiledPatterns() throws IllegalAccessException {
+        var random = new SplittableRandom(7);
+        var buffer = new byte[64];
+        for (String pattern : List.of("dd/MM/yyyy", "d.M.uuuu", "HH:mm:ss", "hh:mm", "yyyy-MM-dd'T'HH:mm:ss.SSS",
+                "dd/MM/yyyy hh:mm:ss", "yyyyMMdd HHmmssSSSSSSSSS")) {
+            var writer = DateFormatWriter.of(pattern);
+            var formatter = DateTimeFormatter.ofPattern(pattern);
+            for (int i = 0; i < 10_000; i++) {
+                var value = LocalDateTime.of(random.nextInt(1, 10_000), random.nextInt(1, 13),
+                        random.nextInt(1, 29), random.nextInt(24), random.nextInt(60), random.nextInt(60),
+                        random.nextInt(1_000_000_000));
+                assertTrue(writer.canWrite(value), pattern);
+                var length = writer.write(buffer, 0, value);
+                assertTrue(length <= writer.maxLength, pattern);
+                assertEquals(formatter.format(value), new String(buffer, 0, length, StandardCharsets.US_ASCII));
+            }
+        }
+
+        assertFalse(DateFormatWriter.of("dd/MM/yy").canWrite(LocalDate.EPOCH));
+        assertFalse(DateFormatWriter.of("dd/MM/yyyy").canWrite(LocalTime.NOON));
+        assertFalse(DateFormatWriter.ISO.canWrite(LocalDate.MIN));
+
+        String expected = "{\"date\":\"2024-01-02\",\"time\":\"10:15:30.000123\"," +
+                "\"dateTime\":\"2024-01-02T10:15\",\"shortYear\":\"02/01/24\",\"missing\":null}";
+        Serializer serializer = new DefaultSerializer();
+
+        assertEquals(expected, serializer.writeToString(new TestClassSeventeenth()));
+        assertEquals(expected, new DefaultSerializer(true).writeToString(new TestClassSeventeenth()));
+    }
+
+    @Test
+    void sharedSerializerWritesTheSameFromManyThreads() throws Exception {
+        var config = SerializerConfig.builder().compiled(true).pooledContexts(2).build();
+        Serializer serializer = new DefaultSerializer(config);
+        List<Object> objects = List.of(new TestClassFirst(), new TestClassEleventh(), new TestClassThirteenth(),
+                new TestClassSeventeenth());
+        List<String> expected = new ArrayList<>();
+        for (var object : objects) {
+            expected.add(new DefaultSerializer().writeToString(object));
+        }
+
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                var index = i % objects.size();
+                results.add(executor.submit(
+                        () -> expected.get(index).equals(serializer.writeToString(objects.get(index)))));
+            }
+            for (var result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertSame(config, ((DefaultSerializer) serializer).getConfig());
+        assertThrows(IllegalArgumentException.class, () -> SerializerConfig.builder().pooledContexts(0));
+    }
+
+    @Test
+    void contextIsReusedAfterFailedCall() throws IllegalAccessException {
+        Serializer serializer = new DefaultSerializer(SerializerConfig.builder().pooledContexts(1).build());
+
+        assertThrows(NonFiniteNumberException.class, () -> serializer.writeToString(new TestClassSixteenth()));
+        assertEquals(new DefaultSerializer().writeToString(new TestClassThirteenth()),
+                serializer.writeToString(new TestClassThirteenth()));
+    }
+
+    @Test
+    void writeAllKeepsStreamOpen() throws IOException, IllegalAccessException {
+        Serializer serializer = new DefaultSerializer();
+        var first = serializer.writeToString(new TestClassThirteenth());
+        var second = serializer.writeToString(new TestClassSeventeenth());
+        List<Object> objects = new ArrayList<>(List.of(new TestClassThirteenth(), new TestClassSeventeenth()));
+        objects.add(null);
+        objects.add(new TestClassThirteenth());
+
+        var stream = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                throw new AssertionError("The stream must stay open");
+            }
+        };
+        serializer.writeAll(objects, stream, SequenceFormat.JSON_ARRAY);
+        assertEquals("[" + first + "," + second + ",null," + first + "]", stream.toString(StandardCharsets.UTF_8));
+
+        stream.reset();
+        serializer.writeAll(objects.stream(), stream, SequenceFormat.NDJSON);
+        assertEquals(first + "\n" + second + "\nnull\n" + first + "\n", stream.toString(StandardCharsets.UTF_8));
+
+        stream.reset();
+        serializer.writeAll(List.of().iterator(), stream);
+        serializer.writeAll(List.of(), stream, SequenceFormat.NDJSON);
+        assertEquals("[]", stream.toString(StandardCharsets.UTF_8));
+
+        assertThrows(ExportedException.class, () -> serializer.writeAll(List.of(new TestClassSecond()), stream));
+    }
+
+    @Test
+    void parallelCollectionsAreWrittenInOrder() throws IllegalAccessException {
+        var pool = new ForkJoinPool(4);
+        try {
+            var config = SerializerConfig.builder().parallelThreshold(8).forkJoinPool(pool).build();
+            var holder = new TestClassEighteenth();
+            for (int i = 0; i < 1000; i++) {
+                holder.items.add(i % 7 == 0 ? null : new TestClassTenth());
+                holder.nested.add(new TestClassFifteenth());
+            }
+
+            for (var compiled : List.of(false, true)) {
+                var expected = new DefaultSerializer(compiled).writeToString(holder);
+                var serializer = new DefaultSerializer(config.toBuilder().compiled(compiled).build());
+
+                assertEquals(expected, serializer.writeToString(holder));
+            }
+
+            holder.nested.add(500, new TestClassFifteenth() {
+            });
+            var serializer = new DefaultSerializer(config);
+            assertThrows(ExportedException.class, () -> serializer.writeToString(holder));
+            assertThrows(IllegalArgumentException.class, () -> SerializerConfig.builder().parallelThreshold(1));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void pipelineWritesInInputOrder() throws IOException {
+        var serializer = new DefaultSerializer();
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var pipeline = new SerializationPipeline(serializer, executor, 3);
+            List<Object> objects = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                objects.add(switch (i % 4) {
+                    case 0 -> new TestClassThirteenth();
+                    case 1 -> new TestClassSeventeenth();
+                    case 2 -> null;
+                    default -> new TestClassEleventh();
+                });
+            }
+
+            for (var format : SequenceFormat.values()) {
+                var expected = new ByteArrayOutputStream();
+                serializer.writeAll(objects, expected, format);
+                var actual = new ByteArrayOutputStream();
+                pipeline.writeAll(objects.stream(), actual, format);
+
+                assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+            }
+
+            objects.add(100, new TestClassSecond());
+            assertThrows(ExportedException.class,
+                    () -> pipeline.writeAll(objects.iterator(), new ByteArrayOutputStream(), SequenceFormat.NDJSON));
+            assertThrows(IllegalArgumentException.class, () -> new SerializationPipeline(serializer, executor, 0));
+        } finally {
+            executor.shutdown();
+        }
+
+        // The failing object is serialized at once, later ones wait in the queue and are cancelled.
+        var writes = new AtomicInteger();
+        List<Object> objects = new ArrayList<>();
+        objects.add(new TestClassSecond());
+        for (int i = 0; i < 7; i++) {
+            var counted = new TestClassThirtieth();
+            counted.values = () -> {
+                writes.incrementAndGet();
+                return List.of(1).iterator();
+            };
+            objects.add(counted);
+        }
+        Queue<Runnable> queued = new ArrayDeque<>();
+        var started = new AtomicBoolean();
+        Executor manual = task -> {
+            if (started.compareAndSet(false, true)) {
+                task.run();
+            } else {
+                queued.add(task);
+            }
+        };
+        assertThrows(ExportedException.class, () -> new SerializationPipeline(serializer, manual, 8)
+                .writeAll(objects.iterator(), new ByteArrayOutputStream(), SequenceFormat.JSON_ARRAY));
+        assertEquals(7, queued.size());
+        queued.forEach(Runnable::run);
+        assertEquals(0, writes.get());
+    }
+
+    @Test
+    void processorPublishesChunksOnDemand() throws IOException {
+        var serializer = new DefaultSerializer();
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            objects.add(i % 2 == 0 ? new TestClassThirteenth() : new TestClassSeventeenth());
+        }
+
+        for (var format : SequenceFormat.values()) {
+            var expected = new ByteArrayOutputStream();
+            serializer.writeAll(objects, expected, format);
+
+            for (var maxChunkSize : List.of(0, 1, 300, 1 << 20)) {
+                var publisher = new ListPublisher(objects);
+                var processor = new SerializingProcessor(serializer, format, maxChunkSize);
+                var subscriber = new ChunkSubscriber();
+                publisher.subscribe(processor);
+                processor.subscribe(subscriber);
+
+                while (!subscriber.completed) {
+                    var published = subscriber.chunks.size();
+                    subscriber.subscription.request(1);
+                    assertTrue(subscriber.chunks.size() <= published + 1);
+                    if (maxChunkSize == 0) {
+                        assertTrue(publisher.requested <= subscriber.chunks.size() + 1);
+                    }
+                }
+
+                var actual = new ByteArrayOutputStream();
+                for (var chunk : subscriber.chunks) {
+                    if (maxChunkSize > 1 && chunk != subscriber.chunks.get(subscriber.chunks.size() - 1)) {
+                        assertTrue(chunk.remaining() <= maxChunkSize);
+                    }
+                    actual.write(chunk.array(), chunk.position(), chunk.remaining());
+                }
+                assertEquals(expected.toString(StandardCharsets.UTF_8), actual.toString(StandardCharsets.UTF_8));
+                assertNull(subscriber.error);
+            }
+        }
+
+        var publisher = new ListPublisher(List.of(new TestClassThirteenth(), new TestClassSecond()));
+        var processor = new SerializingProcessor(serializer, SequenceFormat.NDJSON);
+        var subscriber = new ChunkSubscriber();
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertInstanceOf(ExportedException.class, subscriber.error);
+        assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    void sequencesWrittenByPartsKeepReferencesAndLimits() throws IOException {
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            var root = new TestNode("root" + i);
+            root.next = new TestNode("child" + i);
+            root.next.next = root;
+            objects.add(root);
+        }
+
+        var config = SerializerConfig.builder().cyclePolicy(CyclePolicy.REFERENCE).build();
+        var serializer = new DefaultSerializer(config);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            for (var format : SequenceFormat.values()) {
+                var expected = new ByteArrayOutputStream();
+                serializer.writeAll(objects, expected, format);
+                var json = expected.toString(StandardCharsets.UTF_8);
+                if (format == SequenceFormat.JSON_ARRAY) {
+                    assertTrue(json.contains("{\"name\":\"child1\",\"next\":{\"$ref\":\"/1\"}}"));
+                }
+
+                var actual = new ByteArrayOutputStream();
+                new SerializationPipeline(serializer, executor, 2).writeAll(objects.iterator(), actual, format);
+                assertEquals(json, actual.toString(StandardCharsets.UTF_8));
+
+                var publisher = new ListPublisher(objects);
+                var processor = new SerializingProcessor(serializer, format);
+                var subscriber = new ChunkSubscriber();
+                publisher.subscribe(processor);
+                processor.subscribe(subscriber);
+                subscriber.subscription.request(Long.MAX_VALUE);
+                var published = new ByteArrayOutputStream();
+                for (var chunk : subscriber.chunks) {
+                    published.write(chunk.array(), chunk.position(), chunk.remaining());
+                }
+                assertEquals(json, published.toString(StandardCharsets.UTF_8));
+
+                var limited = new DefaultSerializer(config.toBuilder().maxOutputSize(json.length() - 2).build());
+                assertThrows(LimitExceededException.class, () -> new SerializationPipeline(limited, executor, 2)
+                        .writeAll(objects.iterator(), new ByteArrayOutputStream(), format));
+
+                publisher = new ListPublisher(objects);
+                processor = new SerializingProcessor(limited, format);
+                subscriber = new ChunkSubscriber();
+                publisher.subscribe(processor);
+                processor.subscribe(subscriber);
+                subscriber.subscription.request(Long.MAX_VALUE);
+                assertInstanceOf(LimitExceededException.class, subscriber.error);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Publisher that emits objects of a list synchronously, only as many as requested.
+     */
+    private static final class ListPublisher implements Flow.Publisher<Object> {
+        private final List<?> objects;
+
+        private long requested;
+
+        private int next;
+
+        private boolean cancelled;
+
+        ListPublisher(List<?> objects) {
+            this.objects = objects;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requested += n;
+                    while (!cancelled && next < requested && next < objects.size()) {
+                        subscriber.onNext(objects.get(next++));
+                    }
+                    if (!cancelled && next == objects.size()) {
+                        next++;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static final class ChunkSubscriber implements Flow.Subscriber<ByteBuffer> {
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+
+        private Flow.Subscription subscription;
+
+        private boolean completed;
+
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            chunks.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed = true;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    void channelsGetTheSameBytes() throws Exception {
+        Serializer serializer = new DefaultSerializer();
+        var holder = new TestClassEighteenth();
+        for (int i = 0; i < 5000; i++) {
+            holder.items.add(new TestClassTenth());
+        }
+        var expected = serializer.writeToString(holder);
+
+        var stream = new ByteArrayOutputStream();
+        serializer.write(holder, Channels.newChannel(stream));
+        assertEquals(expected, stream.toString(StandardCharsets.UTF_8));
+
+        var path = Files.createTempFile("serializer", ".json");
+        try {
+            Files.writeString(path, "x".repeat(expected.length() * 2));
+            serializer.write(holder, path);
+            assertEquals(expected, Files.readString(path));
+
+            try (var channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE)) {
+                var written = serializer.writeAsync(holder, channel, 3).get();
+                assertEquals(expected.length(), written);
+
+                var failed = serializer.writeAsync(new TestClassSecond(), channel, 0);
+                var e = assertThrows(ExecutionException.class, failed::get);
+                assertInstanceOf(ExportedException.class, e.getCause());
+            }
+            assertEquals(expected.substring(0, 3) + expected, Files.readString(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    @EnabledOnOs({OS.LINUX, OS.MAC})
+    void mappedFilesGetTheSameBytes() throws Exception {
+        Serializer serializer = new DefaultSerializer();
+        var holder = new TestClassEighteenth();
+        for (int i = 0; i < 5000; i++) {
+            holder.items.add(new TestClassTenth());
+        }
+        var expected = serializer.writeToString(holder);
+
+        var path = Files.createTempFile("serializer", ".json");
+        try {
+            var mapped = new DefaultSerializer(SerializerConfig.builder().mappedWindowSize(4096).build());
+            mapped.write(holder, path);
+            assertEquals(expected, Files.readString(path));
+            mapped.write(new TestClassThirteenth(), path);
+            assertEquals(serializer.writeToString(new TestClassThirteenth()), Files.readString(path));
+
+            var limited = new DefaultSerializer(SerializerConfig.builder()
+                    .mappedWindowSize(4096)
+                    .maxOutputSize(10_000)
+                    .build());
+            assertThrows(LimitExceededException.class, () -> limited.write(holder, path));
+            var written = Files.readString(path);
+            assertTrue(written.length() < expected.length());
+            assertTrue(expected.startsWith(written));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void defaultMethodsWriteWhatStreamsGet() throws Exception {
+        var delegate = new DefaultSerializer();
+        Serializer serializer = new Serializer() {
+            @Override
+            public String writeToString(Object object) throws IllegalAccessException {
+                return delegate.writeToString(object);
+            }
+
+            @Override
+            public void write(Object object, OutputStream outputStream) throws IOException, IllegalAccessException {
+                delegate.write(object, outputStream);
+            }
+
+            @Override
+            public void write(Object object, File file) throws IllegalAccessException, IOException {
+                delegate.write(object, file);
+            }
+        };
+        var holder = new TestClassEighteenth();
+        for (int i = 0; i < 100; i++) {
+            holder.items.add(new TestClassTenth());
+        }
+        var expected = delegate.writeToString(holder);
+
+        var stream = new ByteArrayOutputStream();
+        try (var channel = Channels.newChannel(stream)) {
+            serializer.write(holder, channel);
+            assertTrue(channel.isOpen());
+        }
+        assertEquals(expected, stream.toString(StandardCharsets.UTF_8));
+
+        var objects = Arrays.asList(new TestClassFirst(), null, holder);
+        for (var format : SequenceFormat.values()) {
+            var all = new ByteArrayOutputStream();
+            serializer.writeAll(objects.iterator(), all, format);
+            var optimized = new ByteArrayOutputStream();
+            delegate.writeAll(objects.iterator(), optimized, format);
+            assertEquals(optimized.toString(StandardCharsets.UTF_8), all.toString(StandardCharsets.UTF_8));
+        }
+
+        var path = Files.createTempFile("serializer", ".json");
+        try {
+            Files.writeString(path, "x".repeat(expected.length() * 2));
+            serializer.write(holder, path);
+            assertEquals(expected, Files.readString(path));
+
+            try (var channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE)) {
+                assertEquals(expected.length(), serializer.writeAsync(holder, channel, 3).get());
+
+                var failed = serializer.writeAsync(new TestClassSecond(), channel, 0);
+                var e = assertThrows(ExecutionException.class, failed::get);
+                assertInstanceOf(ExportedException.class, e.getCause());
+            }
+            assertEquals(expected.substring(0, 3) + expected, Files.readString(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void deserializerReadsWhatSerializerWrites() throws IOException, IllegalAccessException {
+        Serializer serializer = new DefaultSerializer();
+        Deserializer deserializer = new DefaultDeserializer();
+
+        var primitives = deserializer.read(serializer.writeToString(new TestClassPrimitives()),
+                TestClassPrimitives.class);
+        assertEquals(serializer.writeToString(new TestClassPrimitives()), serializer.writeToString(primitives));
+
+        var escaped = new TestClassTwelfth();
+        escaped.text = "tab\t \"quote\" \\ Zoë ✓ \uD83D\uDE00";
+        escaped.symbol = '\n';
+        var json = serializer.writeToString(escaped);
+        var read = deserializer.read(json, TestClassTwelfth.class);
+        assertEquals(escaped.text, read.text);
+        assertEquals(escaped.symbol, read.symbol);
+        assertEquals(json, serializer.writeToString(read));
+
+        var labelled = deserializer.read(serializer.writeToString(new TestClassEleventh()), TestClassEleventh.class);
+        assertEquals(serializer.writeToString(new TestClassEleventh()), serializer.writeToString(labelled));
+
+        var nonFinite = deserializer.read(serializer.writeToString(new TestClassThirteenth()),
+                TestClassThirteenth.class);
+        assertEquals(Double.POSITIVE_INFINITY, nonFinite.boxed);
+        assertEquals(Float.NEGATIVE_INFINITY, nonFinite.nested.f);
+        assertNull(nonFinite.nested.list.get(0).boxed);
+
+        var dates = deserializer.read(serializer.writeToString(new TestClassSeventeenth()).getBytes(StandardCharsets.UTF_8),
+                TestClassSeventeenth.class);
+        assertEquals(serializer.writeToString(new TestClassSeventeenth()), serializer.writeToString(dates));
+
+        var record = new TestRecord(7, "Zoë", List.of(new TestClassTenth()), "ignored", LocalTime.of(9, 30));
+        json = serializer.writeToString(record);
+        assertEquals("{\"id\":7,\"full name\":\"Zoë\",\"points\":[\"TestClassTenth\":{\"x\":1,\"y\":2}]," +
+                "\"time\":\"09:30\"}", json);
+        var readRecord = deserializer.read(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)),
+                TestRecord.class);
+        assertEquals(json, serializer.writeToString(readRecord));
+        assertNull(readRecord.skipped());
+
+        json = serializer.writeToString(new TestClassNineteenth());
+        assertEquals(json, serializer.writeToString(deserializer.read(json, TestClassNineteenth.class)));
+        var base64 = new DefaultSerializer(SerializerConfig.builder().base64Bytes(true).build());
+        var bytes = new TestClassNineteenth();
+        bytes.bytes = new byte[]{-1, 0, 127, 64, 3};
+        json = base64.writeToString(bytes);
+        assertArrayEquals(bytes.bytes, deserializer.read(json, TestClassNineteenth.class).bytes);
+        assertThrows(JsonParseException.class,
+                () -> deserializer.read("{\"ints\":[1,null]}", TestClassNineteenth.class));
+        assertThrows(JsonParseException.class, () -> deserializer.read("{\"bytes\":\"@\"}", TestClassNineteenth.class));
+
+        var text = "x".repeat(20_000);
+        var unknown = "{\"unknown\":{\"a\":[1,2.5e3,\"" + text + "\",null,true]},\"bool\" : true ,\"string\":\"" +
+                text + "\"}";
+        var first = deserializer.read(new ByteArrayInputStream(unknown.getBytes(StandardCharsets.UTF_8)),
+                TestClassFirst.class);
+        assertEquals("{\"string\":\"" + text + "\",\"bool\":true}", serializer.writeToString(first));
+
+        assertThrows(ExportedException.class, () -> deserializer.read("{}", TestClassSecond.class));
+        assertThrows(PublicConstructorException.class, () -> deserializer.read("{}", TestClassFourth.class));
+        for (String malformed : List.of("", "[]", "{\"bool\":1}", "{\"bool\":true", "{\"bool\":true}}",
+                "{\"bool\" true}", "{\"string\":\"\\q\"}", "{bool:true}")) {
+            assertThrows(JsonParseException.class, () -> deserializer.read(malformed, TestClassFirst.class), malformed);
+        }
+    }
+
+    @Test
+    void indexReadsSelectedValues() throws IOException, IllegalAccessException {
+        Serializer serializer = new DefaultSerializer();
+        var escaped = new TestClassTwelfth();
+        escaped.text = "a/b ~ \"c\"";
+        var record = new TestRecord(7, "Zoë", List.of(new TestClassTenth(), new TestClassTenth()), null,
+                LocalTime.of(9, 30));
+        var json = "{\"record\":" + serializer.writeToString(record) + ",\"escaped\":" +
+                serializer.writeToString(escaped) + ",\"values\":[1.5,-2,true,false,null,NaN,\"x\"],\"a/b\":{\"~\":3}}";
+
+        var file = Files.createTempFile("index", ".json");
+        try {
+            Files.writeString(file, json);
+            var direct = ByteBuffer.allocateDirect(json.length() * 2);
+            direct.put(json.getBytes(StandardCharsets.UTF_8)).flip();
+
+            for (JsonIndex index : List.of(JsonIndex.of(json.getBytes(StandardCharsets.UTF_8)), JsonIndex.of(direct),
+                    JsonIndex.map(file))) {
+                assertEquals(json, index.root().toString());
+                assertEquals(JsonParser.Token.BEGIN_OBJECT, index.root().type());
+                assertEquals(4, index.root().size());
+                assertEquals(7, index.at("/record/id").asInt());
+                assertEquals("Zoë", index.at("/record/full name").asString());
+                assertEquals(2, index.at("/record/points").size());
+                assertEquals(2, index.at("/record/points/1/y").asLong());
+                assertEquals("{\"x\":1,\"y\":2}", index.at("/record/points/0").toString());
+                assertEquals(record.time(), index.at("/record").read(TestRecord.class).time());
+                assertEquals(escaped.text, index.at("/escaped/text").asString());
+                assertTrue(index.at("/escaped/symbol").isNull());
+                assertEquals("", index.at("/escaped/quote \" name").asString());
+                assertEquals(1.5, index.at("/values/0").asDouble());
+                assertEquals(-2, index.at("/values/1").asInt());
+                assertTrue(index.at("/values/2").asBoolean());
+                assertFalse(index.at("/values/3").asBoolean());
+                assertEquals(JsonParser.Token.NULL, index.at("/values/4").type());
+                assertTrue(Double.isNaN(index.at("/values/5").asDouble()));
+                assertEquals("x", index.at("/values").get(6).asString());
+                assertEquals(3, index.at("/a~1b/~0").asInt());
+                assertNull(index.at("/values/7"));
+                assertNull(index.at("/values/01"));
+                assertNull(index.at("/record/missing/x"));
+                assertNull(index.at("/record/id/x"));
+                assertThrows(JsonParseException.class, () -> index.at("/values/6").asInt());
+                assertThrows(IllegalArgumentException.class, () -> index.at("record"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        for (String malformed : List.of("", "{", "{\"a\":1]", "{\"a\" 1}", "{\"a\":1,}", "[1 2]", "{\"a\":\"b}",
+                "{} {}", "{1:2}")) {
+            assertThrows(JsonParseException.class, () -> JsonIndex.of(malformed.getBytes(StandardCharsets.UTF_8)),
+                    malformed);
+        }
+    }
+
+    @Test
+    void writePrimitiveArrays() throws IOException, IllegalAccessException {
+        var expected = "{\"ints\":[1,-2,2147483647],\"longs\":[9000000000],\"doubles\":[0.5,NaN,1.0E-7]," +
+                "\"floats\":[1.25],\"shorts\":[],\"bytes\":[-1,0,127],\"booleans\":[true,false]," +
+                "\"list\":[3,1,4,1,5],\"missing\":null,\"missingList\":null}";
+
+        for (var serializer : List.of(new DefaultSerializer(),
+                new DefaultSerializer(SerializerConfig.builder().compiled(true).build()))) {
+            assertEquals(expected, serializer.writeToString(new TestClassNineteenth()));
+
+            assertEquals("{\"list\":[\"TestClassNineteenth\":" + expected + "]}",
+                    serializer.writeToString(new TestClassTwentieth()));
+        }
+
+        var base64 = new DefaultSerializer(SerializerConfig.builder().base64Bytes(true).build());
+        for (var bytes : List.of(new byte[0], new byte[]{-1}, new byte[]{-1, 0}, new byte[]{-1, 0, 127, 64},
+                new byte[20_000])) {
+            var object = new TestClassNineteenth();
+            object.bytes = bytes;
+            var json = base64.writeToString(object);
+            var encoded = json.substring(json.indexOf("\"bytes\":\"") + 9, json.indexOf("\",\"booleans\""));
+            assertEquals(Base64.getEncoder().encodeToString(bytes), encoded);
+
+            var stream = new ByteArrayOutputStream();
+            base64.write(object, stream);
+            assertEquals(json, stream.toString(StandardCharsets.UTF_8));
+        }
+
+        var stream = new ByteArrayOutputStream();
+        try (var generator = new JsonGenerator(stream)) {
+            generator.setNonFiniteHandling(NonFiniteHandling.STRING);
+            generator.beginArray();
+            generator.writeArray(new double[]{Double.NaN, 1});
+            generator.writeArray(new float[]{Float.NEGATIVE_INFINITY});
+            generator.writeArray((int[]) null);
+            generator.setNonFiniteHandling(NonFiniteHandling.FAIL);
+            assertThrows(NonFiniteNumberException.class, () -> generator.writeArray(new double[]{Double.NaN}));
+            generator.endArray();
+        }
+        assertTrue(stream.toString(StandardCharsets.UTF_8).startsWith("[[\"NaN\",1.0],[\"-Infinity\"],null,["));
+    }
+
+    @Test
+    void writeMaps() throws IllegalAccessException {
+        var expected = "{\"counts\":{\"a\":1,\"quote \\\"\":2,\"b\":null},\"days\":{\"MONDAY\":\"x\"}," +
+                "\"points\":{\"1\":{\"x\":1,\"y\":2},\"-2\":{\"x\":1,\"y\":2}}," +
+                "\"attributes\":{\"date\":\"02/01/2024\",\"flag\":true," +
+                "\"nested\":{\"string\":null,\"boolean value\":false}}," +
+                "\"missing\":null}";
+
+        for (var serializer : List.of(new DefaultSerializer(),
+                new DefaultSerializer(SerializerConfig.builder().compiled(true).build()))) {
+            assertEquals(expected, serializer.writeToString(new TestClassTwentyFirst()));
+
+            var excluded = new TestClassTwentySecond();
+            assertEquals("{\"map\":{\"b\":\"c\"}}", serializer.writeToString(excluded));
+
+            excluded.map.put("d", new Thread());
+            assertThrows(ExportedException.class, () -> serializer.writeToString(excluded));
+
+            excluded.map.clear();
+            excluded.map.put(new Object(), "e");
+            assertThrows(IllegalArgumentException.class, () -> serializer.writeToString(excluded));
+
+            excluded.map.clear();
+            excluded.map.put(null, "f");
+            assertThrows(IllegalArgumentException.class, () -> serializer.writeToString(excluded));
+        }
+
+        var keyNames = ClassPlan.of(TestClassTwentyFirst.class).properties[0].keyNames;
+        assertSame(keyNames.nameOf("a"), keyNames.nameOf("a"));
+        assertArrayEquals("\"Zoë\":".getBytes(StandardCharsets.UTF_8), keyNames.nameOf("Zoë"));
+    }
+
+    @Test
+    void writeCollectionsInPlace() throws IllegalAccessException {
+        var point = "\"TestClassTenth\":{\"x\":1,\"y\":2}";
+        var expected = "{\"queue\":[" + point + "],\"lazy\":[" + point + "," + point + "," + point + "]," +
+                "\"numbers\":[1,2,3],\"names\":[\"a\",\"b\"],\"tags\":[\"x\",\"y \\\"\"]," +
+                "\"dates\":[\"02/01/2024\"],\"missing\":null}";
+
+        for (var serializer : List.of(new DefaultSerializer(),
+                new DefaultSerializer(SerializerConfig.builder().compiled(true).build()),
+                new DefaultSerializer(SerializerConfig.builder().parallelThreshold(2).build()))) {
+            assertEquals(expected, serializer.writeToString(new TestClassTwentyThird()));
+        }
+
+        var deserializer = new DefaultDeserializer();
+        var read = deserializer.read(new DefaultSerializer().writeToString(new TestClassTwentyFourth()),
+                TestClassTwentyFourth.class);
+        assertEquals(new LinkedHashSet<>(List.of("x", "y")), read.tags);
+        assertEquals(List.of(1, 2), read.numbers);
+
+        var range = "{\"range\":{\"from\":1,\"to\":3}}";
+        for (var serializer : List.of(new DefaultSerializer(),
+                new DefaultSerializer(SerializerConfig.builder().compiled(true).build()))) {
+            assertEquals(range, serializer.writeToString(new TestClassTwentyNinth()));
+        }
+        var readRange = deserializer.read(range, TestClassTwentyNinth.class);
+        assertEquals(range, new DefaultSerializer().writeToString(readRange));
+    }
+
+    @Test
+    void cacheFragmentsOfImmutableObjects() throws IllegalAccessException {
+        var shared = new TestCurrency("EUR", 2, new TestClassTenth());
+        var holder = new TestClassTwentyFifth();
+        holder.main = shared;
+        holder.records = List.of(shared, shared, new TestCurrency("EUR", 2, shared.point()));
+        var expected = new DefaultSerializer().writeToString(holder);
+
+        var byIdentity = FragmentCache.byIdentity(16);
+        var identitySerializer = new DefaultSerializer(SerializerConfig.builder().fragmentCache(byIdentity).build());
+        assertEquals(expected, identitySerializer.writeToString(holder));
+        assertEquals(1, byIdentity.hits());
+        assertEquals(3, byIdentity.misses());
+        assertEquals(expected, identitySerializer.writeToString(holder));
+        assertEquals(5, byIdentity.hits());
+        assertEquals(3, byIdentity.size());
+
+        var byEquality = FragmentCache.byEquality(16);
+        var equalitySerializer = new DefaultSerializer(SerializerConfig.builder().fragmentCache(byEquality)
+                .compiled(true).build());
+        assertEquals(expected, equalitySerializer.writeToString(holder));
+        assertEquals(2, byEquality.hits());
+        assertEquals(2, byEquality.misses());
+
+        var immutable = new TestClassTwentySixth();
+        assertEquals(new DefaultSerializer().writeToString(immutable), equalitySerializer.writeToString(immutable));
+        equalitySerializer.writeToString(immutable);
+        equalitySerializer.writeToString(new TestClassTenth());
+        assertEquals(3, byEquality.hits());
+        assertEquals(3, byEquality.misses());
+
+        var small = FragmentCache.byIdentity(2);
+        var smallSerializer = new DefaultSerializer(SerializerConfig.builder().fragmentCache(small).build());
+        holder.records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            holder.records.add(new TestCurrency("C" + i, i, shared.point()));
+        }
+        assertEquals(new DefaultSerializer().writeToString(holder), smallSerializer.writeToString(holder));
+        assertEquals(2, small.size());
+        small.clear();
+        assertEquals(0, small.size());
+
+        // A fragment is measured from where it is copied to, so it fails before it is cached.
+        holder.main = null;
+        holder.records = List.of(new TestCurrency("y".repeat(100), 2, shared.point()),
+                new TestCurrency("x".repeat(100), 2, shared.point()));
+        var length = new DefaultSerializer().writeToString(holder).length();
+        var limitedSerializer = new DefaultSerializer(SerializerConfig.builder()
+                .fragmentCache(small)
+                .maxOutputSize(length - 30)
+                .build());
+        assertThrows(LimitExceededException.class, () -> limitedSerializer.writeToString(holder));
+        assertEquals(1, small.size());
+
+        assertThrows(IllegalArgumentException.class, () -> FragmentCache.byEquality(0));
+    }
+
+    @Test
+    void writeEncodedNamesAndEnums() throws IllegalAccessException {
+        var expected = "{\"day\":\"MONDAY\",\"tab\\tcount\":3}";
+        for (var serializer : List.of(new DefaultSerializer(),
+                new DefaultSerializer(SerializerConfig.builder().compiled(true).build()))) {
+            assertEquals(expected, serializer.writeToString(new TestClassTwentySeventh()));
+            assertEquals("{\"list\":[\"TestClassTwentySeventh\":" + expected + "]}",
+                    serializer.writeToString(new TestClassTwentyEighth()));
+        }
+
+        var read = new DefaultDeserializer().read(new DefaultSerializer().writeToString(new TestClassTwentySeventh()),
+                TestClassTwentySeventh.class);
+        assertEquals(DayOfWeek.MONDAY, read.day);
+    }
+
+    @Test
+    void handleCycles() throws IllegalAccessException {
+        var root = new TestNode("root");
+        var child = new TestNode("child");
+        root.next = child;
+        child.next = root;
+        root.children = new ArrayList<>(List.of(child, root));
+
+        for (var compiled : List.of(false, true)) {
+            var config = SerializerConfig.builder().compiled(compiled);
+            assertThrows(CyclicReferenceException.class,
+                    () -> new DefaultSerializer(config.build()).writeToString(root));
+
+            assertEquals("{\"name\":\"root\",\"next\":{\"name\":\"child\",\"next\":null}," +
+                            "\"children\":[\"TestNode\":{\"name\":\"child\",\"next\":null},null]}",
+                    new DefaultSerializer(config.cyclePolicy(CyclePolicy.NULL).build()).writeToString(root));
+
+            var json = new DefaultSerializer(config.cyclePolicy(CyclePolicy.REFERENCE).build()).writeToString(root);
+            assertEquals("{\"name\":\"root\",\"next\":{\"name\":\"child\",\"next\":{\"$ref\":\"\"}}," +
+                    "\"children\":[\"TestNode\":{\"name\":\"child\",\"next\":{\"$ref\":\"\"}}," +
+                    "{\"$ref\":\"\"}]}", json);
+        }
+
+        var shared = new TestNode("shared");
+        var pair = new TestNode("pair");
+        pair.next = shared;
+        pair.children = List.of(shared, shared);
+        assertEquals("{\"name\":\"pair\",\"next\":{\"name\":\"shared\"},\"children\":[\"TestNode\":" +
+                        "{\"name\":\"shared\"},\"TestNode\":{\"name\":\"shared\"}]}",
+                new DefaultSerializer().writeToString(pair));
+
+        var grandchild = new TestNode("grandchild");
+        child.next = grandchild;
+        grandchild.next = child;
+        var index = JsonIndex.of(new DefaultSerializer(SerializerConfig.builder()
+                .cyclePolicy(CyclePolicy.REFERENCE).build()).writeToString(root).getBytes(StandardCharsets.UTF_8));
+        var reference = index.at("/next/next/next/$ref").asString();
+        assertEquals("/next", reference);
+        assertEquals("child", index.at(reference).get("name").asString());
+    }
+
+    @Test
+    void handleCyclesInParallel() throws IllegalAccessException {
+        var root = new TestNode("root");
+        root.children = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            var child = new TestNode("c" + i);
+            child.next = i % 2 == 0 ? root : null;
+            root.children.add(child);
+        }
+
+        var config = SerializerConfig.builder().parallelThreshold(2).cyclePolicy(CyclePolicy.REFERENCE).build();
+        var expected = new DefaultSerializer(config.toBuilder().parallelThreshold(Integer.MAX_VALUE).build())
+                .writeToString(root);
+        assertTrue(expected.contains("{\"name\":\"c6\",\"next\":{\"$ref\":\"\"}}"));
+        assertEquals(expected, new DefaultSerializer(config).writeToString(root));
+        assertThrows(CyclicReferenceException.class, () -> new DefaultSerializer(
+                config.toBuilder().cyclePolicy(CyclePolicy.FAIL).build()).writeToString(root));
+    }
+
+    @Test
+    void writeDeepTreesWithSmallStacks() throws InterruptedException {
+        var root = new TestDeepNode(0);
+        var node = root;
+        for (int i = 1; i < 100_000; i++) {
+            node.next = new TestDeepNode(i);
+            node = node.next;
+        }
+
+        var expected = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            expected.append("{\"name\":\"").append(i).append('"').append(i < 99_999 ? ",\"next\":" : "");
+        }
+        for (int i = 99_999; i >= 0; i--) {
+            expected.append(",\"level\":").append(i).append(",\"mark\":\"x\"}");
+        }
+
+        for (var compiled : List.of(false, true)) {
+            var serializer = new DefaultSerializer(SerializerConfig.builder().compiled(compiled).maxDepth(200_000)
+                    .build());
+            var result = new String[1];
+            var thread = new Thread(null, () -> {
+                try {
+                    result[0] = serializer.writeToString(root);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "small stack", 256 * 1024);
+            thread.start();
+            thread.join();
+
+            assertEquals(expected.toString(), result[0]);
+            assertThrows(LimitExceededException.class,
+                    () -> new DefaultSerializer(SerializerConfig.builder().compiled(compiled).build())
+                            .writeToString(root));
+        }
+    }
+
+    @Test
+    void readDocumentsUpToMaxDepth() {
+        var deserializer = new DefaultDeserializer();
+        assertThrows(JsonParseException.class, () -> deserializer.read(nested(20_000), TestDeepNode.class));
+        assertThrows(JsonParseException.class, () -> deserializer.read("{\"unknown\":" + "[".repeat(20_000) +
+                "]".repeat(20_000) + "}", TestClassFirst.class));
+
+        var node = deserializer.read(nested(DefaultDeserializer.DEFAULT_MAX_DEPTH), TestDeepNode.class);
+        var levels = 1;
+        for (; node.next != null; node = node.next) {
+            levels++;
+        }
+        assertEquals(DefaultDeserializer.DEFAULT_MAX_DEPTH, levels);
+
+        var shallow = new DefaultDeserializer(5);
+        assertNotNull(shallow.read(nested(5), TestDeepNode.class));
+        assertThrows(JsonParseException.class, () -> shallow.read(nested(6), TestDeepNode.class));
+        assertThrows(IllegalArgumentException.class, () -> new DefaultDeserializer(0));
+    }
+
+    /**
+     * Builds a document of nodes nested inside each other.
+     */
+    private static String nested(int levels) {
+        return "{\"next\":".repeat(levels - 1) + "{}" + "}".repeat(levels - 1);
+    }
+
+    @Test
+    void limitDocuments() throws IllegalAccessException {
+        var root = new TestNode("root");
+        root.next = new TestNode("child");
+        root.children = List.of(new TestNode("a"), new TestNode("b"));
+
+        var json = new DefaultSerializer().writeToString(root);
+        var exact = SerializerConfig.builder().maxDepth(3).maxOutputSize(json.length()).build();
+        assertEquals(json, new DefaultSerializer(exact).writeToString(root));
+        assertEquals(json, new DefaultSerializer(exact.toBuilder().compiled(true).build()).writeToString(root));
+
+        assertThrows(LimitExceededException.class, () -> new DefaultSerializer(
+                exact.toBuilder().maxDepth(2).build()).writeToString(root));
+        assertThrows(LimitExceededException.class, () -> new DefaultSerializer(
+                exact.toBuilder().maxOutputSize(json.length() - 1).build()).writeToString(root));
+        var sequence = Collections.nCopies(10, root);
+        assertThrows(LimitExceededException.class, () -> new DefaultSerializer(exact.toBuilder().maxOutputSize(16)
+                .build()).writeAll(sequence.iterator(), new ByteArrayOutputStream(), SequenceFormat.JSON_ARRAY));
+
+        var reused = new DefaultSerializer(exact.toBuilder().maxDepth(1).pooledContexts(1).build());
+        assertThrows(LimitExceededException.class, () -> reused.writeToString(root));
+        assertEquals("{\"name\":\"a\"}", reused.writeToString(new TestNode("a")));
+
+        assertThrows(IllegalArgumentException.class, () -> SerializerConfig.builder().maxDepth(0));
+        assertThrows(IllegalArgumentException.class, () -> SerializerConfig.builder().maxOutputSize(0));
+        assertThrows(IllegalArgumentException.class, () -> SerializerConfig.builder().cyclePolicy(null));
+    }
+
     @Test
     void write() throws IOException, IllegalAccessException {
         File file = new File("src/test/resources/test.txt");
@@ -191,4 +1339,320 @@ class TestClassEights {
 
     public TestClassEights() {
     }
-}
\ No newline at end of file
+}
+
+@Exported
+class TestClassPrimitives {
+    int i = -7;
+    long l = 9_000_000_000L;
+    double d = 0.5;
+    float f = 1.25f;
+    char c = 'x';
+    short s = 3;
+    byte b = -1;
+    boolean bool = true;
+    Integer boxed = 4;
+
+    public TestClassPrimitives() {
+    }
+}
+
+@Exported
+class TestClassNinth {
+    public String name = "Zoë ✓";
+    public List<TestClassThird> list = new ArrayList<>();
+
+    public TestClassNinth() {
+    }
+}
+
+@Exported
+class TestClassTenth implements JsonWritable {
+    int x = 1;
+    int y = 2;
+
+    public TestClassTenth() {
+    }
+
+    @Override
+    public void writeJson(JsonGenerator generator) {
+        generator.beginObject();
+        generator.writeName("x");
+        generator.writeNumber(x);
+        generator.writeName("y");
+        generator.writeNumber(y);
+        generator.endObject();
+    }
+}
+
+@Exported
+class TestClassEleventh {
+    public TestClassTenth point = new TestClassTenth();
+    public List<TestClassTenth> points = List.of(new TestClassTenth(), new TestClassTenth());
+
+    public TestClassEleventh() {
+    }
+}
+
+@Exported(nullHandling = NullHandling.INCLUDE)
+class TestClassTwelfth {
+    String text;
+    Character symbol;
+    @PropertyName("quote \" name")
+    String empty = "";
+
+    public TestClassTwelfth() {
+    }
+}
+
+@Exported
+class TestClassThirteenth {
+    double d = Double.NaN;
+    Double boxed = Double.POSITIVE_INFINITY;
+    TestClassFourteenth nested = new TestClassFourteenth();
+
+    public TestClassThirteenth() {
+    }
+}
+
+@Exported(nonFiniteHandling = NonFiniteHandling.STRING)
+class TestClassFourteenth {
+    double d = Double.NaN;
+    float f = Float.NEGATIVE_INFINITY;
+    List<TestClassFifteenth> list = List.of(new TestClassFifteenth());
+
+    public TestClassFourteenth() {
+    }
+}
+
+@Exported(nonFiniteHandling = NonFiniteHandling.NULL)
+class TestClassFifteenth {
+    double d = Double.NaN;
+    Float boxed = Float.NaN;
+    float finite = 1e-5f;
+
+    public TestClassFifteenth() {
+    }
+}
+
+@Exported(nonFiniteHandling = NonFiniteHandling.FAIL)
+class TestClassSixteenth {
+    double d = Double.POSITIVE_INFINITY;
+
+    public TestClassSixteenth() {
+    }
+}
+
+@Exported(nullHandling = NullHandling.INCLUDE)
+class TestClassSeventeenth {
+    LocalDate date = LocalDate.of(2024, 1, 2);
+    LocalTime time = LocalTime.of(10, 15, 30, 123_000);
+    LocalDateTime dateTime = LocalDateTime.of(2024, 1, 2, 10, 15);
+    @DateFormat(pattern = "dd/MM/yy")
+    LocalDate shortYear = LocalDate.of(2024, 1, 2);
+    @DateFormat(pattern = "dd/MM/yyyy")
+    LocalDate missing;
+
+    public TestClassSeventeenth() {
+    }
+}
+
+@Exported(nullHandling = NullHandling.INCLUDE)
+class TestClassEighteenth {
+    List<TestClassTenth> items = new ArrayList<>();
+    List<TestClassFifteenth> nested = new ArrayList<>();
+
+    public TestClassEighteenth() {
+    }
+}
+
+@Exported(nullHandling = NullHandling.INCLUDE)
+class TestClassNineteenth {
+    int[] ints = {1, -2, Integer.MAX_VALUE};
+    long[] longs = {9_000_000_000L};
+    double[] doubles = {0.5, Double.NaN, 1e-7};
+    float[] floats = {1.25f};
+    short[] shorts = {};
+    byte[] bytes = {-1, 0, 127};
+    boolean[] booleans = {true, false};
+    TestIntList list = new TestIntList(3, 1, 4, 1, 5);
+    int[] missing;
+    TestIntList missingList;
+
+    public TestClassNineteenth() {
+    }
+}
+
+@Exported(nullHandling = NullHandling.INCLUDE)
+class TestClassTwentieth {
+    List<TestClassNineteenth> list = List.of(new TestClassNineteenth());
+
+    public TestClassTwentieth() {
+    }
+}
+
+@Exported(nullHandling = NullHandling.INCLUDE)
+class TestClassTwentyFirst {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    Map<DayOfWeek, String> days = new EnumMap<>(Map.of(DayOfWeek.MONDAY, "x"));
+    Map<Long, TestClassTenth> points = new LinkedHashMap<>();
+    @DateFormat(pattern = "dd/MM/yyyy")
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    Map<String, Integer> missing;
+
+    public TestClassTwentyFirst() {
+        counts.put("a", 1);
+        counts.put("quote \"", 2);
+        counts.put("b", null);
+        points.put(1L, new TestClassTenth());
+        points.put(-2L, new TestClassTenth());
+        attributes.put("date", LocalDate.of(2024, 1, 2));
+        attributes.put("flag", true);
+        attributes.put("nested", new TestClassThird());
+    }
+}
+
+@Exported
+class TestClassTwentySecond {
+    Map<Object, Object> map = new LinkedHashMap<>();
+
+    public TestClassTwentySecond() {
+        map.put("a", null);
+        map.put("b", "c");
+    }
+}
+
+@Exported(nullHandling = NullHandling.INCLUDE)
+class TestClassTwentyThird {
+    Collection<TestClassTenth> queue = new ArrayDeque<>(List.of(new TestClassTenth()));
+    Iterable<TestClassTenth> lazy = () -> Stream.generate(TestClassTenth::new).limit(3).iterator();
+    Stream<Integer> numbers = Stream.of(1, 2, 3);
+    Supplier<Iterator<String>> names = () -> List.of("a", "b").iterator();
+    List<String> tags = new LinkedList<>(List.of("x", "y \""));
+    @DateFormat(pattern = "dd/MM/yyyy")
+    Set<LocalDate> dates = Set.of(LocalDate.of(2024, 1, 2));
+    Iterable<TestClassTenth> missing;
+
+    public TestClassTwentyThird() {
+    }
+}
+
+@Exported
+class TestClassTwentyFourth {
+    Set<String> tags = new LinkedHashSet<>(List.of("x", "y"));
+    Iterable<Integer> numbers = List.of(1, 2);
+
+    public TestClassTwentyFourth() {
+    }
+}
+
+@Exported
+class TestClassTwentyFifth {
+    TestCurrency main;
+    List<TestCurrency> records;
+
+    public TestClassTwentyFifth() {
+    }
+}
+
+@Exported
+@Immutable
+class TestClassTwentySixth {
+    final String code = "EUR";
+    final int digits = 2;
+
+    public TestClassTwentySixth() {
+    }
+}
+
+@Exported
+class TestClassTwentySeventh {
+    DayOfWeek day = DayOfWeek.MONDAY;
+    @PropertyName("tab\tcount")
+    int count = 3;
+
+    public TestClassTwentySeventh() {
+    }
+}
+
+@Exported
+class TestClassTwentyEighth {
+    List<TestClassTwentySeventh> list = List.of(new TestClassTwentySeventh());
+
+    public TestClassTwentyEighth() {
+    }
+}
+
+@Exported
+class TestRange implements Iterable<Integer> {
+    int from;
+    int to;
+
+    public TestRange() {
+    }
+
+    TestRange(int from, int to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return Stream.iterate(from, i -> i <= to, i -> i + 1).iterator();
+    }
+}
+
+@Exported
+class TestClassTwentyNinth {
+    TestRange range = new TestRange(1, 3);
+
+    public TestClassTwentyNinth() {
+    }
+}
+
+@Exported
+class TestClassThirtieth {
+    Iterable<Integer> values;
+
+    public TestClassThirtieth() {
+    }
+}
+
+@Exported
+class TestNode {
+    String name;
+    TestNode next;
+    List<TestNode> children;
+
+    public TestNode() {
+    }
+
+    TestNode(String name) {
+        this.name = name;
+    }
+}
+
+@Exported
+class TestDeepNode {
+    String name;
+    TestDeepNode next;
+    int level;
+    char mark = 'x';
+
+    public TestDeepNode() {
+    }
+
+    TestDeepNode(int level) {
+        this.name = String.valueOf(level);
+        this.level = level;
+    }
+}
+
+@Exported
+record TestCurrency(String code, int digits, TestClassTenth point) {
+}
+
+@Exported
+record TestRecord(int id, @PropertyName("full name") String name, List<TestClassTenth> points,
+                  @Ignored String skipped, @DateFormat(pattern = "HH:mm") LocalTime time) {
+}
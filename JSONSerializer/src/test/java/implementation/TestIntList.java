@@ -0,0 +1,57 @@
+package implementation;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of ints with a writer registered as a service, like a list of a primitive collections library.
+ */
+public final class TestIntList {
+    private int[] values = new int[4];
+
+    private int size;
+
+    public TestIntList(int... values) {
+        for (var value : values) {
+            add(value);
+        }
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int getInt(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public static final class Writer implements PrimitiveCollectionWriter<TestIntList> {
+        @Override
+        public Class<TestIntList> type() {
+            return TestIntList.class;
+        }
+
+        @Override
+        public void writeElements(TestIntList collection, JsonGenerator generator) {
+            for (int i = 0; i < collection.size(); i++) {
+                generator.writeNumber(collection.getInt(i));
+            }
+        }
+
+        @Override
+        public Class<?> arrayType() {
+            return int[].class;
+        }
+
+        @Override
+        public TestIntList fromArray(Object elements) {
+            return new TestIntList((int[]) elements);
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package processor;
+
+import implementation.GeneratedWriter;
+import implementation.NullHandling;
+import implementation.PrimitiveCollectionWriter;
+import interfaces.DateFormat;
+import interfaces.Exported;
+import interfaces.Ignored;
+import interfaces.PropertyName;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Annotation processor that generates a writer without reflection for every @Exported class.
+ * A writer of class Xxx is generated as XxxJsonWriter in the same package, and all writers are
+ * registered in META-INF/services/implementation.GeneratedWriter, where DefaultSerializer finds them.
+ * Restrictions that DefaultSerializer checks at runtime are reported as compile errors.
+ */
+@SupportedAnnotationTypes("interfaces.Exported")
+public class ExportedProcessor extends AbstractProcessor {
+    /**
+     * Qualified names of writers generated in all rounds.
+     */
+    private final List<String> writers = new ArrayList<>();
+
+    /**
+     * Qualified names of types with a PrimitiveCollectionWriter on the processor path, loaded on first use.
+     */
+    private List<String> primitiveCollections;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (var element : roundEnv.getElementsAnnotatedWith(Exported.class)) {
+            if (element instanceof TypeElement type) {
+                processType(type);
+            }
+        }
+
+        if (roundEnv.processingOver() && !writers.isEmpty()) {
+            writeRegistry();
+        }
+        return false;
+    }
+
+    /**
+     * Checks restrictions of a class and generates its writer.
+     *
+     * @param type class marked as @Exported
+     */
+    private void processType(TypeElement type) {
+        if (!handleClassRestrictions(type)) {
+            return;
+        }
+
+        List<Property> properties = new ArrayList<>();
+        for (var field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getAnnotation(Ignored.class) != null) {
+                continue;
+            }
+
+            var property = processField(type, field);
+            if (property == null) {
+                return;
+            }
+            properties.add(property);
+        }
+
+        if (!isAccessible(type)) {
+            warning(String.format("The writer of class %s is not generated because the class is private",
+                    type.getSimpleName()), type);
+            return;
+        }
+
+        try {
+            writeWriter(type, properties);
+        } catch (IOException e) {
+            error(String.format("The writer of class %s cannot be written: %s", type.getSimpleName(),
+                    e.getMessage()), type);
+        }
+    }
+
+    /**
+     * Checks if a class can be serialized.
+     *
+     * @param type class marked as @Exported
+     * @return true if a class can be serialized, otherwise, false
+     */
+    private boolean handleClassRestrictions(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS && type.getKind() != ElementKind.RECORD) {
+            error(String.format("@Exported %s %s cannot be serialized, only classes and records can",
+                    type.getKind().toString().toLowerCase(), type.getSimpleName()), type);
+            return false;
+        }
+
+        if (type.getKind() == ElementKind.CLASS && !hasConstructor(type)) {
+            error(String.format("There is no public constructor with no parameters for class %s",
+                    type.getSimpleName()), type);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if class has a public constructor with no parameters.
+     *
+     * @param type some class
+     * @return true if there is such a constructor, otherwise, false
+     */
+    private boolean hasConstructor(TypeElement type) {
+        for (var constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes a field and finds an expression that reads it.
+     *
+     * @param type  class of a field
+     * @param field serializable field
+     * @return description of a property, or null if a writer cannot be generated
+     */
+    private Property processField(TypeElement type, VariableElement field) {
+        var fieldType = field.asType();
+        var erasure = processingEnv.getTypeUtils().erasure(fieldType);
+
+        var propertyName = field.getAnnotation(PropertyName.class);
+        var name = propertyName != null ? propertyName.value() : field.getSimpleName().toString();
+
+        String elementType = null;
+        if (isCollection(erasure)) {
+            elementType = getGenericType(fieldType, 0);
+        } else if (isIteratorSupplier(fieldType)) {
+            elementType = getGenericType(((DeclaredType) fieldType).getTypeArguments().get(0), 0);
+        } else if (isMap(erasure)) {
+            if (!isNameType(fieldType)) {
+                error(String.format("The keys of map %s cannot be written as names, " +
+                        "keys of maps must be strings, enums or numbers", field.getSimpleName()), field);
+                return null;
+            }
+            elementType = getGenericType(fieldType, 1);
+        } else if (!isWrapperOrPrimitive(erasure) && !isPrimitiveArray(erasure) && !isPrimitiveCollection(erasure)
+                && !isExported(fieldType)) {
+            error(String.format("The object %s you want to write is not @Exported",
+                    processingEnv.getTypeUtils().asElement(erasure) != null
+                            ? processingEnv.getTypeUtils().asElement(erasure).getSimpleName()
+                            : erasure), field);
+            return null;
+        }
+
+        var dateFormat = field.getAnnotation(DateFormat.class);
+        String datePattern = null;
+        if (dateFormat != null) {
+            try {
+                DateTimeFormatter.ofPattern(dateFormat.pattern());
+            } catch (IllegalArgumentException e) {
+                error(String.format("Invalid @DateFormat pattern \"%s\": %s", dateFormat.pattern(), e.getMessage()),
+                        field);
+                return null;
+            }
+            datePattern = dateFormat.pattern();
+        }
+
+        var read = readExpression(type, field);
+        if (read == null) {
+            warning(String.format("The writer of class %s is not generated because field %s is private, " +
+                    "the class is written reflectively", type.getSimpleName(), field.getSimpleName()), field);
+            return null;
+        }
+
+        return new Property(name, erasure.getKind().isPrimitive() ? erasure.getKind() : null,
+                erasure.toString(), elementType, isExported(fieldType), datePattern, read);
+    }
+
+    /**
+     * Finds an expression that reads a field from a variable named {@code value}.
+     * A private field of a class is not read through a getter, since a getter may return something else
+     * than the reflective writer reads, so such a class keeps its reflective writer.
+     *
+     * @param type  class of a field
+     * @param field serializable field
+     * @return Java expression, or null if a field cannot be read from the same package
+     */
+    private String readExpression(TypeElement type, VariableElement field) {
+        var name = field.getSimpleName().toString();
+        if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            return "value." + name;
+        }
+
+        if (type.getKind() == ElementKind.RECORD) {
+            return "value." + name + "()";
+        }
+        return null;
+    }
+
+    /**
+     * Writes a source file of a writer.
+     *
+     * @param type       class marked as @Exported
+     * @param properties serializable properties of a class
+     * @throws IOException if a file cannot be written
+     */
+    private void writeWriter(TypeElement type, List<Property> properties) throws IOException {
+        var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        var writerName = writerName(type);
+        var qualifiedName = packageName.isEmpty() ? writerName : packageName + "." + writerName;
+        var typeName = type.getQualifiedName().toString();
+
+        var file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        try (var out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.printf("package %s;%n%n", packageName);
+            }
+            out.println("import implementation.GeneratedProperty;");
+            out.println("import implementation.GeneratedWriter;");
+            out.println("import implementation.PropertySink;");
+            out.println();
+            out.println("/**");
+            out.printf(" * Writer of {@link %s}, generated by %s.%n", typeName, getClass().getSimpleName());
+            out.println(" */");
+            out.printf("@javax.annotation.processing.Generated(\"%s\")%n", getClass().getName());
+            out.printf("public final class %s implements GeneratedWriter {%n", writerName);
+            out.println("    private static final GeneratedProperty[] PROPERTIES = {");
+            for (var property : properties) {
+                out.printf("            new GeneratedProperty(%s, %s.class, %s, %s, %s),%n",
+                        literal(property.name), property.type,
+                        property.elementType != null ? property.elementType + ".class" : "null",
+                        property.typeExported,
+                        property.datePattern != null ? literal(property.datePattern) : "null");
+            }
+            out.println("    };");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<?> type() {");
+            out.printf("        return %s.class;%n", typeName);
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public boolean nullHandling() {");
+            out.printf("        return %s;%n",
+                    type.getAnnotation(Exported.class).nullHandling() == NullHandling.INCLUDE);
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public implementation.NonFiniteHandling nonFiniteHandling() {");
+            out.printf("        return implementation.NonFiniteHandling.%s;%n",
+                    type.getAnnotation(Exported.class).nonFiniteHandling());
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public GeneratedProperty[] properties() {");
+            out.println("        return PROPERTIES.clone();");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void writeProperties(Object object, PropertySink sink) {");
+            out.printf("        var value = (%s) object;%n", typeName);
+            for (var i = 0; i < properties.size(); i++) {
+                var property = properties.get(i);
+                if (property.primitive != null) {
+                    out.printf("        sink.%s(%d, %s);%n", sinkMethod(property.primitive), i, property.read);
+                } else {
+                    out.printf("        sink.writeValue(%d, %s);%n", i, property.read);
+                }
+            }
+            out.println("    }");
+            out.println("}");
+        }
+
+        writers.add(qualifiedName);
+    }
+
+    /**
+     * Registers all generated writers as services of GeneratedWriter.
+     */
+    private void writeRegistry() {
+        var path = "META-INF/services/" + GeneratedWriter.class.getName();
+        Set<String> registered = new LinkedHashSet<>(readRegistry(path));
+        registered.addAll(writers);
+
+        try {
+            var file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+            try (Writer out = file.openWriter()) {
+                for (var writer : registered) {
+                    out.write(writer);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            error("The registry of generated writers cannot be written: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Reads writers registered by earlier compilations to the same output, so an incremental build
+     * that compiles only some @Exported classes keeps writers of the others.
+     *
+     * @param path path of the registry in the class output
+     * @return qualified names of registered writers, empty if there is no registry
+     */
+    private List<String> readRegistry(String path) {
+        try {
+            var file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
+            try (var reader = new BufferedReader(file.openReader(true))) {
+                return reader.lines()
+                        .map(String::strip)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .toList();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Gets a name of a writer of a class, names of enclosing classes are joined with underscores.
+     *
+     * @param type class marked as @Exported
+     * @return simple name of a writer
+     */
+    private static String writerName(TypeElement type) {
+        var name = new StringBuilder(type.getSimpleName());
+        for (var enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement outer;
+             enclosing = outer.getEnclosingElement()) {
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        return name.append("JsonWriter").toString();
+    }
+
+    /**
+     * Checks if a class and all its enclosing classes can be referenced from its package.
+     *
+     * @param type some class
+     * @return true if a class is not private, otherwise, false
+     */
+    private static boolean isAccessible(TypeElement type) {
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets generic type of a collection or a map.
+     *
+     * @param type  collection or Map type
+     * @param index index of a type argument, 0 for elements of collections, 1 for values of maps
+     * @return qualified name of a class of elements or values, or null if it is unknown
+     */
+    private String getGenericType(TypeMirror type, int index) {
+        if (type instanceof DeclaredType declared && declared.getTypeArguments().size() > index &&
+                declared.getTypeArguments().get(index).getKind() == TypeKind.DECLARED) {
+            return processingEnv.getTypeUtils().erasure(declared.getTypeArguments().get(index)).toString();
+        }
+        return null;
+    }
+
+    /**
+     * Checks if keys of a map can be written as names, a raw map or a map with unknown keys is checked at runtime.
+     *
+     * @param type Map type
+     * @return true if keys are strings, enums, numbers or objects, otherwise, false
+     */
+    private boolean isNameType(TypeMirror type) {
+        if (!(type instanceof DeclaredType declared) || declared.getTypeArguments().isEmpty() ||
+                declared.getTypeArguments().get(0).getKind() != TypeKind.DECLARED) {
+            return true;
+        }
+
+        var types = processingEnv.getTypeUtils();
+        var elements = processingEnv.getElementUtils();
+        var key = types.erasure(declared.getTypeArguments().get(0));
+        var element = types.asElement(key);
+        return element != null && element.getKind() == ElementKind.ENUM ||
+                key.toString().equals(String.class.getName()) ||
+                key.toString().equals(Object.class.getName()) ||
+                types.isAssignable(key, elements.getTypeElement(Number.class.getName()).asType());
+    }
+
+    /**
+     * Checks if a type is a Map or an implementation of it.
+     *
+     * @param erasure erased type of a field
+     * @return true if a type is a map, otherwise, false
+     */
+    private boolean isMap(TypeMirror erasure) {
+        return erasure.getKind() == TypeKind.DECLARED && isSubtype(erasure, Map.class);
+    }
+
+    private boolean isExported(TypeMirror type) {
+        var element = processingEnv.getTypeUtils().asElement(type);
+        return element != null && element.getAnnotation(Exported.class) != null;
+    }
+
+    /**
+     * Checks if a type is iterated as a collection: any Collection or Iterable, an Iterator or a Stream.
+     * An @Exported class is written as an object even if it is Iterable.
+     *
+     * @param erasure erased type of a field
+     * @return true if a type is collection, otherwise, false
+     */
+    private boolean isCollection(TypeMirror erasure) {
+        return erasure.getKind() == TypeKind.DECLARED && !isExported(erasure) &&
+                (isSubtype(erasure, Iterable.class) || isSubtype(erasure, Iterator.class) ||
+                        isSubtype(erasure, Stream.class));
+    }
+
+    /**
+     * Checks if a type is a Supplier of iterators, e.g. {@code Supplier<Iterator<Item>>}.
+     *
+     * @param type type of a field
+     * @return true if a type supplies iterators, otherwise, false
+     */
+    private boolean isIteratorSupplier(TypeMirror type) {
+        return type instanceof DeclaredType declared &&
+                processingEnv.getTypeUtils().erasure(declared).toString().equals(Supplier.class.getName()) &&
+                declared.getTypeArguments().size() == 1 &&
+                declared.getTypeArguments().get(0).getKind() == TypeKind.DECLARED &&
+                processingEnv.getTypeUtils().erasure(declared.getTypeArguments().get(0)).toString()
+                        .equals(Iterator.class.getName());
+    }
+
+    /**
+     * Checks if an erased type is a subtype of a class.
+     *
+     * @param erasure erased type of a field
+     * @param type    some class
+     * @return true if a type is assignable to a class, otherwise, false
+     */
+    private boolean isSubtype(TypeMirror erasure, Class<?> type) {
+        var types = processingEnv.getTypeUtils();
+        var element = processingEnv.getElementUtils().getTypeElement(type.getName());
+        return types.isAssignable(erasure, types.erasure(element.asType()));
+    }
+
+    /**
+     * Checks a type is primitive, wrapper, String, LocalDate, LocalDateTime, LocalTime, Enum.
+     *
+     * @param erasure erased type of a field
+     * @return true if a type is one of
+     * primitive, wrapper, String, LocalDate, LocalDateTime, LocalTime, Enum, otherwise, false
+     */
+    private boolean isWrapperOrPrimitive(TypeMirror erasure) {
+        if (erasure.getKind().isPrimitive()) {
+            return true;
+        }
+
+        var element = processingEnv.getTypeUtils().asElement(erasure);
+        if (element != null && element.getKind() == ElementKind.ENUM) {
+            return true;
+        }
+
+        var name = erasure.toString();
+        return name.equals(Double.class.getName()) ||
+                name.equals(Float.class.getName()) ||
+                name.equals(Long.class.getName()) ||
+                name.equals(Integer.class.getName()) ||
+                name.equals(Short.class.getName()) ||
+                name.equals(Character.class.getName()) ||
+                name.equals(Byte.class.getName()) ||
+                name.equals(Boolean.class.getName()) ||
+                name.equals(String.class.getName()) ||
+                name.equals(LocalDate.class.getName()) ||
+                name.equals(LocalTime.class.getName()) ||
+                name.equals(LocalDateTime.class.getName());
+    }
+
+    /**
+     * Checks if a type is an array of a primitive type other than char.
+     *
+     * @param erasure erased type of a field
+     * @return true if a type is written as a JSON array of numbers or booleans, otherwise, false
+     */
+    private static boolean isPrimitiveArray(TypeMirror erasure) {
+        return erasure instanceof ArrayType array && array.getComponentType().getKind().isPrimitive() &&
+                array.getComponentType().getKind() != TypeKind.CHAR;
+    }
+
+    /**
+     * Checks if a type is a subtype of a type with a PrimitiveCollectionWriter registered on the processor path.
+     *
+     * @param erasure erased type of a field
+     * @return true if a type is written by a PrimitiveCollectionWriter, otherwise, false
+     */
+    private boolean isPrimitiveCollection(TypeMirror erasure) {
+        if (primitiveCollections == null) {
+            primitiveCollections = new ArrayList<>();
+            try {
+                for (var writer : ServiceLoader.load(PrimitiveCollectionWriter.class, getClass().getClassLoader())) {
+                    primitiveCollections.add(writer.type().getCanonicalName());
+                }
+            } catch (ServiceConfigurationError e) {
+                // Types of a broken registration are reported as not @Exported.
+            }
+        }
+
+        for (var name : primitiveCollections) {
+            var element = processingEnv.getElementUtils().getTypeElement(name);
+            if (element != null && processingEnv.getTypeUtils().isAssignable(erasure,
+                    processingEnv.getTypeUtils().erasure(element.asType()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets a name of a PropertySink method that writes values of a primitive type.
+     *
+     * @param kind primitive kind
+     * @return name of a method
+     */
+    private static String sinkMethod(TypeKind kind) {
+        var name = kind.name().toLowerCase();
+        return "write" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Formats a string as a Java string literal.
+     *
+     * @param value some string
+     * @return quoted and escaped string
+     */
+    private static String literal(String value) {
+        var literal = new StringBuilder("\"");
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void warning(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    /**
+     * Serializable property of a class.
+     *
+     * @param name         name of a property, taking @PropertyName into account
+     * @param primitive    kind of a primitive type, null if a type is not primitive
+     * @param type         qualified name of an erased type of a field
+     * @param elementType  qualified name of a class of collection elements, or null
+     * @param typeExported true if a type of a field is marked as @Exported
+     * @param datePattern  pattern of @DateFormat, or null
+     * @param read         expression that reads a field from a variable named {@code value}
+     */
+    private record Property(String name, TypeKind primitive, String type, String elementType, boolean typeExported,
+                            String datePattern, String read) {
+    }
+}
@@ -0,0 +1,232 @@
+package processor;
+
+import implementation.DefaultSerializer;
+import interfaces.Exported;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.*;
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportedProcessorTest {
+    private static final String ORDER = """
+            package sample;
+
+            import implementation.NonFiniteHandling;
+            import implementation.NullHandling;
+            import interfaces.*;
+
+            import java.time.LocalDate;
+            import java.util.List;
+            import java.util.Map;
+
+            @Exported(nullHandling = NullHandling.INCLUDE, nonFiniteHandling = NonFiniteHandling.STRING)
+            public class Order {
+                public long id = 7;
+                String name = "order";
+                @PropertyName("when")
+                @DateFormat(pattern = "dd/MM/yyyy")
+                LocalDate date = LocalDate.of(2024, 1, 2);
+                @Ignored
+                public int skipped = 1;
+                public Item item = new Item("a", 2);
+                public List<Item> items = List.of(new Item("b", 3));
+                public String note;
+                public double ratio = Double.NaN;
+                public int[] counts = {1, 2};
+                public Map<String, Item> bySku = Map.of("c", new Item("c", 4));
+
+                public Order() {
+                }
+
+                public String getName() {
+                    return name.toUpperCase();
+                }
+            }
+            """;
+
+    private static final String ITEM = """
+            package sample;
+
+            import interfaces.Exported;
+
+            @Exported
+            public record Item(String sku, int count) {
+            }
+            """;
+
+    private static final String SECRET = """
+            package sample;
+
+            import interfaces.Exported;
+
+            @Exported
+            public class Secret {
+                private String code = "secret";
+
+                public Secret() {
+                }
+
+                public String getCode() {
+                    return code.toUpperCase();
+                }
+            }
+            """;
+
+    private static final String INVALID = """
+            package sample;
+
+            import interfaces.Exported;
+
+            @Exported
+            public class Invalid {
+                public Thread thread;
+
+                public Invalid(int number) {
+                }
+            }
+            """;
+
+    private static final String INVALID_FIELD = """
+            package sample;
+
+            import interfaces.Exported;
+
+            @Exported
+            public class InvalidField {
+                public Thread thread;
+
+                public InvalidField() {
+                }
+            }
+            """;
+
+    @TempDir
+    Path output;
+
+    @TempDir
+    Path plain;
+
+    @Test
+    void generatesWritersUsedByDefaultSerializer() throws Exception {
+        var sources = List.of(source("Order", ORDER), source("Item", ITEM), source("Secret", SECRET));
+        var diagnostics = compile(sources);
+        var warnings = diagnostics.getDiagnostics().stream()
+                .map(diagnostic -> diagnostic.getKind() + " " + diagnostic.getMessage(null))
+                .toList();
+        assertEquals(List.of("WARNING The writer of class Secret is not generated because field code is private, " +
+                "the class is written reflectively"), warnings);
+        assertFalse(Files.exists(output.resolve("sample/SecretJsonWriter.class")));
+
+        diagnostics = compile(sources, plain, false);
+        assertTrue(diagnostics.getDiagnostics().isEmpty(), diagnostics.getDiagnostics()::toString);
+
+        assertTrue(Files.exists(output.resolve("sample/OrderJsonWriter.class")));
+        assertEquals(List.of("sample.OrderJsonWriter", "sample.ItemJsonWriter"),
+                Files.readAllLines(output.resolve("META-INF/services/implementation.GeneratedWriter")));
+
+        var thread = Thread.currentThread();
+        var contextClassLoader = thread.getContextClassLoader();
+        try (var loader = new URLClassLoader(new URL[]{output.toUri().toURL()},
+                getClass().getClassLoader())) {
+            thread.setContextClassLoader(loader);
+
+            var order = loader.loadClass("sample.Order").getConstructor().newInstance();
+
+            // The getter upper-cases the name, the generated writer reads the field as reflection does.
+            assertEquals("{\"id\":7,\"name\":\"order\",\"when\":\"02/01/2024\",\"item\":{\"sku\":\"a\"," +
+                            "\"count\":2},\"items\":[\"Item\":{\"sku\":\"b\",\"count\":3}],\"note\":null,\"ratio\":\"NaN\"," +
+                            "\"counts\":[1,2],\"bySku\":{\"c\":{\"sku\":\"c\",\"count\":4}}}",
+                    new DefaultSerializer().writeToString(order));
+
+            // Classes compiled without the processor are written reflectively, and their JSON is the same.
+            try (var plainLoader = new URLClassLoader(new URL[]{plain.toUri().toURL()},
+                    getClass().getClassLoader())) {
+                for (var name : List.of("sample.Order", "sample.Secret")) {
+                    var generated = loader.loadClass(name).getConstructor().newInstance();
+                    var reflective = plainLoader.loadClass(name).getConstructor().newInstance();
+                    assertEquals(new DefaultSerializer().writeToString(reflective),
+                            new DefaultSerializer().writeToString(generated), name);
+                }
+                assertEquals("{\"code\":\"secret\"}", new DefaultSerializer().writeToString(
+                        loader.loadClass("sample.Secret").getConstructor().newInstance()));
+            }
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    void keepsWritersOfEarlierCompilations() throws Exception {
+        var diagnostics = compile(List.of(source("Item", ITEM)));
+        assertTrue(diagnostics.getDiagnostics().isEmpty(), diagnostics.getDiagnostics()::toString);
+
+        // An incremental build compiles only changed classes to the same output.
+        diagnostics = compile(List.of(source("Order", ORDER)));
+        assertTrue(diagnostics.getDiagnostics().isEmpty(), diagnostics.getDiagnostics()::toString);
+        diagnostics = compile(List.of(source("Item", ITEM)));
+        assertTrue(diagnostics.getDiagnostics().isEmpty(), diagnostics.getDiagnostics()::toString);
+
+        assertEquals(List.of("sample.ItemJsonWriter", "sample.OrderJsonWriter"),
+                Files.readAllLines(output.resolve("META-INF/services/implementation.GeneratedWriter")));
+    }
+
+    @Test
+    void reportsRestrictionsAsCompileErrors() throws Exception {
+        var diagnostics = compile(List.of(source("Invalid", INVALID), source("InvalidField", INVALID_FIELD)));
+
+        var messages = diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .toList();
+
+        assertEquals(List.of("There is no public constructor with no parameters for class Invalid",
+                "The object Thread you want to write is not @Exported"), messages);
+    }
+
+    private DiagnosticCollector<JavaFileObject> compile(List<JavaFileObject> sources)
+            throws URISyntaxException {
+        return compile(sources, output, true);
+    }
+
+    private DiagnosticCollector<JavaFileObject> compile(List<JavaFileObject> sources, Path directory,
+                                                        boolean processed) throws URISyntaxException {
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+        var library = new File(Exported.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> options = new ArrayList<>(List.of("-d", directory.toString(), "-classpath",
+                library.getPath() + File.pathSeparator + directory));
+        if (!processed) {
+            options.add("-proc:none");
+        }
+
+        var task = compiler.getTask(null, null, diagnostics, options, null, sources);
+        if (processed) {
+            task.setProcessors(List.of(new ExportedProcessor()));
+        }
+        task.call();
+
+        return diagnostics;
+    }
+
+    private static JavaFileObject source(String name, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///sample/" + name + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}